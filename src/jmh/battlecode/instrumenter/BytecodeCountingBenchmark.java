@@ -0,0 +1,58 @@
+package battlecode.instrumenter;
+
+import battlecode.common.RobotController;
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import battlecode.instrumenter.stream.SilencedPrintStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures how fast instrumented robot code runs, which for tight loops is
+ * mostly the cost of counting bytecodes: testplayerloopforever spends every
+ * turn in a one-block loop that calls RobotMonitor.incrementBytecodes on
+ * every iteration.
+ *
+ * Runs at a normal bytecode limit and a large one (where the turn handoff
+ * matters less).
+ * Every turn uses up the limit, so the time per bytecode is the time per
+ * turn divided by it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BytecodeCountingBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int limit;
+
+    private SandboxedRobotPlayer player;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final String folder = URLUtils.toTempFolder("testplayerloopforever/RobotPlayer.class");
+
+        final RobotController rc = mock(RobotController.class);
+        when(rc.getTeam()).thenReturn(Team.A);
+        when(rc.getType()).thenReturn(RobotType.ARCHON);
+
+        player = new SandboxedRobotPlayer("testplayerloopforever", rc, 0,
+                new TeamClassLoaderFactory(folder).createLoader(), SilencedPrintStream.theInstance());
+        player.setBytecodeLimit(limit);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        player.terminate();
+    }
+
+    @Benchmark
+    public int turn() {
+        player.step();
+        return player.getBytecodesUsed();
+    }
+}
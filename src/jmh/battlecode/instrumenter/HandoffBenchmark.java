@@ -0,0 +1,85 @@
+package battlecode.instrumenter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to pass a turn to each of a number of robot
+ * threads and back, i.e. one round of the engine's handoff overhead, for
+ * each kind of TurnHandoff. Divide by robots for the cost per robot turn.
+ *
+ * Robots here do no work, so the numbers are pure handoff cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HandoffBenchmark {
+
+    // As bc.engine.robot-handoff names them
+    @Param({"monitor", "park", "spin-park"})
+    public String handoff;
+
+    @Param({"1", "50", "500"})
+    public int robots;
+
+    private TurnHandoff[] handoffs;
+    private Thread[] threads;
+    private boolean stop;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        handoffs = new TurnHandoff[robots];
+        threads = new Thread[robots];
+        stop = false;
+        for (int i = 0; i < robots; i++) {
+            final TurnHandoff robot = newHandoff();
+            final Thread thread = new Thread(() -> {
+                try {
+                    // Only read on the robot's turn, so the handoff makes it visible
+                    while (!stop) {
+                        robot.yieldToEngine();
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    robot.finish();
+                }
+            }, handoff + " robot #" + i);
+            thread.setDaemon(true);
+            robot.start(thread);
+            handoffs[i] = robot;
+            threads[i] = thread;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        // Give every robot one last turn, in which it sees stop and exits
+        stop = true;
+        round();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Benchmark
+    public void round() throws InterruptedException {
+        for (TurnHandoff robot : handoffs) {
+            robot.runRobot();
+        }
+    }
+
+    private TurnHandoff newHandoff() {
+        switch (handoff) {
+            case "monitor":
+                return new MonitorHandoff();
+            case "park":
+                return new ParkingHandoff(0);
+            case "spin-park":
+                return new ParkingHandoff(ParkingHandoff.DEFAULT_SPINS);
+            default:
+                throw new IllegalArgumentException("Unknown handoff: " + handoff);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package battlecode.instrumenter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the sample players' classes through TeamClassLoaderFactory.
+ *
+ * The cold benchmark instruments everything from scratch, in a new factory
+ * with no shared cache: the work done once per team when a match starts.
+ * The warm one loads the same classes with a new loader from a factory that
+ * has already instrumented them: the work done for every robot spawned.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InstrumentationBenchmark {
+
+    private static final String[] PLAYERS = {
+            "testplayeractions",
+            "testplayerarraybytecode",
+            "testplayercollections",
+            "testplayermultiarraybytecode",
+    };
+
+    /**
+     * Library classes players commonly use, which are instrumented too.
+     */
+    private static final String[] LIBRARY_CLASSES = {
+            "java.util.ArrayList",
+            "java.util.HashMap",
+            "java.util.HashSet",
+            "java.util.LinkedList",
+            "java.util.PriorityQueue",
+            "java.util.Random",
+    };
+
+    private String folder;
+    private TeamClassLoaderFactory warmFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final String[] resources = new String[PLAYERS.length];
+        for (int i = 0; i < PLAYERS.length; i++) {
+            resources[i] = PLAYERS[i] + "/RobotPlayer.class";
+        }
+        folder = URLUtils.toTempFolder(resources);
+
+        warmFactory = new TeamClassLoaderFactory(folder, new InstrumentedClassCache(0));
+        loadAll(warmFactory.createLoader());
+    }
+
+    @Benchmark
+    public ClassLoader cold() throws Exception {
+        return loadAll(new TeamClassLoaderFactory(folder, new InstrumentedClassCache(0)).createLoader());
+    }
+
+    @Benchmark
+    public ClassLoader warm() throws Exception {
+        return loadAll(warmFactory.createLoader());
+    }
+
+    private static ClassLoader loadAll(ClassLoader loader) throws ClassNotFoundException {
+        for (String player : PLAYERS) {
+            loader.loadClass(player + ".RobotPlayer");
+        }
+        for (String className : LIBRARY_CLASSES) {
+            loader.loadClass(className);
+        }
+        return loader;
+    }
+}
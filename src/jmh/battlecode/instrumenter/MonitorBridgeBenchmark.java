@@ -0,0 +1,71 @@
+package battlecode.instrumenter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the engine's per-turn cost of controlling robots' monitors
+ * (setting the bytecode limit before a turn and reading the bytecodes used
+ * after it) through reflection, as SandboxedRobotPlayer used to, and through
+ * RobotMonitor.Bridge.
+ *
+ * Every robot gets its own loader and so its own RobotMonitor, as in a real
+ * game. Turns themselves aren't run, so the numbers are pure control
+ * overhead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(MonitorBridgeBenchmark.ROBOTS)
+public class MonitorBridgeBenchmark {
+
+    static final int ROBOTS = 500;
+
+    private Method[] setLimit;
+    private Method[] getUsed;
+    private SandboxedRobotPlayer.MonitorBridge[] bridges;
+
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final TeamClassLoaderFactory factory = new TeamClassLoaderFactory(
+                URLUtils.toTempFolder("testplayerempty/RobotPlayer.class"));
+
+        setLimit = new Method[ROBOTS];
+        getUsed = new Method[ROBOTS];
+        bridges = new SandboxedRobotPlayer.MonitorBridge[ROBOTS];
+        for (int i = 0; i < ROBOTS; i++) {
+            final TeamClassLoaderFactory.Loader loader = factory.createLoader();
+            final Class<?> monitor = loader.loadClass("battlecode.instrumenter.inject.RobotMonitor");
+            setLimit[i] = monitor.getMethod("setBytecodeLimit", int.class);
+            getUsed[i] = monitor.getMethod("getBytecodeNum");
+            bridges[i] = (SandboxedRobotPlayer.MonitorBridge)
+                    loader.loadClass("battlecode.instrumenter.inject.RobotMonitor$Bridge").newInstance();
+        }
+    }
+
+    @Benchmark
+    public long reflection() throws Exception {
+        final int limit = 10000 + round++;
+        long used = 0;
+        for (int i = 0; i < ROBOTS; i++) {
+            setLimit[i].invoke(null, limit);
+            used += (Integer) getUsed[i].invoke(null);
+        }
+        return used;
+    }
+
+    @Benchmark
+    public long bridge() {
+        final int limit = 10000 + round++;
+        long used = 0;
+        for (int i = 0; i < ROBOTS; i++) {
+            bridges[i].setBytecodeLimit(limit);
+            used += bridges[i].getBytecodeNum();
+        }
+        return used;
+    }
+}
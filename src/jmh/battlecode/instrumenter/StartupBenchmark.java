@@ -0,0 +1,124 @@
+package battlecode.instrumenter;
+
+import battlecode.common.GameConstants;
+import battlecode.common.Team;
+import battlecode.server.GameInfo;
+import battlecode.server.GameMaker;
+import battlecode.world.GameMapIO;
+import battlecode.world.GameWorld;
+import battlecode.world.control.NullControlProvider;
+import battlecode.world.control.PlayerControlProvider;
+import battlecode.world.control.TeamControlProvider;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a fresh JVM takes to get through the first round of a
+ * match, with an empty on-disk class cache (bc.engine.class-cache-dir) and
+ * with a cache an earlier run has filled.
+ *
+ * Every invocation is a separate JVM, so none gets any help from classes
+ * instrumented or JIT-compiled by another.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private String players;
+    private File cacheDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        players = URLUtils.toTempFolder("testplayercollections/RobotPlayer.class");
+        if (cache.equals("warm")) {
+            cacheDir = Files.createTempDirectory("battlecode-class-cache").toFile();
+            firstRound();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (cache.equals("warm")) {
+            FileUtils.deleteDirectory(cacheDir);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyCache() throws IOException {
+        if (cache.equals("cold")) {
+            cacheDir = Files.createTempDirectory("battlecode-class-cache").toFile();
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteCache() throws IOException {
+        if (cache.equals("cold")) {
+            FileUtils.deleteDirectory(cacheDir);
+        }
+    }
+
+    @Benchmark
+    public void firstRound() throws Exception {
+        final Process process = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Dbc.engine.class-cache-dir=" + cacheDir,
+                "-Dbc.server.robot-player-to-system-out=false",
+                StartupBenchmark.class.getName(),
+                players
+        ).redirectErrorStream(true).start();
+
+        final String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new RuntimeException("Benchmark JVM failed:\n" + output);
+        }
+    }
+
+    /**
+     * Run the first round of a match between two copies of the player, in
+     * the JVM firstRound() starts.
+     */
+    public static void main(String[] args) throws Exception {
+        final String players = args[0];
+        final File saveFile = File.createTempFile("battlecode-startup", ".bc17");
+        saveFile.deleteOnExit();
+        final GameInfo game = new GameInfo(
+                "A", "testplayercollections", players,
+                "B", "testplayercollections", players,
+                new String[]{"Blitzkrieg"},
+                saveFile,
+                false
+        );
+        final GameMaker gameMaker = new GameMaker(game, null);
+        gameMaker.makeGameHeader();
+
+        final TeamControlProvider provider = new TeamControlProvider();
+        provider.registerControlProvider(Team.A,
+                new PlayerControlProvider("testplayercollections", players, gameMaker.getMatchMaker().getOut()));
+        provider.registerControlProvider(Team.B,
+                new PlayerControlProvider("testplayercollections", players, gameMaker.getMatchMaker().getOut()));
+        provider.registerControlProvider(Team.NEUTRAL, new NullControlProvider());
+
+        final GameWorld world = new GameWorld(
+                GameMapIO.loadMap("Blitzkrieg", new File("maps")),
+                provider,
+                new long[2][GameConstants.TEAM_MEMORY_LENGTH],
+                gameMaker.getMatchMaker()
+        );
+        world.runRound();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,58 @@
+package battlecode.server;
+
+import battlecode.util.ParallelGzipOutputStream;
+import battlecode.world.BenchmarkWorlds;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures compressing a finished game: a match of scripted robots on a
+ * busy map, gzipped on a pool of the given number of threads, or with a
+ * plain GZIPOutputStream for threads = 0.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompressGameBenchmark {
+
+    private static final int ROUNDS = 1000;
+
+    @Param({"0", "1", "2", "4", "8"})
+    public int threads;
+
+    private byte[] game;
+    private ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        game = BenchmarkWorlds.scriptedGame(BenchmarkWorlds.map(200, 200, 1), ROUNDS);
+
+        if (threads > 0) {
+            pool = Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void compress() throws IOException {
+        final OutputStream sink = new NullOutputStream();
+        try (OutputStream out = threads > 0
+                ? new ParallelGzipOutputStream(sink, pool, threads)
+                : new GZIPOutputStream(sink)) {
+            out.write(game);
+        }
+    }
+}
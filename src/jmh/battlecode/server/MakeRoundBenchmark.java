@@ -0,0 +1,99 @@
+package battlecode.server;
+
+import battlecode.common.MapLocation;
+import battlecode.common.Team;
+import battlecode.world.BenchmarkWorlds;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures GameMaker.MatchMaker.makeRound: serializing a round in which
+ * every body moves, every body's health changes, and every robot reports
+ * its bytecodes, which is about the busiest a round gets.
+ *
+ * A new game is started every so often, so that the recording (which
+ * grows with every round) stays a realistic size. The sink is where the
+ * game goes: kept in "memory" to be written at the end; also handed to a
+ * NetServer, as when a client is watching ("websocket"); or streamed to a
+ * file as it goes ("stream"). Run with -prof gc to see allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MakeRoundBenchmark {
+
+    private static final int ROUNDS_PER_GAME = 1000;
+
+    @Param({"100", "1000", "4000"})
+    public int bodies;
+
+    @Param({"memory", "websocket", "stream"})
+    public String sink;
+
+    private File streamFile;
+    private GameMaker gameMaker;
+    private GameMaker.MatchMaker matchMaker;
+    private MapLocation[] locations;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        locations = new MapLocation[bodies];
+        for (int i = 0; i < bodies; i++) {
+            locations[i] = new MapLocation(i % 100, i / 100 % 100);
+        }
+        if (sink.equals("stream")) {
+            streamFile = File.createTempFile("benchmark", ".bc17s");
+        }
+        newGame();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        gameMaker.abandon();
+        if (streamFile != null) {
+            streamFile.delete();
+        }
+    }
+
+    private void newGame() {
+        if (gameMaker != null) {
+            gameMaker.abandon();
+        }
+        gameMaker = BenchmarkWorlds.gameMaker(sink.equals("websocket") ? new DiscardingNetServer() : null, streamFile);
+        matchMaker = gameMaker.getMatchMaker();
+        matchMaker.makeMatchHeader(BenchmarkWorlds.map(0, 0, 1));
+        round = 0;
+    }
+
+    @Benchmark
+    public void makeRound() {
+        if (round >= ROUNDS_PER_GAME) {
+            newGame();
+        }
+        for (int id = 0; id < bodies; id++) {
+            matchMaker.addMoved(id, locations[id]);
+            matchMaker.addHealthChanged(id, id % 50);
+            matchMaker.addBytecodes(id, 10000 - id);
+        }
+        matchMaker.addTeamStat(Team.A, 100, round);
+        matchMaker.addTeamStat(Team.B, 100, round);
+        matchMaker.makeRound(round++);
+    }
+
+    /**
+     * Takes events like a NetServer, without ever starting or sending them
+     * anywhere.
+     */
+    private static class DiscardingNetServer extends NetServer {
+        DiscardingNetServer() {
+            super(0, false);
+        }
+
+        @Override
+        public void addEvent(byte[] event) {}
+    }
+}
@@ -0,0 +1,46 @@
+package battlecode.server;
+
+import battlecode.world.BenchmarkWorlds;
+import battlecode.world.GameMapIO;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving a game with each ReplayCodec: a match of scripted robots
+ * on one of the sample maps, compressed to nowhere, on the calling thread.
+ * JMH only measures time; to see how big a game comes out with each codec,
+ * convert a saved game with ReplayCodec's main, which prints both sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplayCodecBenchmark {
+
+    private static final int ROUNDS = 1000;
+
+    @Param({"shrine", "Barrier", "DenseForest", "Sprinkles"})
+    public String map;
+
+    @Param({"gzip", "gzip-best", "lz4", "none"})
+    public String codec;
+
+    private ReplayCodec replayCodec;
+    private byte[] game;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        replayCodec = ReplayCodec.forName(codec);
+        game = BenchmarkWorlds.scriptedGame(GameMapIO.loadMap(map, null), ROUNDS);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        try (OutputStream out = replayCodec.compress(new NullOutputStream())) {
+            out.write(game);
+        }
+    }
+}
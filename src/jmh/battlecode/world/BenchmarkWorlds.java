@@ -0,0 +1,140 @@
+package battlecode.world;
+
+import battlecode.common.*;
+import battlecode.server.GameInfo;
+import battlecode.server.GameMaker;
+import battlecode.server.NetServer;
+import battlecode.server.ReplayCodec;
+import battlecode.world.control.NullControlProvider;
+import battlecode.world.control.ScriptedControlProvider;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the worlds the benchmarks run on: a full-size map with robots and
+ * neutral trees spread over it at random, half of the robots on each team.
+ */
+public final class BenchmarkWorlds {
+
+    public static final float MAP_SIZE = GameConstants.MAP_MAX_WIDTH;
+
+    /**
+     * Bodies go on a grid this far apart, so no two overlap.
+     */
+    private static final float SPACING = 2.5f;
+
+    private BenchmarkWorlds() {
+    }
+
+    /**
+     * @param robots how many soldiers to put on the map
+     * @param trees how many neutral trees to put on the map
+     * @param seed where to put them
+     * @return the map
+     */
+    public static LiveMap map(int robots, int trees, long seed) {
+        final int perSide = (int) (MAP_SIZE / SPACING);
+        if (robots + trees > perSide * perSide) {
+            throw new IllegalArgumentException("Too many bodies for one map: " + (robots + trees));
+        }
+
+        final List<MapLocation> spots = new ArrayList<>();
+        for (int x = 0; x < perSide; x++) {
+            for (int y = 0; y < perSide; y++) {
+                spots.add(new MapLocation((x + 0.5f) * SPACING, (y + 0.5f) * SPACING));
+            }
+        }
+        Collections.shuffle(spots, new Random(seed));
+
+        final TestMapBuilder builder = new TestMapBuilder("benchmark", 0, 0, MAP_SIZE, MAP_SIZE, (int) seed,
+                GameConstants.GAME_DEFAULT_ROUNDS);
+        int id = 0;
+        for (int i = 0; i < robots; i++) {
+            builder.addRobot(id++, i % 2 == 0 ? Team.A : Team.B, RobotType.SOLDIER, spots.get(i));
+        }
+        for (int i = 0; i < trees; i++) {
+            builder.addNeutralTree(id++, spots.get(robots + i), 1, 0, null);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return a world running a match on the map, with robots that do
+     *         nothing, recorded by a game of its own
+     */
+    public static GameWorld world(LiveMap map) {
+        return new GameWorld(map, new NullControlProvider(),
+                new long[2][GameConstants.TEAM_MEMORY_LENGTH], matchMaker());
+    }
+
+    /**
+     * @return a match maker ready to record a match, in a game of its own
+     */
+    public static GameMaker.MatchMaker matchMaker() {
+        return gameMaker(null, null).getMatchMaker();
+    }
+
+    /**
+     * @param packetSink where to send the game's events as well; may be null
+     * @param streamFile where to stream the game; null to keep it in memory
+     * @return a game maker that's made its game header
+     */
+    public static GameMaker gameMaker(NetServer packetSink, File streamFile) {
+        final GameMaker gameMaker = new GameMaker(new GameInfo(
+                "teamA", "teamA", null, "teamB", "teamB", null,
+                new String[]{"benchmark"}, null, false
+        ), packetSink, streamFile);
+        gameMaker.makeGameHeader();
+        return gameMaker;
+    }
+
+    /**
+     * Play a match on the map with scripted robots that do everything they
+     * can, the way a busy game would.
+     *
+     * @param map the map to play on
+     * @param rounds the most rounds to play
+     * @return the game, as an uncompressed GameWrapper
+     */
+    public static byte[] scriptedGame(LiveMap map, int rounds) throws IOException {
+        final GameMaker gameMaker = new GameMaker(new GameInfo(
+                "teamA", "teamA", null, "teamB", "teamB", null,
+                new String[]{map.getMapName()}, null, false
+        ), null, null, ReplayCodec.NONE);
+        gameMaker.makeGameHeader();
+        final GameWorld world = new GameWorld(map,
+                new ScriptedControlProvider(EnumSet.allOf(ScriptedControlProvider.Behavior.class)),
+                new long[2][GameConstants.TEAM_MEMORY_LENGTH], gameMaker.getMatchMaker());
+        int round = 0;
+        while (round < rounds && world.isRunning()) {
+            world.runRound();
+            round++;
+        }
+        if (world.isRunning()) {
+            gameMaker.getMatchMaker().makeMatchFooter(Team.A, round);
+        }
+        gameMaker.makeGameFooter(Team.A);
+        return IOUtils.toByteArray(ReplayCodec.decompress(new ByteArrayInputStream(gameMaker.toBytes())));
+    }
+
+    /**
+     * Spawn a harmless bullet somewhere random on the map, fired by one of the
+     * given robots, heading somewhere random.
+     *
+     * @return the bullet's ID
+     */
+    public static int spawnBullet(GameWorld world, InternalRobot[] robots, Random random) {
+        final InternalRobot parent = robots[random.nextInt(robots.length)];
+        final MapLocation location = new MapLocation(random.nextFloat() * MAP_SIZE, random.nextFloat() * MAP_SIZE);
+        return world.spawnBullet(parent.getTeam(), RobotType.SOLDIER.bulletSpeed, 0, location,
+                new Direction(random.nextFloat() * 2 * (float) Math.PI), parent);
+    }
+}
@@ -0,0 +1,102 @@
+package battlecode.world;
+
+import battlecode.common.MapLocation;
+import battlecode.server.Config;
+import gnu.trove.procedure.TObjectProcedure;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ObjectInfo's radius queries, with each spatial index, as the map
+ * fills up. Every invocation runs the same batch of queries, at random
+ * places on the map, with about the radius of a robot's sensor range.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ObjectInfoBenchmark.QUERIES)
+public class ObjectInfoBenchmark {
+
+    static final int QUERIES = 256;
+
+    private static final float RADIUS = 7;
+
+    @Param({"grid", "rtree"})
+    public String indexType;
+
+    @Param({"100", "1000"})
+    public int robots;
+
+    @Param({"100", "400"})
+    public int trees;
+
+    private ObjectInfo objectInfo;
+    private MapLocation[] centers;
+
+    private int found;
+    private final TObjectProcedure<InternalRobot> countRobot = robot -> {
+        found++;
+        return true;
+    };
+    private final TObjectProcedure<InternalTree> countTree = tree -> {
+        found++;
+        return true;
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final String oldIndexType = Config.getGlobalConfig().get("bc.engine.spatial-index");
+        Config.getGlobalConfig().set("bc.engine.spatial-index", indexType);
+        try {
+            objectInfo = BenchmarkWorlds.world(BenchmarkWorlds.map(robots, trees, 1)).getObjectInfo();
+        } finally {
+            Config.getGlobalConfig().set("bc.engine.spatial-index", oldIndexType);
+        }
+
+        final Random random = new Random(1);
+        centers = new MapLocation[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            centers[i] = new MapLocation(random.nextFloat() * BenchmarkWorlds.MAP_SIZE,
+                    random.nextFloat() * BenchmarkWorlds.MAP_SIZE);
+        }
+    }
+
+    @Benchmark
+    public int eachRobotWithinRadius() {
+        found = 0;
+        for (MapLocation center : centers) {
+            objectInfo.eachRobotWithinRadius(center, RADIUS, countRobot);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int eachTreeWithinRadius() {
+        found = 0;
+        for (MapLocation center : centers) {
+            objectInfo.eachTreeWithinRadius(center, RADIUS, countTree);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public void getAllRobotsWithinRadius(Blackhole blackhole) {
+        for (MapLocation center : centers) {
+            blackhole.consume(objectInfo.getAllRobotsWithinRadius(center, RADIUS));
+        }
+    }
+
+    /**
+     * Stops at the first body found, so this is mostly the cost of getting
+     * a query started.
+     */
+    @Benchmark
+    public void isEmpty(Blackhole blackhole) {
+        for (MapLocation center : centers) {
+            blackhole.consume(objectInfo.isEmpty(center, 1));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package battlecode.world;
+
+import battlecode.server.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures GameWorld.runRound on its own: robots that do nothing, so that
+ * what's left is the engine's per-round work (updating bodies, moving and
+ * colliding bullets, trees, and writing the round out) as the map fills up.
+ *
+ * Before each round, bullets are topped back up to the target count, the way
+ * robots firing would; a new world is started every so often, since a match
+ * only lasts so long and the recording grows with every round. Both happen
+ * in an untimed per-invocation setup, so spawning bullets and indexing them
+ * isn't counted as part of the round.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RunRoundBenchmark {
+
+    private static final int ROUNDS_PER_WORLD = 1000;
+
+    private static final int TREES = 200;
+
+    @Param({"50", "200", "800"})
+    public int robots;
+
+    @Param({"0", "500", "2000"})
+    public int bullets;
+
+    private LiveMap map;
+    private GameWorld world;
+    private InternalRobot[] parents;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = BenchmarkWorlds.map(robots, TREES, 1);
+        random = new Random(1);
+        newWorld();
+    }
+
+    private void newWorld() {
+        world = BenchmarkWorlds.world(map);
+        parents = world.getObjectInfo().robotsArray();
+    }
+
+    /**
+     * Per-invocation setup makes JMH time each call on its own, which adds
+     * a little overhead to every round; with few robots and no bullets,
+     * rounds are short enough for it to show.
+     */
+    @Setup(Level.Invocation)
+    public void setUpRound() {
+        if (world.getCurrentRound() >= ROUNDS_PER_WORLD) {
+            newWorld();
+        }
+        for (int i = world.getObjectInfo().bullets().size(); i < bullets; i++) {
+            BenchmarkWorlds.spawnBullet(world, parents, random);
+        }
+    }
+
+    @Benchmark
+    public GameState runRound() {
+        return world.runRound();
+    }
+}
@@ -0,0 +1,82 @@
+package battlecode.world;
+
+import battlecode.common.MapLocation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures InternalBullet.updateBullet: finding what a bullet hits as it
+ * moves, and moving it in the index.
+ *
+ * Only bullets that fly a step without hitting anything are updated, and
+ * each is put back where it started afterwards, so every invocation does
+ * the same work. With sweep on, the round's BulletSweep has planned the
+ * bullets' tree hits, the way it has during GameWorld.runRound; with it
+ * off, trees are found with a radius query instead, the way they are for a
+ * bullet spawned mid-round.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(UpdateBulletBenchmark.BULLETS)
+public class UpdateBulletBenchmark {
+
+    static final int BULLETS = 256;
+
+    @Param({"200", "800"})
+    public int robots;
+
+    @Param({"100", "400"})
+    public int trees;
+
+    @Param({"false", "true"})
+    public boolean sweep;
+
+    private GameWorld world;
+    private InternalBullet[] bullets;
+    private MapLocation[] starts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = BenchmarkWorlds.world(BenchmarkWorlds.map(robots, trees, 1));
+        final InternalRobot[] parents = world.getObjectInfo().robotsArray();
+        final Random random = new Random(1);
+
+        final List<InternalBullet> survivors = new ArrayList<>();
+        while (survivors.size() < BULLETS) {
+            final int id = BenchmarkWorlds.spawnBullet(world, parents, random);
+            final InternalBullet bullet = world.getObjectInfo().getBulletByID(id);
+            if (bullet == null) {
+                // Spawned on top of something
+                continue;
+            }
+            final MapLocation start = bullet.getLocation();
+            bullet.updateBullet();
+            if (world.getObjectInfo().existsBullet(id)) {
+                bullet.setLocation(start);
+                survivors.add(bullet);
+            }
+        }
+        bullets = survivors.toArray(new InternalBullet[BULLETS]);
+        starts = new MapLocation[BULLETS];
+        for (int i = 0; i < BULLETS; i++) {
+            starts[i] = bullets[i].getLocation();
+        }
+
+        if (sweep) {
+            world.getObjectInfo().getBulletSweep().begin();
+        }
+    }
+
+    @Benchmark
+    public void updateBullet() {
+        for (int i = 0; i < BULLETS; i++) {
+            bullets[i].updateBullet();
+            bullets[i].setLocation(starts[i]);
+        }
+    }
+}
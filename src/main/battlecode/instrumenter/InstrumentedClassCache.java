@@ -0,0 +1,499 @@
+package battlecode.instrumenter;
+
+import battlecode.server.Config;
+import battlecode.server.Server;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * A process-wide cache of instrumented class files, shared by every
+ * TeamClassLoaderFactory (and so by every game) in the JVM.
+ *
+ * Instrumenting a class depends on more than the class itself: the
+ * instrumenter asks the team's container which other classes it has, and
+ * reads their hierarchies. So entries are keyed not only by the class and a
+ * hash of its bytes, but also by a hash of the team classes it could depend
+ * on, the debug-methods flag, and the version of the instrumenter itself.
+ * For a team's own classes that's the whole team container, so changing
+ * anything in a bot instruments its classes again; for instrumented.*
+ * copies of system classes it's only the team classes that shadow system
+ * classes, so those are shared by every team (see
+ * TeamClassLoaderFactory.getShadowHash()).
+ *
+ * The cache is bounded by the total size of the class files it holds, and
+ * evicts the least recently used first. It's safe to use from many games at
+ * once.
+ *
+ * It can also keep every class it instruments in a directory, so that a new
+ * JVM can define classes straight from the files an earlier one wrote rather
+ * than instrumenting them again. Each file is named by a hash of its whole
+ * key, so files from different instrumenter versions can share a directory,
+ * as can several JVMs at once. Each file starts with a digest of its name
+ * and contents, and a file that doesn't match its digest is instrumented
+ * again rather than defined.
+ */
+public final class InstrumentedClassCache {
+
+    /**
+     * Identifies the instrumenter that produced a class file: a hash of
+     * every file in battlecode.instrumenter and its subpackages (the
+     * instrumenter, its resources, and the classes instrumented code calls),
+     * and of the ASM classes that read and write class files.
+     */
+    public static final String INSTRUMENTER_VERSION = hashInstrumenter();
+
+    /**
+     * The length of the digest each file on disk starts with.
+     */
+    private static final int DIGEST_LENGTH = 32;
+
+    private static InstrumentedClassCache shared;
+
+    /**
+     * @return the cache shared by every game in this JVM, sized by
+     *         bc.engine.class-cache-mb and kept in bc.engine.class-cache-dir
+     *         (if set) when it's first used
+     */
+    public static synchronized InstrumentedClassCache getShared() {
+        if (shared == null) {
+            final Config options = Config.getGlobalConfig();
+            final String directory = options.get("bc.engine.class-cache-dir");
+            shared = new InstrumentedClassCache(
+                    (long) options.getInt("bc.engine.class-cache-mb") << 20,
+                    directory == null || directory.isEmpty() ? null : Paths.get(directory)
+            );
+        }
+        return shared;
+    }
+
+    /**
+     * The key of a cached class.
+     */
+    public static final class Key {
+        private final String className;
+        private final String sourceHash;
+        private final String teamHash;
+        private final boolean debugMethodsEnabled;
+        private final String instrumenterVersion;
+
+        /**
+         * @param className the binary name of the class
+         * @param sourceBytes the class file before instrumentation
+         * @param teamHash a hash of everything in the team's container that
+         *                 instrumenting the class could depend on
+         * @param debugMethodsEnabled whether debug methods were kept
+         */
+        public Key(String className, byte[] sourceBytes, String teamHash, boolean debugMethodsEnabled) {
+            this.className = className;
+            this.sourceHash = hash(sourceBytes);
+            this.teamHash = teamHash;
+            this.debugMethodsEnabled = debugMethodsEnabled;
+            this.instrumenterVersion = INSTRUMENTER_VERSION;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getSourceHash() {
+            return sourceHash;
+        }
+
+        public String getTeamHash() {
+            return teamHash;
+        }
+
+        public boolean isDebugMethodsEnabled() {
+            return debugMethodsEnabled;
+        }
+
+        public String getInstrumenterVersion() {
+            return instrumenterVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return debugMethodsEnabled == key.debugMethodsEnabled
+                    && className.equals(key.className)
+                    && sourceHash.equals(key.sourceHash)
+                    && teamHash.equals(key.teamHash)
+                    && instrumenterVersion.equals(key.instrumenterVersion);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = className.hashCode();
+            result = 31 * result + sourceHash.hashCode();
+            result = 31 * result + teamHash.hashCode();
+            result = 31 * result + (debugMethodsEnabled ? 1 : 0);
+            return result;
+        }
+
+        /**
+         * @return the name of the file this class is kept in on disk
+         */
+        String getFileName() {
+            final MessageDigest digest = newDigest();
+            for (String field : new String[]{className, sourceHash, teamHash, instrumenterVersion}) {
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            digest.update((byte) (debugMethodsEnabled ? 1 : 0));
+            return toHex(digest) + ".class";
+        }
+
+        @Override
+        public String toString() {
+            return className + "@" + sourceHash.substring(0, 12);
+        }
+    }
+
+    /**
+     * The most bytes of class files to hold at once.
+     */
+    private final long maxBytes;
+
+    /**
+     * Where to keep class files on disk, or null to keep them only in memory.
+     */
+    private final Path directory;
+
+    /**
+     * Entries in access order, least recently used first.
+     */
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long bytes;
+    private long hits;
+    private long diskHits;
+    private long misses;
+
+    /**
+     * Whether we've already complained about failing to write to disk.
+     */
+    private boolean warnedAboutDisk;
+
+    /**
+     * @param maxBytes the most bytes of class files to hold; 0 to cache nothing
+     */
+    public InstrumentedClassCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * @param maxBytes the most bytes of class files to hold in memory
+     * @param directory where to keep class files on disk, or null to keep
+     *                  them only in memory; created if it doesn't exist
+     */
+    public InstrumentedClassCache(long maxBytes, Path directory) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                Server.warn("Can't create class cache directory " + directory + ", not caching classes on disk: " + e);
+                directory = null;
+            }
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * @param key the class to look up
+     * @return the instrumented class file, or null if it isn't cached
+     */
+    public byte[] get(Key key) {
+        synchronized (this) {
+            final byte[] classBytes = entries.get(key);
+            if (classBytes != null) {
+                hits++;
+                return classBytes;
+            }
+        }
+
+        final byte[] classBytes = directory != null ? readFromDisk(key) : null;
+
+        synchronized (this) {
+            if (classBytes != null) {
+                hits++;
+                diskHits++;
+                putInMemory(key, classBytes);
+            } else {
+                misses++;
+            }
+        }
+        return classBytes;
+    }
+
+    /**
+     * Cache an instrumented class file, evicting the least recently used
+     * entries to make room. The bytes must not be modified afterwards.
+     *
+     * @param key the class to store
+     * @param classBytes the instrumented class file
+     */
+    public void put(Key key, byte[] classBytes) {
+        synchronized (this) {
+            putInMemory(key, classBytes);
+        }
+        if (directory != null) {
+            writeToDisk(key, classBytes);
+        }
+    }
+
+    private void putInMemory(Key key, byte[] classBytes) {
+        if (classBytes.length > maxBytes) {
+            return;
+        }
+        final byte[] old = entries.put(key, classBytes);
+        if (old != null) {
+            bytes -= old.length;
+        }
+        bytes += classBytes.length;
+
+        final Iterator<Map.Entry<Key, byte[]>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @return the number of classes cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total size of the cached class files
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return how many lookups have found a class
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return how many of the hits were read from disk
+     */
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * @return how many lookups have missed
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Forget every class cached in memory. Classes on disk are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private byte[] readFromDisk(Key key) {
+        final Path file = directory.resolve(key.getFileName());
+        final byte[] contents;
+        try {
+            contents = Files.readAllBytes(file);
+        } catch (IOException e) {
+            // Usually because it isn't there; either way, instrument it again
+            return null;
+        }
+
+        final byte[] classBytes = contents.length < DIGEST_LENGTH ? null
+                : Arrays.copyOfRange(contents, DIGEST_LENGTH, contents.length);
+        if (classBytes == null || !MessageDigest.isEqual(
+                Arrays.copyOf(contents, DIGEST_LENGTH), fileDigest(key, classBytes))) {
+            // Not what we wrote, so it mustn't reach the sandbox uninstrumented;
+            // delete it so that a good copy can take its place
+            Server.warn("Ignoring corrupt cached class " + file + " for " + key.getClassName());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // It'll just be ignored again next time
+            }
+            return null;
+        }
+        return classBytes;
+    }
+
+    /**
+     * Write a class file under a temporary name and then move it into place,
+     * so that nobody ever reads half a class.
+     */
+    private void writeToDisk(Key key, byte[] classBytes) {
+        final Path target = directory.resolve(key.getFileName());
+        Path temp = null;
+        try {
+            if (Files.exists(target)) {
+                return;
+            }
+            temp = Files.createTempFile(directory, "instrumenting", ".tmp");
+            final byte[] contents = Arrays.copyOf(fileDigest(key, classBytes), DIGEST_LENGTH + classBytes.length);
+            System.arraycopy(classBytes, 0, contents, DIGEST_LENGTH, classBytes.length);
+            Files.write(temp, contents);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            synchronized (this) {
+                if (!warnedAboutDisk) {
+                    warnedAboutDisk = true;
+                    Server.warn("Can't write to class cache directory " + directory + ": " + e);
+                }
+            }
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Nothing more to do
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the digest a class's file on disk starts with
+     */
+    private static byte[] fileDigest(Key key, byte[] classBytes) {
+        final MessageDigest digest = newDigest();
+        digest.update(key.getFileName().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(classBytes);
+        return digest.digest();
+    }
+
+    /**
+     * @return a new SHA-256 digest
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * @return the digest's value as a hex string
+     */
+    static String toHex(MessageDigest digest) {
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static String hash(byte[] data) {
+        final MessageDigest digest = newDigest();
+        digest.update(data);
+        return toHex(digest);
+    }
+
+    private static String hashInstrumenter() {
+        final MessageDigest digest = newDigest();
+        try {
+            hashFiles(digest, InstrumentedClassCache.class, "battlecode/instrumenter/");
+            hashFiles(digest, ClassReader.class, "org/objectweb/asm/");
+            hashFiles(digest, ClassNode.class, "org/objectweb/asm/tree/");
+        } catch (IOException | URISyntaxException e) {
+            // Never match anything on disk, rather than risk defining stale classes
+            Server.warn("Can't read the instrumenter's classes, not reusing classes on disk: " + e);
+            return "unknown-" + UUID.randomUUID();
+        }
+        return toHex(digest);
+    }
+
+    /**
+     * Hash the name and contents of every file under a directory of the
+     * jar or directory a class was loaded from, in order of name.
+     *
+     * @param anchor a class loaded from the jar or directory
+     * @param prefix the directory to hash, e.g. "battlecode/instrumenter/"
+     */
+    private static void hashFiles(MessageDigest digest, Class<?> anchor, String prefix)
+            throws IOException, URISyntaxException {
+        final CodeSource source = anchor.getProtectionDomain().getCodeSource();
+        if (source == null) {
+            throw new IOException("Don't know where " + anchor.getName() + " was loaded from");
+        }
+        final Path location = Paths.get(source.getLocation().toURI());
+
+        final SortedMap<String, byte[]> files = new TreeMap<>();
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> paths = Files.walk(location.resolve(prefix))) {
+                final Iterator<Path> it = paths.filter(Files::isRegularFile).iterator();
+                while (it.hasNext()) {
+                    final Path path = it.next();
+                    files.put(location.relativize(path).toString().replace(File.separatorChar, '/'),
+                            Files.readAllBytes(path));
+                }
+            }
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                final Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            files.put(entry.getName(), IOUtils.toByteArray(in));
+                        }
+                    }
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IOException("Nothing in " + prefix + " in " + location);
+        }
+
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            digest.update(file.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(file.getValue());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package battlecode.instrumenter;
+
+/**
+ * A TurnHandoff built on wait() / notifyAll() on a shared monitor.
+ *
+ * This is how SandboxedRobotPlayer has always switched turns. Every switch
+ * blocks one thread and wakes the other through the monitor.
+ */
+public final class MonitorHandoff implements TurnHandoff {
+
+    private final Object notifier = new Object();
+
+    @Override
+    public void start(Thread robotThread) throws InterruptedException {
+        synchronized (notifier) {
+            // The robot pauses as soon as it's initialized, so this returns quickly
+            robotThread.start();
+
+            notifier.wait();
+        }
+    }
+
+    @Override
+    public void runRobot() throws InterruptedException {
+        synchronized (notifier) {
+            // Unpause the robot's thread
+            notifier.notifyAll();
+
+            // Pause this thread until the robot ends turn or dies
+            notifier.wait();
+        }
+    }
+
+    @Override
+    public void yieldToEngine() throws InterruptedException {
+        synchronized (notifier) {
+            // Unpause the main thread, which is waiting on the player thread
+            notifier.notifyAll();
+
+            // Wait for the main thread to restart us
+            notifier.wait();
+        }
+    }
+
+    @Override
+    public void finish() {
+        synchronized (notifier) {
+            notifier.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package battlecode.instrumenter;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A TurnHandoff built on LockSupport.park() / unpark() and a volatile flag
+ * saying whose turn it is.
+ *
+ * A thread waiting for its turn first spins on the flag for a while, since
+ * robot turns are often short enough that the other side hands control back
+ * before it would be worth parking. Only then does it park, and the other
+ * side only pays for an unpark() if it actually did.
+ *
+ * Unlike MonitorHandoff this never holds a monitor while waiting, so a
+ * virtual thread that yields here unmounts from its carrier instead of
+ * pinning it.
+ */
+public final class ParkingHandoff implements TurnHandoff {
+
+    /**
+     * How many times to check the flag before parking, by default.
+     * With a single CPU the other side can't make progress while we spin,
+     * so don't spin at all (as java.util.concurrent does).
+     */
+    public static final int DEFAULT_SPINS =
+            Runtime.getRuntime().availableProcessors() > 1 ? 2000 : 0;
+
+    private final int spins;
+
+    /**
+     * True while the robot may run; written only by the side giving up its turn.
+     */
+    private volatile boolean robotTurn;
+
+    /**
+     * Set by a thread just before it parks, so the other side knows to unpark it.
+     */
+    private volatile boolean engineParked;
+    private volatile boolean robotParked;
+
+    private volatile Thread engineThread;
+    private Thread robotThread;
+
+    /**
+     * @param spins how many times to check for our turn before parking;
+     *              0 to park straight away
+     */
+    public ParkingHandoff(int spins) {
+        this.spins = spins;
+    }
+
+    @Override
+    public void start(Thread robotThread) throws InterruptedException {
+        this.robotThread = robotThread;
+        this.engineThread = Thread.currentThread();
+        this.robotTurn = true;
+        robotThread.start();
+        awaitEngineTurn();
+    }
+
+    @Override
+    public void runRobot() throws InterruptedException {
+        engineThread = Thread.currentThread();
+        robotTurn = true;
+        if (robotParked) {
+            LockSupport.unpark(robotThread);
+        }
+        awaitEngineTurn();
+    }
+
+    @Override
+    public void yieldToEngine() throws InterruptedException {
+        giveEngineTurn();
+        for (int i = 0; i < spins; i++) {
+            if (robotTurn) {
+                return;
+            }
+        }
+        // Announce that we're parking before the last check, so that a
+        // handoff can't slip in between the check and park() unnoticed.
+        robotParked = true;
+        try {
+            while (!robotTurn) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            robotParked = false;
+        }
+    }
+
+    @Override
+    public void finish() {
+        giveEngineTurn();
+    }
+
+    private void giveEngineTurn() {
+        robotTurn = false;
+        if (engineParked) {
+            LockSupport.unpark(engineThread);
+        }
+    }
+
+    private void awaitEngineTurn() throws InterruptedException {
+        for (int i = 0; i < spins; i++) {
+            if (!robotTurn) {
+                return;
+            }
+        }
+        engineParked = true;
+        try {
+            while (robotTurn) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            engineParked = false;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package battlecode.instrumenter;
+
+import battlecode.server.Config;
+import battlecode.server.Server;
+
+import java.lang.reflect.Method;
+
+/**
+ * The ways a SandboxedRobotPlayer's code can be run, selected with the
+ * bc.engine.robot-threads property.
+ *
+ * Either way each robot keeps its own call stack between turns, so it has
+ * to live on its own thread; what changes is what kind of thread that is,
+ * and how turns are handed back and forth.
+ */
+public enum RobotExecution {
+
+    /**
+     * A platform thread per robot, switching turns through a monitor, or
+     * through a ParkingHandoff if bc.engine.robot-handoff is "spin-park".
+     */
+    PLATFORM {
+        @Override
+        public Thread newThread(Runnable body, String name) {
+            return new Thread(body, name);
+        }
+
+        @Override
+        public TurnHandoff newHandoff(Config config) {
+            if (isSpinPark(config)) {
+                return new ParkingHandoff(ParkingHandoff.DEFAULT_SPINS);
+            }
+            return new MonitorHandoff();
+        }
+    },
+
+    /**
+     * A virtual thread per robot, switching turns by parking, so a paused
+     * robot doesn't hold on to a kernel thread. Virtual threads need Java 21;
+     * on older JVMs this falls back to platform threads that park.
+     */
+    VIRTUAL {
+        @Override
+        public Thread newThread(Runnable body, String name) {
+            if (VirtualThreads.AVAILABLE) {
+                return VirtualThreads.newThread(body, name);
+            }
+            return new Thread(body, name);
+        }
+
+        @Override
+        public TurnHandoff newHandoff(Config config) {
+            // Waiting on a monitor would pin the carrier, so always park;
+            // only spin first if asked to, since spinning holds the carrier too.
+            return new ParkingHandoff(isSpinPark(config) ? ParkingHandoff.DEFAULT_SPINS : 0);
+        }
+    };
+
+    /**
+     * Create a thread to run a robot on; the thread is not started.
+     *
+     * @param body what the thread should run
+     * @param name the name of the thread
+     * @return the new thread
+     */
+    public abstract Thread newThread(Runnable body, String name);
+
+    /**
+     * @param config the configuration to read bc.engine.robot-handoff from
+     * @return a new handoff to switch turns between the engine and a robot
+     */
+    public abstract TurnHandoff newHandoff(Config config);
+
+    /**
+     * @param config the configuration to read bc.engine.robot-threads from
+     * @return the execution backend the configuration asks for
+     */
+    public static RobotExecution fromConfig(Config config) {
+        final String name = config.get("bc.engine.robot-threads");
+        if (name == null || name.equals("platform")) {
+            return PLATFORM;
+        } else if (name.equals("virtual")) {
+            if (!VirtualThreads.AVAILABLE && !VirtualThreads.warned) {
+                VirtualThreads.warned = true;
+                Server.warn("bc.engine.robot-threads=virtual needs Java 21 or later; " +
+                        "running robots on platform threads instead.");
+            }
+            return VIRTUAL;
+        } else {
+            throw new IllegalArgumentException("Unknown robot thread type: " + name);
+        }
+    }
+
+    private static boolean isSpinPark(Config config) {
+        final String handoff = config.get("bc.engine.robot-handoff");
+        if (handoff == null || handoff.equals("monitor")) {
+            return false;
+        } else if (handoff.equals("spin-park")) {
+            return true;
+        } else {
+            throw new IllegalArgumentException("Unknown robot handoff type: " + handoff);
+        }
+    }
+
+    /**
+     * Virtual threads, found reflectively since we build against Java 8.
+     */
+    private static final class VirtualThreads {
+        static final boolean AVAILABLE;
+        static boolean warned;
+
+        private static final Method OF_VIRTUAL;
+        private static final Method NAME;
+        private static final Method UNSTARTED;
+
+        static {
+            Method ofVirtual = null;
+            Method name = null;
+            Method unstarted = null;
+            try {
+                final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builder.getMethod("name", String.class);
+                unstarted = builder.getMethod("unstarted", Runnable.class);
+            } catch (ReflectiveOperationException e) {
+                ofVirtual = null;
+            }
+            OF_VIRTUAL = ofVirtual;
+            NAME = name;
+            UNSTARTED = unstarted;
+            AVAILABLE = ofVirtual != null;
+        }
+
+        static Thread newThread(Runnable body, String name) {
+            try {
+                final Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+                return (Thread) UNSTARTED.invoke(builder, body);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("Couldn't create virtual thread", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package battlecode.instrumenter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Sandboxes for a team's robots, set up ahead of time so that spawning a
+ * robot doesn't have to wait for one.
+ *
+ * Setting up a SandboxedRobotPlayer means creating a classloader, loading
+ * RobotMonitor and System into it, and starting a thread and waiting for it
+ * to park. That adds up when many robots spawn in the same round. So the
+ * pool keeps a few sandboxes that have already done all of it, and are only
+ * waiting to be bound to a robot, and tops itself up on a background thread
+ * when asked to (between rounds).
+ *
+ * An unbound sandbox hasn't run any player code or been told its seed, so a
+ * robot behaves exactly the same whether its sandbox came from the pool or
+ * was set up on the spot; the pool can't change a match's outcome.
+ */
+public final class SandboxPool {
+
+    /**
+     * The team (package) the sandboxes are for.
+     */
+    private final String teamName;
+
+    /**
+     * Creates the sandboxes' classloaders.
+     */
+    private final TeamClassLoaderFactory factory;
+
+    /**
+     * The most sandboxes to keep ready.
+     */
+    private final int size;
+
+    /**
+     * Sandboxes waiting to be bound to a robot.
+     */
+    private final ArrayDeque<SandboxedRobotPlayer> ready = new ArrayDeque<>();
+
+    /**
+     * Runs refills; created when first needed.
+     */
+    private ExecutorService refiller;
+
+    /**
+     * Whether a refill is queued or running.
+     */
+    private boolean refilling;
+
+    /**
+     * Whether setting up a sandbox has failed. If it has, we stop trying,
+     * and let take() set them up (and report the problem) as robots spawn.
+     */
+    private boolean failed;
+
+    private boolean closed;
+
+    /**
+     * @param teamName the team (package) to set up sandboxes for
+     * @param factory creates the sandboxes' classloaders
+     * @param size the most sandboxes to keep ready; 0 to set each one up
+     *             only when it's needed
+     */
+    public SandboxPool(String teamName, TeamClassLoaderFactory factory, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid sandbox pool size: " + size);
+        }
+        this.teamName = teamName;
+        this.factory = factory;
+        this.size = size;
+    }
+
+    /**
+     * Get a sandbox to bind to a new robot: one from the pool if there are
+     * any ready, or a new one otherwise.
+     *
+     * @return an unbound sandbox
+     * @throws InstrumentationException if the player doesn't work for some reason
+     * @throws RuntimeException if our code fails for some reason
+     */
+    public SandboxedRobotPlayer take() throws InstrumentationException {
+        // If the team turned out to have errors after we set these up, a new
+        // sandbox will fail in the usual way
+        if (!factory.getError()) {
+            synchronized (this) {
+                final SandboxedRobotPlayer sandbox = ready.poll();
+                if (sandbox != null) {
+                    return sandbox;
+                }
+            }
+        }
+        return new SandboxedRobotPlayer(teamName, factory.createLoader());
+    }
+
+    /**
+     * Top the pool up on a background thread, if it isn't full already.
+     * Returns immediately.
+     */
+    public synchronized void refill() {
+        if (closed || failed || refilling || ready.size() >= size) {
+            return;
+        }
+        if (refiller == null) {
+            refiller = Executors.newSingleThreadExecutor(body -> {
+                final Thread thread = new Thread(body, teamName + " sandbox pool");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        refilling = true;
+        refiller.execute(this::fill);
+    }
+
+    /**
+     * Set up sandboxes until the pool is full. Runs on the refill thread.
+     */
+    private void fill() {
+        while (true) {
+            synchronized (this) {
+                if (closed || ready.size() >= size) {
+                    refilling = false;
+                    return;
+                }
+            }
+
+            final SandboxedRobotPlayer sandbox;
+            try {
+                sandbox = new SandboxedRobotPlayer(teamName, factory.createLoader());
+            } catch (RuntimeException e) {
+                // Including InstrumentationException
+                synchronized (this) {
+                    failed = true;
+                    refilling = false;
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (!closed) {
+                    ready.add(sandbox);
+                    continue;
+                }
+                refilling = false;
+            }
+            // Closed while we were setting it up
+            sandbox.terminate();
+            return;
+        }
+    }
+
+    /**
+     * @return how many sandboxes are ready to be taken
+     */
+    public synchronized int getReady() {
+        return ready.size();
+    }
+
+    /**
+     * Stop refilling, and terminate every sandbox that's still ready.
+     * Sandboxes that have been taken are unaffected.
+     */
+    public void close() {
+        final List<SandboxedRobotPlayer> unused;
+        synchronized (this) {
+            closed = true;
+            unused = new ArrayList<>(ready);
+            ready.clear();
+            if (refiller != null) {
+                refiller.shutdown();
+            }
+        }
+        for (SandboxedRobotPlayer sandbox : unused) {
+            sandbox.terminate();
+        }
+    }
+}
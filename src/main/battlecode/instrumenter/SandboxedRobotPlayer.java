@@ -32,6 +32,10 @@ import static battlecode.instrumenter.InstrumentationException.Type.MISSING;
  * into SandboxedRobotPlayer. This is still "single-threaded" use, since
  * there's only one thread operating at a time.
  *
+ * A sandbox can also be set up before there's a robot for it (see
+ * SandboxPool), and bound to one later. Until it's bound it hasn't run any
+ * player code, or even been told its seed.
+ *
  * @author james
  */
 public class SandboxedRobotPlayer {
@@ -39,20 +43,32 @@ public class SandboxedRobotPlayer {
     public static final String PLAYER_CLASS_NAME = "RobotPlayer";
 
     /**
-     * The controller for the robot we're controlling.
+     * The name of the team (package) the player is from.
+     */
+    private final String teamName;
+
+    /**
+     * The controller for the robot we're controlling, or null if we
+     * haven't been bound to a robot yet.
      */
-    private final RobotController robotController;
+    private RobotController robotController;
 
     /**
      * The seed to use in all "random" operations.
      */
-    private final int seed;
+    private int seed;
 
     /**
      * Whether the robot player is terminated.
      */
     private boolean terminated;
 
+    /**
+     * Whether terminate() has been called. The player may not have
+     * terminated yet, if it was killed during its own turn.
+     */
+    private boolean killed;
+
     /**
      * The classloader used for this player.
      */
@@ -64,24 +80,19 @@ public class SandboxedRobotPlayer {
     private final Thread mainThread;
 
     /**
-     * The cached 'killRobot' method of the monitor.
+     * Direct calls into the player's RobotMonitor.
      */
-    private final Method killMethod;
+    private final MonitorBridge monitorBridge;
 
     /**
-     * The cached 'setBytecodeLimit' method of the monitor.
+     * Used to trade off control between threads.
      */
-    private final Method setBytecodeLimitMethod;
+    private final TurnHandoff handoff;
 
     /**
-     * The cached 'getBytecodeNum' method of the monitor.
+     * The player's System.setSystemOut, called when we're bound to a robot.
      */
-    private final Method getBytecodeNumMethod;
-
-    /**
-     * The object used to trade of control between threads.
-     */
-    private final Object notifier;
+    private final Method setSystemOutMethod;
 
     /**
      * Whether or not we are currently running, i.e. in "step".
@@ -111,10 +122,28 @@ public class SandboxedRobotPlayer {
                                 TeamClassLoaderFactory.Loader loader,
                                 OutputStream robotOut)
             throws InstrumentationException {
-        this.robotController = robotController;
-        this.seed = seed;
+        this(teamName, loader);
+        bind(robotController, seed, robotOut);
+    }
+
+    /**
+     * Create a sandbox that isn't bound to a robot yet. Its classes are
+     * loaded and its thread is started and waiting, so bind() has little
+     * left to do.
+     *
+     * @param teamName          the name of the team to create a player for
+     * @param loader            the classloader to load classes with
+     * @throws InstrumentationException if the player doesn't work for some reason
+     * @throws RuntimeException if our code fails for some reason
+     */
+    public SandboxedRobotPlayer(String teamName,
+                                TeamClassLoaderFactory.Loader loader)
+            throws InstrumentationException {
+        this.teamName = teamName;
         this.terminated = false;
-        this.notifier = new Object();
+
+        final RobotExecution execution = RobotExecution.fromConfig(Config.getGlobalConfig());
+        this.handoff = execution.newHandoff(Config.getGlobalConfig());
 
         // Create classloader sandbox
         individualLoader = loader;
@@ -129,9 +158,9 @@ public class SandboxedRobotPlayer {
             Class<?> monitor = individualLoader
                     .loadClass("battlecode.instrumenter.inject.RobotMonitor");
 
-            killMethod = monitor.getMethod("killRobot");
-            setBytecodeLimitMethod = monitor.getMethod("setBytecodeLimit", int.class);
-            getBytecodeNumMethod = monitor.getMethod("getBytecodeNum");
+            monitorBridge = (MonitorBridge) individualLoader
+                    .loadClass("battlecode.instrumenter.inject.RobotMonitor$Bridge")
+                    .newInstance();
             pauseMethod = monitor.getMethod("pause");
             initMethod = monitor.getMethod("init", Pauser.class, Killer.class, int.class);
 
@@ -140,8 +169,7 @@ public class SandboxedRobotPlayer {
             Class<?> system = individualLoader
                     .loadClass("battlecode.instrumenter.inject.System");
 
-            this.systemOut = getOut(robotOut);
-            system.getMethod("setSystemOut", PrintStream.class).invoke(null, this.systemOut);
+            setSystemOutMethod = system.getMethod("setSystemOut", PrintStream.class);
 
         } catch (ReflectiveOperationException e) {
             throw new RuntimeException("Couldn't load RobotMonitor", e);
@@ -150,13 +178,8 @@ public class SandboxedRobotPlayer {
         // Used to pause the RobotPlayer main thread.
         final Pauser pauser = () -> {
             try {
-                synchronized (notifier) {
-                    // Unpause the main thread, which is waiting on the player thread
-                    notifier.notifyAll();
-
-                    // Wait for the main thread to restart us
-                    notifier.wait();
-                }
+                // Unpause the main thread, and wait for it to restart us
+                handoff.yieldToEngine();
             } catch (InterruptedException e) {
                 ErrorReporter.report("RobotPlayer thread interrupted while paused");
                 throw new RobotDeathException();
@@ -170,8 +193,14 @@ public class SandboxedRobotPlayer {
             throw new RobotDeathException();
         };
 
-        mainThread = new Thread(() -> {
+        mainThread = execution.newThread(() -> {
             try {
+                // Wait until we're bound to a robot
+                handoff.yieldToEngine();
+                if (this.robotController == null) {
+                    // Terminated without ever being bound
+                    return;
+                }
                 // Init RobotMonitor
                 initMethod.invoke(null, pauser, killer, this.seed);
                 // Pause immediately
@@ -197,28 +226,55 @@ public class SandboxedRobotPlayer {
                         "Make sure the team name is spelled correctly.\n" +
                         "Make sure the bc.game.team-a.url and bc.game.team-b.url are configured correctly." , false);
 
-            } catch (final RobotDeathException e) {
+            } catch (final RobotDeathException | InterruptedException e) {
                 return;
             } finally {
                 // Ensure that we know we're terminated.
                 this.terminated = true;
 
                 // Unpause the main thread, which is waiting on the player thread.
-                synchronized (notifier) {
-                    notifier.notifyAll();
-                }
+                handoff.finish();
             }
-        }, teamName + "." + PLAYER_CLASS_NAME + " #"+ robotController.getID());
+        }, teamName + "." + PLAYER_CLASS_NAME + " (unbound)");
 
 
         // Wait for thread to tell us it's ready
         try {
-            synchronized (notifier) {
-                // Doesn't do anything besides initialize the sandbox, since thread pauses immediately
-                mainThread.start();
+            // Doesn't do anything, since the thread waits to be bound
+            handoff.start(mainThread);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Unexpected interruption initializing sandbox", e);
+        }
+    }
 
-                notifier.wait();
-            }
+    /**
+     * Bind the sandbox to the robot it will run, and initialize its
+     * RobotMonitor. The player's own code doesn't run until the first step().
+     *
+     * @param robotController   the robot we're loading a player for
+     * @param seed              the seed the robot should use for random operations
+     * @param robotOut          the output to write robot output to (with headers)
+     * @throws IllegalStateException if the sandbox is already bound, or terminated
+     * @throws RuntimeException if our code fails for some reason
+     */
+    public void bind(RobotController robotController, int seed, OutputStream robotOut) {
+        if (this.robotController != null || terminated) {
+            throw new IllegalStateException("Sandbox is already bound or terminated");
+        }
+        this.robotController = robotController;
+        this.seed = seed;
+
+        this.systemOut = getOut(robotOut);
+        try {
+            setSystemOutMethod.invoke(null, this.systemOut);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Couldn't set System.out", e);
+        }
+        mainThread.setName(teamName + "." + PLAYER_CLASS_NAME + " #" + robotController.getID());
+
+        try {
+            // Initializes the RobotMonitor; the thread pauses again right after
+            handoff.runRobot();
         } catch (InterruptedException e) {
             throw new RuntimeException("Unexpected interruption initializing sandbox", e);
         }
@@ -265,11 +321,7 @@ public class SandboxedRobotPlayer {
      * @param limit the new limit
      */
     public void setBytecodeLimit(int limit) {
-        try {
-            setBytecodeLimitMethod.invoke(null, limit);
-        } catch (ReflectiveOperationException e) {
-            ErrorReporter.report(e, true);
-        }
+        monitorBridge.setBytecodeLimit(limit);
     }
 
     /**
@@ -284,19 +336,14 @@ public class SandboxedRobotPlayer {
         updateOut();
 
         try {
-            synchronized (notifier) {
-                // We are now running the robot!
-                running = true;
-
-                // Unpause the robot's thread
-                notifier.notifyAll();
+            // We are now running the robot!
+            running = true;
 
-                // Pause this thread until the robot ends turn or dies
-                notifier.wait();
+            // Unpause the robot's thread, and wait until it ends turn or dies
+            handoff.runRobot();
 
-                // Main thread reactivated: no longer running.
-                running = false;
-            }
+            // Main thread reactivated: no longer running.
+            running = false;
         } catch (InterruptedException e) {
             throw new RuntimeException("Unexpected interruption", e);
         }
@@ -305,8 +352,11 @@ public class SandboxedRobotPlayer {
     /**
      * Kills a RobotPlayer control thread immediately.
      * Does nothing if the player is already killed.
+     * Also stops a sandbox that was never bound to a robot.
      */
     public void terminate() {
+        killed = true;
+
         if (terminated) {
             return;
         }
@@ -324,20 +374,12 @@ public class SandboxedRobotPlayer {
             // execute zero-cost actions after "dying", like (maybe?) returning
             // from run(), which could issue nonsensical warnings. However, it's
             // the best solution I can think of.
-            try {
-                killMethod.invoke(null);
-            } catch (ReflectiveOperationException e) {
-                ErrorReporter.report(e, true);
-            }
+            monitorBridge.killRobot();
         } else {
             // We're not running.
             // Set the "shouldDie" flag and then step to finish the job.
 
-            try {
-                killMethod.invoke(null);
-            } catch (ReflectiveOperationException e) {
-                ErrorReporter.report(e, true);
-            }
+            monitorBridge.killRobot();
 
             // Step to make the robot die.
             step();
@@ -348,12 +390,7 @@ public class SandboxedRobotPlayer {
      * @return the bytecodes used by the player during the most recent step() call.
      */
     public int getBytecodesUsed() {
-        try {
-            return (Integer) getBytecodeNumMethod.invoke(null);
-        } catch (ReflectiveOperationException e) {
-            ErrorReporter.report(e, true);
-            return 0;
-        }
+        return monitorBridge.getBytecodeNum();
     }
 
     /**
@@ -363,6 +400,13 @@ public class SandboxedRobotPlayer {
         return terminated;
     }
 
+    /**
+     * Whether terminate() has been called on this player.
+     */
+    public boolean getKilled() {
+        return killed;
+    }
+
     /**
      * Injected into RobotMonitor; used to synchronize it and the main thread.
      */
@@ -383,6 +427,27 @@ public class SandboxedRobotPlayer {
         void kill();
     }
 
+    /**
+     * Implemented inside the sandbox by RobotMonitor.Bridge; used to control
+     * the player's RobotMonitor every turn without reflection.
+     */
+    public interface MonitorBridge {
+        /**
+         * Set the bytecode limit of the robot.
+         */
+        void setBytecodeLimit(int limit);
+
+        /**
+         * @return the bytecode number that the robot is currently on
+         */
+        int getBytecodeNum();
+
+        /**
+         * Kill the robot the next time it runs.
+         */
+        void killRobot();
+    }
+
     public PrintStream getOut(OutputStream wrapped) {
         Config options = Config.getGlobalConfig();
 
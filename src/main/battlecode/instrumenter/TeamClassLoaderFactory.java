@@ -1,21 +1,34 @@
 package battlecode.instrumenter;
 
+import battlecode.instrumenter.bytecode.ClassHierarchy;
 import battlecode.instrumenter.bytecode.ClassReferenceUtil;
 import battlecode.instrumenter.bytecode.InstrumentingClassVisitor;
 import battlecode.server.Config;
+import org.apache.commons.io.IOUtils;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static battlecode.instrumenter.InstrumentationException.Type.ILLEGAL;
 import static battlecode.instrumenter.InstrumentationException.Type.MISSING;
@@ -84,6 +97,7 @@ public final class TeamClassLoaderFactory {
             "battlecode.instrumenter.inject.InstrumentableFunctions",
             "battlecode.instrumenter.inject.System",
             "battlecode.instrumenter.inject.RobotMonitor",
+            "battlecode.instrumenter.inject.RobotMonitor$Bridge",
             "battlecode.common.Clock"
     )));
 
@@ -100,19 +114,46 @@ public final class TeamClassLoaderFactory {
      * The values are byte arrays, not Classes, because each instance of
      * InstrumentingClassLoader should define its own class, even if another
      * InstrumentingClassLoader has already loaded a class from the same class file.
+     *
+     * Concurrent, because preinstrument() fills it from many threads.
      */
     private final Map<String, byte[]> instrumentedClasses;
 
+    /**
+     * Instrumented classes shared with every other factory in the JVM,
+     * so that only the first game to load a class has to instrument it.
+     */
+    private final InstrumentedClassCache sharedCache;
+
+    /**
+     * The team's container.
+     */
+    private final URL teamURL;
+
+    /**
+     * Hashes of the team's container; computed when first needed, on
+     * whichever thread loads or preinstruments a class first.
+     * See getTeamHash() and getShadowHash().
+     */
+    private volatile String teamHash;
+    private volatile String shadowHash;
+
     /**
      * If this team has an error, don't bother trying to cache again.
+     * Set by the SandboxPool refill thread as well as the engine thread.
      */
-    private boolean hasError;
+    private volatile boolean hasError;
 
     /**
      * The ClassReferenceUtil used by this cache.
      */
     private final ClassReferenceUtil refUtil;
 
+    /**
+     * The class hierarchies instrumentation has needed so far.
+     */
+    private final ClassHierarchy hierarchy;
+
     /**
      * Create a cache for classes loaded from a URL (or local file).
      * The URL can point to a jar file or a directory containing class
@@ -123,6 +164,19 @@ public final class TeamClassLoaderFactory {
      * @param classURL the URL to load clases from
      */
     public TeamClassLoaderFactory(final String classURL) {
+        this(classURL, InstrumentedClassCache.getShared());
+    }
+
+    /**
+     * Create a cache for classes loaded from a URL (or local file), sharing
+     * instrumented classes through the given cache.
+     *
+     * @param classURL the URL to load clases from
+     * @param sharedCache the cache to share instrumented classes through
+     */
+    public TeamClassLoaderFactory(final String classURL, final InstrumentedClassCache sharedCache) {
+        this.sharedCache = sharedCache;
+
         URL url;
         try {
             url = getFilesystemURL(classURL);
@@ -131,8 +185,11 @@ public final class TeamClassLoaderFactory {
             this.hasError = true;
             this.instrumentedClasses = null;
             this.refUtil = null;
+            this.hierarchy = null;
+            this.teamURL = null;
             return;
         }
+        this.teamURL = url;
 
         this.teamResourceLookup = new URLClassLoader(
                 new URL[] { url }
@@ -147,9 +204,10 @@ public final class TeamClassLoaderFactory {
                 return findResource(name);
             }
         };
-        this.instrumentedClasses = new HashMap<>();
+        this.instrumentedClasses = new ConcurrentHashMap<>();
         this.hasError = false;
         this.refUtil = new ClassReferenceUtil(this);
+        this.hierarchy = new ClassHierarchy(this);
     }
 
     /**
@@ -185,6 +243,158 @@ public final class TeamClassLoaderFactory {
         this.instrumentedClasses.put(className, classBytes);
     }
 
+    /**
+     * Instrument every class in the team's container ahead of time, in
+     * parallel, so that robots don't stall mid-round instrumenting classes
+     * as they first load them.
+     *
+     * This doesn't change what happens in a match: a class that fails to
+     * instrument isn't cached, so the team still only fails if a robot
+     * actually loads it. But the failure can be reported before the match.
+     *
+     * @param pool the pool to instrument classes on
+     * @return the classes that failed to instrument, and why, by class name
+     */
+    public SortedMap<String, InstrumentationException> preinstrument(ForkJoinPool pool) {
+        final SortedMap<String, InstrumentationException> failures = new TreeMap<>();
+        if (hasError) {
+            return failures;
+        }
+
+        final SortedMap<String, byte[]> classFiles;
+        final String hash;
+        try {
+            classFiles = readTeamClassFiles();
+            hash = getTeamHash();
+        } catch (InstrumentationException e) {
+            failures.put(teamURL.toString(), e);
+            return failures;
+        }
+        final boolean debugMethodsEnabled = Config.getGlobalConfig().getBoolean("bc.engine.debug-methods");
+
+        // Instrumenting only uses a loader for its factory, so they can all share one
+        final Loader loader = createLoader();
+        final Map<String, ForkJoinTask<InstrumentationException>> tasks = new TreeMap<>();
+        for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+            final String resourceName = classFile.getKey();
+            final String name = resourceName.substring(0, resourceName.length() - 6).replace('/', '.');
+
+            // Only classes that loadClass() would instrument as team classes
+            if (name.startsWith("instrumented.") || alwaysRedefine.contains(name) || hasCached(name)) {
+                continue;
+            }
+
+            tasks.put(name, pool.submit(() -> {
+                try {
+                    assertAllowedPackage(name);
+                    setCached(name, loader.instrumentShared(name, classFile.getValue(), hash, true, debugMethodsEnabled));
+                    return null;
+                } catch (InstrumentationException e) {
+                    return e;
+                } catch (RuntimeException e) {
+                    return new InstrumentationException(ILLEGAL, "Couldn't instrument "+name, e);
+                }
+            }));
+        }
+
+        for (Map.Entry<String, ForkJoinTask<InstrumentationException>> task : tasks.entrySet()) {
+            final InstrumentationException failure = task.getValue().join();
+            if (failure != null) {
+                failures.put(task.getKey(), failure);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return a hash of every class file in the team's container; it
+     *         changes whenever any of the team's classes do
+     * @throws InstrumentationException if the container can't be read
+     */
+    public String getTeamHash() throws InstrumentationException {
+        if (teamHash == null) {
+            hashTeamClasses();
+        }
+        return teamHash;
+    }
+
+    /**
+     * Instrumenting a class from the system classpath only depends on the
+     * team through the team's classes that have the same names as system
+     * classes, which a well-behaved team doesn't have.
+     *
+     * @return a hash of the team's class files that shadow system classes
+     * @throws InstrumentationException if the container can't be read
+     */
+    public String getShadowHash() throws InstrumentationException {
+        if (shadowHash == null) {
+            hashTeamClasses();
+        }
+        return shadowHash;
+    }
+
+    private void hashTeamClasses() throws InstrumentationException {
+        final MessageDigest all = InstrumentedClassCache.newDigest();
+        final MessageDigest shadows = InstrumentedClassCache.newDigest();
+        for (Map.Entry<String, byte[]> classFile : readTeamClassFiles().entrySet()) {
+            final byte[] name = classFile.getKey().getBytes(StandardCharsets.UTF_8);
+            all.update(name);
+            all.update((byte) 0);
+            all.update(classFile.getValue());
+            if (getNormalURL(classFile.getKey()) != null) {
+                shadows.update(name);
+                shadows.update((byte) 0);
+                shadows.update(classFile.getValue());
+            }
+        }
+        teamHash = InstrumentedClassCache.toHex(all);
+        shadowHash = InstrumentedClassCache.toHex(shadows);
+    }
+
+    /**
+     * @return every class file in the team's container, by resource name
+     */
+    private SortedMap<String, byte[]> readTeamClassFiles() throws InstrumentationException {
+        final SortedMap<String, byte[]> classFiles = new TreeMap<>();
+        try {
+            final Path root = Paths.get(teamURL.toURI());
+            if (Files.isDirectory(root)) {
+                final List<Path> paths;
+                try (Stream<Path> files = Files.walk(root)) {
+                    paths = files
+                            .filter(f -> f.toString().endsWith(".class") && Files.isRegularFile(f))
+                            .collect(Collectors.toList());
+                }
+                for (Path path : paths) {
+                    classFiles.put(
+                            root.relativize(path).toString().replace(File.separatorChar, '/'),
+                            Files.readAllBytes(path)
+                    );
+                }
+            } else {
+                try (ZipFile jar = new ZipFile(root.toFile())) {
+                    for (ZipEntry entry : Collections.list(jar.entries())) {
+                        if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                            try (InputStream in = jar.getInputStream(entry)) {
+                                classFiles.put(entry.getName(), IOUtils.toByteArray(in));
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new InstrumentationException(MISSING, "Can't read player code from "+teamURL, e);
+        }
+        return classFiles;
+    }
+
+    /**
+     * @return the cache this factory shares instrumented classes through
+     */
+    public InstrumentedClassCache getSharedCache() {
+        return sharedCache;
+    }
+
     /**
      * @return whether the team is known to have errors
      */
@@ -238,6 +448,39 @@ public final class TeamClassLoaderFactory {
         throw new InstrumentationException(MISSING, "Can't load class "+className+" on the system classpath");
     }
 
+    /**
+     * Read the raw bytes of a class from the system classloader.
+     *
+     * @param className the name of the class
+     * @return the class file
+     * @throws InstrumentationException if the class cannot be read
+     */
+    public static byte[] normalBytes(String className) throws InstrumentationException {
+        return readClass(getNormalURL(toResourceName(className)), className, "on the system classpath");
+    }
+
+    /**
+     * Read the raw bytes of a class from the team classloader.
+     *
+     * @param className the name of the class
+     * @return the class file
+     * @throws InstrumentationException if the class cannot be read
+     */
+    public byte[] teamBytes(String className) throws InstrumentationException {
+        return readClass(getTeamURL(toResourceName(className)), className, "from player classpath");
+    }
+
+    private static byte[] readClass(URL resURL, String className, String where) throws InstrumentationException {
+        if (resURL != null) {
+            try (InputStream in = resURL.openStream()) {
+                return IOUtils.toByteArray(in);
+            } catch (IOException e) {
+                throw new InstrumentationException(MISSING, "Can't load class "+className+" "+where, e);
+            }
+        }
+        throw new InstrumentationException(MISSING, "Can't load class "+className+" "+where);
+    }
+
     /**
      * Attempt to read a class from the team classloader
      *
@@ -401,6 +644,10 @@ public final class TeamClassLoaderFactory {
             return TeamClassLoaderFactory.this.refUtil;
         }
 
+        public ClassHierarchy getHierarchy() {
+            return TeamClassLoaderFactory.this.hierarchy;
+        }
+
         @Override
         protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
             if (TeamClassLoaderFactory.this.getError()) {
@@ -445,8 +692,10 @@ public final class TeamClassLoaderFactory {
 
                 final byte[] classBytes;
                 try {
-                    classBytes = instrument(
-                            TeamClassLoaderFactory.this.teamReader(name),
+                    classBytes = instrumentShared(
+                            name,
+                            TeamClassLoaderFactory.this.teamBytes(name),
+                            TeamClassLoaderFactory.this.getTeamHash(),
                             true,
                             Config.getGlobalConfig().getBoolean("bc.engine.debug-methods")
                     );
@@ -459,13 +708,17 @@ public final class TeamClassLoaderFactory {
             } else if (name.startsWith("instrumented.")) {
                 // Each robot has its own version of java.util classes.
                 // We don't check them for disallowed or debug methods.
-                // If permgen space becomes a problem, we could make it so
-                // that only one copy of these classes is loaded, but
-                // we would need to modify ObjectHashCode.
+                // They aren't shared between a team's robots: most have
+                // static fields and initializers (ArrayList's empty arrays,
+                // Collections' Random, ...) or use package-private members
+                // of classes that do, and the robot that first runs an
+                // initializer is charged for it.
                 byte[] classBytes;
                 try {
-                    classBytes = instrument(
-                            TeamClassLoaderFactory.normalReader(name),
+                    classBytes = instrumentShared(
+                            name,
+                            TeamClassLoaderFactory.normalBytes(name),
+                            TeamClassLoaderFactory.this.getShadowHash(),
                             false, false);
                 } catch (InstrumentationException ie) {
                     TeamClassLoaderFactory.this.hasError = true;
@@ -512,6 +765,29 @@ public final class TeamClassLoaderFactory {
 
         }
 
+        /**
+         * Instrument a class, or reuse the result of instrumenting the same
+         * bytes in the same context, from any game.
+         *
+         * @param teamHash a hash of everything in the team's container that
+         *                 instrumenting this class could depend on
+         */
+        private byte[] instrumentShared(String name,
+                                        byte[] sourceBytes,
+                                        String teamHash,
+                                        boolean checkDisallowed,
+                                        boolean debugMethodsEnabled) throws InstrumentationException {
+            final InstrumentedClassCache.Key key = new InstrumentedClassCache.Key(
+                    name, sourceBytes, teamHash, debugMethodsEnabled);
+
+            byte[] classBytes = sharedCache.get(key);
+            if (classBytes == null) {
+                classBytes = instrument(new ClassReader(sourceBytes), checkDisallowed, debugMethodsEnabled);
+                sharedCache.put(key, classBytes);
+            }
+            return classBytes;
+        }
+
         public byte[] instrument(ClassReader reader,
                                  boolean checkDisallowed,
                                  boolean debugMethodsEnabled) throws InstrumentationException {
@@ -0,0 +1,45 @@
+package battlecode.instrumenter;
+
+/**
+ * Passes control back and forth between the engine thread and a robot
+ * player's thread, so that exactly one of them runs at a time.
+ *
+ * The engine side calls start() once and then runRobot() each turn; the
+ * robot side calls yieldToEngine() whenever it pauses, and finish() when
+ * its thread is about to exit.
+ *
+ * @see SandboxedRobotPlayer
+ */
+public interface TurnHandoff {
+
+    /**
+     * Start the robot thread, and wait until it first yields or finishes.
+     * Called on the engine thread.
+     *
+     * @param robotThread the robot's thread, not yet started
+     * @throws InterruptedException if the engine thread is interrupted
+     */
+    void start(Thread robotThread) throws InterruptedException;
+
+    /**
+     * Let the robot run, and wait until it yields or finishes.
+     * Called on the engine thread.
+     *
+     * @throws InterruptedException if the engine thread is interrupted
+     */
+    void runRobot() throws InterruptedException;
+
+    /**
+     * Hand control back to the engine, and wait until it lets us run again.
+     * Called on the robot thread.
+     *
+     * @throws InterruptedException if the robot thread is interrupted
+     */
+    void yieldToEngine() throws InterruptedException;
+
+    /**
+     * Hand control back to the engine for the last time.
+     * Called on the robot thread, just before it exits.
+     */
+    void finish();
+}
@@ -30,14 +30,21 @@ public class Verifier {
 
     public static boolean verify(String teamPackageName, String teamURL) {
         try {
+            final long start = System.nanoTime();
             TeamClassLoaderFactory.Loader loader = new TeamClassLoaderFactory(teamURL).createLoader();
 
             // Has teamPackageName/RobotPlayer.java
             loader.loadClass(teamPackageName + ".RobotPlayer");
 
             // Everything else is valid
-            if (teamURL.endsWith(".jar")) checkJar(teamPackageName + ".RobotPlayer", teamURL, loader);
-            else checkFolder(teamPackageName + ".RobotPlayer", teamURL, loader);
+            final int otherClasses;
+            if (teamURL.endsWith(".jar")) otherClasses = checkJar(teamPackageName + ".RobotPlayer", teamURL, loader);
+            else otherClasses = checkFolder(teamPackageName + ".RobotPlayer", teamURL, loader);
+
+            System.out.printf("Instrumented %d team classes in %.1f ms (read %d class headers for hierarchies)%n",
+                    otherClasses + 1,
+                    (System.nanoTime() - start) / 1e6,
+                    loader.getHierarchy().getClassesRead());
 
             return true;
         } catch (Exception e) {
@@ -47,8 +54,12 @@ public class Verifier {
         }
     }
 
-    public static void checkJar(String rpName, String url, TeamClassLoaderFactory.Loader loader) throws Exception {
+    /**
+     * @return the number of classes checked, not counting the RobotPlayer
+     */
+    public static int checkJar(String rpName, String url, TeamClassLoaderFactory.Loader loader) throws Exception {
         ZipInputStream z = new ZipInputStream(TeamClassLoaderFactory.getFilesystemURL(url).openStream());
+        int checked = 0;
 
         while (true) {
             ZipEntry entry = z.getNextEntry();
@@ -59,12 +70,18 @@ public class Verifier {
                 String className = name.substring(0, name.length()-6).replace("/",".");
                 if (className.equals(rpName)) continue;
                 loader.loadClass(className);
+                checked++;
             }
         }
+        return checked;
     }
 
-    public static void checkFolder(String rpName, String folder, TeamClassLoaderFactory.Loader loader) throws Exception {
+    /**
+     * @return the number of classes checked, not counting the RobotPlayer
+     */
+    public static int checkFolder(String rpName, String folder, TeamClassLoaderFactory.Loader loader) throws Exception {
         Path root = Paths.get(folder);
+        final int[] checked = {0};
         Files.walk(root).forEach((path) -> {
             String innerPath = root.relativize(path).toString();
             if (innerPath.endsWith(".class")) {
@@ -72,10 +89,12 @@ public class Verifier {
                 if (className.equals(rpName)) return;
                 try {
                     loader.loadClass(className);
+                    checked[0]++;
                 } catch (ClassNotFoundException e) {
                     throw new InstrumentationException(MISSING, "Couldn't load file, what?", e);
                 }
             }
         });
+        return checked[0];
     }
 }
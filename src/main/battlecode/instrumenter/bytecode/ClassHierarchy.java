@@ -0,0 +1,99 @@
+package battlecode.instrumenter.bytecode;
+
+import battlecode.instrumenter.InstrumentationException;
+import battlecode.instrumenter.TeamClassLoaderFactory;
+import org.objectweb.asm.ClassReader;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers questions about which classes and interfaces a class extends or
+ * implements, for the instrumenter.
+ *
+ * A class's supertypes are resolved the same way the class itself would be
+ * loaded: from the team's container if it's there, and from the system
+ * classpath otherwise. So there's one ClassHierarchy per
+ * TeamClassLoaderFactory, and it remembers every class it has resolved;
+ * instrumenting a whole team reads each class header at most once, however
+ * many call sites ask about it.
+ */
+public class ClassHierarchy {
+
+    /**
+     * Used to read class files; may be null, to only read the system classpath.
+     */
+    private final TeamClassLoaderFactory factory;
+
+    /**
+     * Every class and interface each resolved class transitively extends
+     * or implements, by internal name.
+     */
+    private final Map<String, Set<String>> supertypes = new HashMap<>();
+
+    /**
+     * How many class files we've read.
+     */
+    private int classesRead;
+
+    public ClassHierarchy(TeamClassLoaderFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * e.g. isSubtype("battlecode/common/GameActionException", "java/lang/Throwable") => true
+     *
+     * @param className the internal name of a class
+     * @param supertype the internal name of a class or interface
+     * @return whether className transitively extends or implements supertype;
+     *         false if they're the same class
+     * @throws InstrumentationException if a class in the hierarchy can't be found
+     */
+    public boolean isSubtype(String className, String supertype) {
+        return getSupertypes(className).contains(supertype);
+    }
+
+    /**
+     * @param className the internal name of a class
+     * @return every class and interface className transitively extends or
+     *         implements, always in the same order
+     * @throws InstrumentationException if a class in the hierarchy can't be found
+     */
+    public synchronized Set<String> getSupertypes(String className) {
+        Set<String> result = supertypes.get(className);
+        if (result != null) {
+            return result;
+        }
+
+        final ClassReader reader = TeamClassLoaderFactory.teamOrSystemReader(factory, className);
+        classesRead++;
+
+        final Set<String> direct = new HashSet<>();
+        Collections.addAll(direct, reader.getInterfaces());
+        if (reader.getSuperName() != null) {
+            direct.add(reader.getSuperName());
+        }
+
+        // Built exactly as it always has been, so that it iterates in the
+        // same order: MethodCostUtil takes the first supertype with a cost.
+        final Set<String> all = new HashSet<>();
+        all.addAll(direct);
+        for (String type : direct) {
+            all.addAll(getSupertypes(type));
+        }
+        result = Collections.unmodifiableSet(all);
+
+        supertypes.put(className, result);
+        return result;
+    }
+
+    /**
+     * @return how many class files have been read to resolve hierarchies
+     */
+    public synchronized int getClassesRead() {
+        return classesRead;
+    }
+}
@@ -8,7 +8,6 @@ import org.objectweb.asm.*;
 import org.objectweb.asm.tree.*;
 
 import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -630,6 +629,12 @@ public class InstrumentingMethodVisitor extends MethodNode implements Opcodes {
         replaceVars(n.stack);
     }
 
+    /**
+     * Charges the bytecodes counted since the last block end. Charges are
+     * deliberately not merged across blocks or loop iterations: a robot that
+     * runs out of bytecodes pauses at the first charge that takes it over its
+     * limit, so moving a charge would move where its turn ends.
+     */
     private void endOfBasicBlock(AbstractInsnNode n) {
         if (bytecodeCtr == 0)
             return;
@@ -647,10 +652,7 @@ public class InstrumentingMethodVisitor extends MethodNode implements Opcodes {
      * @throws InstrumentationException if class <code>owner</code> cannot be found
      */
     private boolean isSuperClass(String owner, String superclass) {
-        ClassReader cr = TeamClassLoaderFactory.teamOrSystemReader(loader.getFactory(), owner);
-        InterfaceReader ir = new InterfaceReader(loader.getFactory());
-        cr.accept(ir, ClassReader.SKIP_DEBUG);
-        return Arrays.asList(ir.getInterfaces()).contains(superclass);
+        return loader.getHierarchy().isSubtype(owner, superclass);
     }
 
     /**
@@ -14,6 +14,15 @@ import java.io.PrintStream;
  *
  * The specific call the instrumentation uses is "incrementBytecodes".
  *
+ * incrementBytecodes runs at the end of nearly every basic block, so it's
+ * split in two. Whenever nothing but the count can change what it does (the
+ * robot isn't dying, isn't in a debug method, and owes no bytecodes from
+ * incrementBytecodesWithoutInterrupt) the monitor is "armed", and keeps the
+ * bytecodes left in one counter that the fast path only has to subtract
+ * from and compare. Anything else disarms it, which sets the counter to 0,
+ * so that the next call falls through to the slow path; that does exactly
+ * what incrementBytecodes always did, and arms the monitor again if it can.
+ *
  * @author adamd
  */
 public final class RobotMonitor {
@@ -21,6 +30,15 @@ public final class RobotMonitor {
 
     private static int randomSeed;
 
+    /**
+     * The bytecodes left while the monitor is armed; 0 otherwise.
+     */
+    private static int counter;
+    private static boolean armed;
+
+    /**
+     * The bytecodes left while the monitor is disarmed.
+     */
     private static int bytecodesLeft;
     private static int bytecodesToRemove;
     private static boolean shouldDie;
@@ -46,6 +64,8 @@ public final class RobotMonitor {
         shouldDie = false;
         bytecodesLeft = 0;
         debugLevel = 0;
+        armed = false;
+        counter = 0;
 
         randomSeed = seed;
         pauser = thePauser;
@@ -80,6 +100,7 @@ public final class RobotMonitor {
      */
     @SuppressWarnings("unused")
     public static void killRobot() {
+        disarm();
         shouldDie = true;
     }
 
@@ -97,7 +118,7 @@ public final class RobotMonitor {
      */
     @SuppressWarnings("unused")
     public static int getBytecodesLeft() {
-        return bytecodesLeft;
+        return armed ? counter : bytecodesLeft;
     }
 
     // Methods called from RobotPlayer
@@ -113,6 +134,24 @@ public final class RobotMonitor {
      */
     @SuppressWarnings("unused")
     public static void incrementBytecodes(int numBytecodes) {
+        // Small enough to inline into the robot's code
+        final int left = counter - numBytecodes;
+        if (left > 0) {
+            counter = left;
+        } else {
+            incrementBytecodesSlowly(numBytecodes);
+        }
+    }
+
+    /**
+     * The rest of incrementBytecodes: called when the monitor is disarmed,
+     * or when the robot has run out of bytecodes for this turn.
+     *
+     * @param numBytecodes the number of bytecodes the robot just executed
+     */
+    private static void incrementBytecodesSlowly(int numBytecodes) {
+        disarm();
+
         // If we should die, then... do that.
         if (shouldDie) {
             killer.kill();
@@ -128,6 +167,31 @@ public final class RobotMonitor {
         }
 	
 	bytecodesToRemove = 0;
+
+        arm();
+    }
+
+    /**
+     * Let the next calls to incrementBytecodes take the fast path, if
+     * nothing but the count could change what they do.
+     * The monitor must be disarmed.
+     */
+    private static void arm() {
+        if (!shouldDie && debugLevel == 0 && bytecodesToRemove == 0) {
+            counter = bytecodesLeft;
+            armed = true;
+        }
+    }
+
+    /**
+     * Send the next call to incrementBytecodes down the slow path.
+     */
+    private static void disarm() {
+        if (armed) {
+            bytecodesLeft = counter;
+            counter = 0;
+            armed = false;
+        }
     }
 
     /**
@@ -144,8 +208,10 @@ public final class RobotMonitor {
     public static void incrementBytecodesWithoutInterrupt(int numBytecodes) {
         // Several potential exploits mean this argument may be passed a negative value.
         // It's easier to deal with this here than in the instrumenter.
-        if (numBytecodes > 0)
+        if (numBytecodes > 0) {
+            disarm();
             bytecodesToRemove += numBytecodes;
+        }
     }
 
     /**
@@ -196,6 +262,7 @@ public final class RobotMonitor {
      */
     @SuppressWarnings("unused")
     public static void incrementDebugLevel() {
+        disarm();
         debugLevel++;
     }
 
@@ -231,6 +298,7 @@ public final class RobotMonitor {
      * Must be called from the robot's main thread.
      */
     public static void pause() {
+        disarm();
         pauser.pause();
 
         reactivate();
@@ -253,4 +321,28 @@ public final class RobotMonitor {
             bytecodesLeft = bytecodeLimit;
         }
     }
+
+    /**
+     * Gives SandboxedRobotPlayer direct calls into this monitor, rather than
+     * reflective ones.
+     *
+     * Like RobotMonitor, this is redefined for every robot player, so each
+     * copy calls its own player's RobotMonitor.
+     */
+    public static final class Bridge implements SandboxedRobotPlayer.MonitorBridge {
+        @Override
+        public void setBytecodeLimit(int limit) {
+            RobotMonitor.setBytecodeLimit(limit);
+        }
+
+        @Override
+        public int getBytecodeNum() {
+            return RobotMonitor.getBytecodeNum();
+        }
+
+        @Override
+        public void killRobot() {
+            RobotMonitor.killRobot();
+        }
+    }
 }
@@ -45,6 +45,23 @@ public class Config {
         defaults.setProperty("bc.server.throttle-count", "15");
         defaults.setProperty("bc.server.output-xml", "true");
 
+        // Whether to write each game to bc.server.save-file event by event as it runs, rather
+        // than all at once at the end, compressed with bc.server.replay-codec; clients can't
+        // read these until converted with ReplayReader
+        defaults.setProperty("bc.server.stream-replay", "false");
+
+        // How many threads gzip finished games: 1 gzips on the thread writing the game; more
+        // deflates blocks of it in parallel, which hasn't yet been measured on a multi-core
+        // host (see CompressGameBenchmark); 0 for one per available processor
+        defaults.setProperty("bc.server.compression-threads", "1");
+        // How to compress saved games: "gzip", or "gzip-best" for smaller files, which the client
+        // reads; or "lz4", or "none", for faster writes, which it can't until converted with ReplayCodec
+        defaults.setProperty("bc.server.replay-codec", "gzip");
+
+        // In tournament mode (see bc.server.tournament-file), how many games
+        // to run at once; 0 for one per available processor
+        defaults.setProperty("bc.server.parallel-games", "0");
+
         // Whether to write robot player output to match files / system out
         // if bc.server.robot-player-to-system-out is false then it will only write
         // to match files
@@ -54,6 +71,31 @@ public class Config {
         defaults.setProperty("bc.engine.silence-d", "false");
         defaults.setProperty("bc.engine.debug-methods", "false");
 
+        // Which spatial index the world uses for bodies: "grid" or "rtree"
+        defaults.setProperty("bc.engine.spatial-index", "grid");
+        // What robot players run on: "platform" threads, or "virtual" threads (Java 21+)
+        defaults.setProperty("bc.engine.robot-threads", "platform");
+        // How turns pass between the engine and robot threads: "monitor" (wait/notify),
+        // or "spin-park" (spin briefly on a volatile flag, then park)
+        defaults.setProperty("bc.engine.robot-handoff", "monitor");
+        // How many megabytes of instrumented classes to keep for reuse by later games
+        defaults.setProperty("bc.engine.class-cache-mb", "64");
+        // A directory to also keep instrumented classes in, so that later runs can skip
+        // instrumenting them; empty to keep them only in memory
+        defaults.setProperty("bc.engine.class-cache-dir", "");
+        // Whether to instrument all of a team's classes in parallel before its first match,
+        // rather than as robots first load them
+        defaults.setProperty("bc.engine.preinstrument", "true");
+        // How many sandboxes to keep set up for each team's robots to spawn into, topped up
+        // between rounds; 0 to set each one up only when its robot spawns
+        defaults.setProperty("bc.engine.sandbox-pool-size", "8");
+
+        // For LoadGenerator: how many rounds to measure, after how many rounds of warmup, and
+        // what its scripted robots do (any of walk, fire, build, plant)
+        defaults.setProperty("bc.loadgen.rounds", "1000");
+        defaults.setProperty("bc.loadgen.warmup-rounds", "200");
+        defaults.setProperty("bc.loadgen.behaviors", "walk,fire,build,plant");
+
         defaults.setProperty("bc.game.team-a", "team000");
         defaults.setProperty("bc.game.team-b", "team000");
         defaults.setProperty("bc.game.maps", "glass");
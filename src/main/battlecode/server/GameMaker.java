@@ -5,16 +5,14 @@ import battlecode.common.MapLocation;
 import battlecode.common.RobotType;
 import battlecode.common.Team;
 import battlecode.schema.*;
+import battlecode.util.FlatColumn;
 import battlecode.util.FlatHelpers;
 import battlecode.util.TeamMapping;
 import battlecode.world.*;
 import com.google.flatbuffers.FlatBufferBuilder;
-import gnu.trove.list.array.TByteArrayList;
-import gnu.trove.list.array.TFloatArrayList;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TObjectByteMap;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 
 import java.io.*;
@@ -23,8 +21,8 @@ import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.function.ToIntFunction;
-import java.util.zip.GZIPOutputStream;
 
 import static battlecode.util.FlatHelpers.*;
 
@@ -61,20 +59,41 @@ public strictfp class GameMaker {
 
     /**
      * We write the whole match to this builder, then write it to a file.
+     * Null if we're streaming the game instead.
      */
     private final FlatBufferBuilder fileBuilder;
 
+    /**
+     * Where we're streaming the game, event by event, if we are; null
+     * otherwise.
+     */
+    private final File streamFile;
+    private final ReplayWriter replayWriter;
+
+    /**
+     * Each event is built once in this builder by itself, then written out if
+     * we're streaming the game, or copied into the file builder if we aren't,
+     * and sent to the client.
+     */
+    private FlatBufferBuilder eventBuilder;
+
     /**
      * Null until the end of the match.
      */
     private byte[] finishedGame;
 
     /**
-     * We have a separate byte[] for each packet sent to the client.
-     * This is necessary because flatbuffers shares metadata between structures, so we
-     * can't just cut out chunks of the larger buffer :/
+     * The finished GameWrapper in fileBuilder, once we've made it.
+     */
+    private ByteBuffer finishedWrapper;
+
+    /**
+     * How the finished game is compressed, and the pool (and its size) it's
+     * compressed on; null to compress on the thread writing the game.
      */
-    private FlatBufferBuilder packetBuilder;
+    private final ReplayCodec codec;
+    private final ExecutorService compressionPool;
+    private final int compressionThreads;
 
     /**
      * The server we're sending packets on.
@@ -107,16 +126,72 @@ public strictfp class GameMaker {
      * @param packetSink the NetServer to send packets to
      */
     public GameMaker(final GameInfo gameInfo, final NetServer packetSink){
+        this(gameInfo, packetSink, null);
+    }
+
+    /**
+     * @param gameInfo the mapping of teams to bytes
+     * @param packetSink the NetServer to send packets to
+     * @param streamFile where to stream the game as it runs, in
+     *                   ReplayWriter's format; null to build the whole game
+     *                   in memory, and write it at the end
+     */
+    public GameMaker(final GameInfo gameInfo, final NetServer packetSink, final File streamFile){
+        this(gameInfo, packetSink, streamFile, ReplayCodec.GZIP);
+    }
+
+    /**
+     * @param gameInfo the mapping of teams to bytes
+     * @param packetSink the NetServer to send packets to
+     * @param streamFile where to stream the game as it runs, in
+     *                   ReplayWriter's format; null to build the whole game
+     *                   in memory, and write it at the end
+     * @param codec how to compress the finished game, or the stream if
+     *              there is one
+     */
+    public GameMaker(final GameInfo gameInfo, final NetServer packetSink, final File streamFile,
+                     final ReplayCodec codec){
+        this(gameInfo, packetSink, streamFile, codec, null, 1);
+    }
+
+    /**
+     * @param gameInfo the mapping of teams to bytes
+     * @param packetSink the NetServer to send packets to
+     * @param streamFile where to stream the game as it runs, in
+     *                   ReplayWriter's format; null to build the whole game
+     *                   in memory, and write it at the end
+     * @param codec how to compress the finished game, or the stream if
+     *              there is one
+     * @param compressionPool the pool to gzip the finished game on, or null
+     *                        to gzip it on the thread that writes it
+     * @param compressionThreads how many threads compressionPool has
+     */
+    public GameMaker(final GameInfo gameInfo, final NetServer packetSink, final File streamFile,
+                     final ReplayCodec codec, final ExecutorService compressionPool,
+                     final int compressionThreads){
         this.state = State.GAME_HEADER;
 
         this.gameInfo = gameInfo;
 
         this.packetSink = packetSink;
-        if (packetSink != null) {
-            this.packetBuilder = new FlatBufferBuilder();
-        }
 
-        this.fileBuilder = new FlatBufferBuilder();
+        this.codec = codec;
+        this.compressionPool = compressionPool;
+        this.compressionThreads = compressionThreads;
+
+        this.streamFile = streamFile;
+        if (streamFile != null) {
+            try {
+                this.replayWriter = new ReplayWriter(streamFile, codec);
+            } catch (IOException e) {
+                throw new RuntimeException("Can't stream game to " + streamFile, e);
+            }
+            this.fileBuilder = null;
+        } else {
+            this.replayWriter = null;
+            this.fileBuilder = new FlatBufferBuilder();
+        }
+        this.eventBuilder = new FlatColumn.Builder();
 
         this.events = new TIntArrayList();
         this.matchHeaders = new TIntArrayList();
@@ -149,35 +224,17 @@ public strictfp class GameMaker {
     /**
      * Convert entire game to a byte array.
      *
-     * @return game as a packed flatbuffer byte array.
+     * @return game as a packed flatbuffer byte array, compressed with the
+     *         codec we were given.
      */
     public byte[] toBytes() {
         if (finishedGame == null) {
-            assertState(State.DONE);
-
-            int events = offsetVector(fileBuilder, this.events, GameWrapper::startEventsVector);
-            int matchHeaders = offsetVector(fileBuilder, this.matchHeaders, GameWrapper::startMatchHeadersVector);
-            int matchFooters = offsetVector(fileBuilder, this.matchFooters, GameWrapper::startMatchFootersVector);
-
-            GameWrapper.startGameWrapper(fileBuilder);
-            GameWrapper.addEvents(fileBuilder, events);
-            GameWrapper.addMatchHeaders(fileBuilder, matchHeaders);
-            GameWrapper.addMatchFooters(fileBuilder, matchFooters);
-
-            fileBuilder.finish(GameWrapper.endGameWrapper(fileBuilder));
-
-            byte[] rawBytes = fileBuilder.sizedByteArray();
-
             try {
                 ByteArrayOutputStream result = new ByteArrayOutputStream();
-                GZIPOutputStream zipper = new GZIPOutputStream(result);
-                IOUtils.copy(new ByteArrayInputStream(rawBytes), zipper);
-                zipper.close();
-                zipper.flush();
-                result.flush();
+                writeCompressed(result);
                 finishedGame = result.toByteArray();
             } catch (IOException e) {
-                throw new RuntimeException("Gzipping failed?", e);
+                throw new RuntimeException("Compressing failed?", e);
             }
         }
         return finishedGame;
@@ -186,6 +243,9 @@ public strictfp class GameMaker {
     /**
      * Write a match out to a file.
      *
+     * If we've been streaming the game, this finishes the stream, and the
+     * file is in ReplayWriter's format.
+     *
      * @param saveFile the file to save to
      */
     public void writeGame(File saveFile) {
@@ -194,31 +254,140 @@ public strictfp class GameMaker {
         }
 
         try {
-            FileUtils.writeByteArrayToFile(saveFile, toBytes());
+            if (replayWriter != null) {
+                assertState(State.DONE);
+                finishStream();
+                if (!saveFile.getAbsoluteFile().equals(streamFile.getAbsoluteFile())) {
+                    FileUtils.copyFile(streamFile, saveFile);
+                }
+            } else if (finishedGame != null) {
+                FileUtils.writeByteArrayToFile(saveFile, finishedGame);
+            } else {
+                // straight to the file, rather than through toBytes
+                try (OutputStream file = FileUtils.openOutputStream(saveFile)) {
+                    writeCompressed(file);
+                } catch (IOException | RuntimeException e) {
+                    // don't leave half a game behind
+                    FileUtils.deleteQuietly(saveFile);
+                    throw e;
+                }
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Run the same logic for both builders.
+     * Compress the whole game, as a GameWrapper, with our codec.
      *
-     * @param perBuilder called with each builder; return event id. Should not mutate state.
+     * @param out where to write it; closed afterward
+     */
+    private void writeCompressed(OutputStream out) throws IOException {
+        try (OutputStream compressor = codec.compress(out, compressionPool, compressionThreads)) {
+            final ByteBuffer game = finishGame();
+            compressor.write(game.array(), game.arrayOffset() + game.position(), game.remaining());
+        }
+    }
+
+    /**
+     * @return the whole game as a finished GameWrapper
+     */
+    private ByteBuffer finishGame() throws IOException {
+        assertState(State.DONE);
+
+        if (replayWriter != null) {
+            finishStream();
+            return ByteBuffer.wrap(ReplayReader.toGameWrapper(streamFile));
+        }
+
+        if (finishedWrapper == null) {
+            finishGameWrapper(fileBuilder, events, matchHeaders, matchFooters);
+            finishedWrapper = fileBuilder.dataBuffer();
+        }
+        return finishedWrapper;
+    }
+
+    /**
+     * Stop streaming the game, if we are, without finishing it, e.g. because
+     * a match failed. The events so far are left readable.
+     */
+    public void abandon() {
+        if (replayWriter != null) {
+            state = State.DONE;
+            try {
+                replayWriter.close();
+            } catch (IOException e) {
+                ErrorReporter.report(e, false);
+            }
+        }
+    }
+
+    /**
+     * Write the streamed game's index, and close its file.
+     */
+    private void finishStream() {
+        try {
+            replayWriter.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Can't finish streaming game to " + streamFile, e);
+        }
+    }
+
+    /**
+     * Finish a GameWrapper around events already in a builder.
+     *
+     * ReplayReader rebuilds streamed games through here too, so a streamed
+     * game comes out byte for byte the same as one built in memory.
+     *
+     * @param builder the builder holding the events
+     * @param events the offsets of the events in the builder, in order
+     * @param matchHeaders the indices of the match headers in events
+     * @param matchFooters the indices of the match footers in events
+     */
+    static void finishGameWrapper(FlatBufferBuilder builder, TIntArrayList events,
+                                  TIntArrayList matchHeaders, TIntArrayList matchFooters) {
+        int eventsP = offsetVector(builder, events, GameWrapper::startEventsVector);
+        int matchHeadersP = offsetVector(builder, matchHeaders, GameWrapper::startMatchHeadersVector);
+        int matchFootersP = offsetVector(builder, matchFooters, GameWrapper::startMatchFootersVector);
+
+        GameWrapper.startGameWrapper(builder);
+        GameWrapper.addEvents(builder, eventsP);
+        GameWrapper.addMatchHeaders(builder, matchHeadersP);
+        GameWrapper.addMatchFooters(builder, matchFootersP);
+
+        builder.finish(GameWrapper.endGameWrapper(builder));
+    }
+
+    /**
+     * Make an event, and send it everywhere it goes.
+     *
+     * @param perBuilder called with the builder to make the event in; return event id. Should not mutate state.
      */
     private void createEvent(ToIntFunction<FlatBufferBuilder> perBuilder) {
-        // make file event and add its offset to the list
-        int eventAP = perBuilder.applyAsInt(fileBuilder);
-        events.add(eventAP);
+        // make the event once, by itself
+        eventBuilder.finish(perBuilder.applyAsInt(eventBuilder));
+        final ByteBuffer event = eventBuilder.dataBuffer();
 
-        if (packetSink != null) {
-            // make packet event and package it up
-            int eventBP = perBuilder.applyAsInt(packetBuilder);
-            packetBuilder.finish(eventBP);
-            packetSink.addEvent(packetBuilder.sizedByteArray());
+        if (replayWriter != null) {
+            try {
+                replayWriter.writeEvent(event);
+            } catch (IOException e) {
+                throw new RuntimeException("Can't stream game to " + streamFile, e);
+            }
+        } else {
+            // copy it into the file, the same way ReplayReader rebuilds a streamed game,
+            // and add its offset to the list
+            events.add(addFinishedBuffer(fileBuilder, event));
+        }
 
-            // reset packet builder
-            packetBuilder = new FlatBufferBuilder(packetBuilder.dataBuffer());
+        if (packetSink != null) {
+            // the server keeps every event for clients that connect late, so it
+            // gets a copy of just the event, not the builder's whole buffer
+            packetSink.addEvent(eventBuilder.sizedByteArray());
         }
+
+        // reset event builder, keeping its buffer
+        eventBuilder.init(event);
     }
 
     /**
@@ -323,110 +492,116 @@ public strictfp class GameMaker {
      * There is only one of these per GameMaker.
      */
     public class MatchMaker {
-        private TIntArrayList movedIDs; // ints
+        private final FlatColumn movedIDs; // ints
         // VecTable for movedLocs in Round
-        private TFloatArrayList movedLocsXs;
-        private TFloatArrayList movedLocsYs;
+        private final FlatColumn movedLocsXs;
+        private final FlatColumn movedLocsYs;
 
         // SpawnedBodyTable for spawnedBodies
-        private TIntArrayList spawnedBodiesRobotIDs;
-        private TByteArrayList spawnedBodiesTeamIDs;
-        private TByteArrayList spawnedBodiesTypes;
-        private TFloatArrayList spawnedBodiesRadii;
-        private TFloatArrayList spawnedBodiesLocsXs; //For locs
-        private TFloatArrayList spawnedBodiesLocsYs; //For locs
+        private final FlatColumn spawnedBodiesRobotIDs;
+        private final FlatColumn spawnedBodiesTeamIDs;
+        private final FlatColumn spawnedBodiesTypes;
+        private final FlatColumn spawnedBodiesRadii;
+        private final FlatColumn spawnedBodiesLocsXs; //For locs
+        private final FlatColumn spawnedBodiesLocsYs; //For locs
 
         // SpawnedBulletTable for spawnedBullets
-        private TIntArrayList spawnedBulletsRobotIDs;
-        private TFloatArrayList spawnedBulletsDamages;
-        private TFloatArrayList spawnedBulletsLocsXs; //For locs
-        private TFloatArrayList spawnedBulletsLocsYs; //For locs
-        private TFloatArrayList spawnedBulletsVelsXs; //For vels
-        private TFloatArrayList spawnedBulletsVelsYs; //For vels
+        private final FlatColumn spawnedBulletsRobotIDs;
+        private final FlatColumn spawnedBulletsDamages;
+        private final FlatColumn spawnedBulletsLocsXs; //For locs
+        private final FlatColumn spawnedBulletsLocsYs; //For locs
+        private final FlatColumn spawnedBulletsVelsXs; //For vels
+        private final FlatColumn spawnedBulletsVelsYs; //For vels
 
-        private TIntArrayList healthChangedIDs; // ints
-        private TFloatArrayList healthChangedLevels; // floats
+        private final FlatColumn healthChangedIDs; // ints
+        private final FlatColumn healthChangedLevels; // floats
 
-        private TIntArrayList diedIDs; // ints
-        private TIntArrayList diedBulletIDs; //ints
+        private final FlatColumn diedIDs; // ints
+        private final FlatColumn diedBulletIDs; //ints
 
-        private TIntArrayList actionIDs; // ints
-        private TByteArrayList actions; // Actions
-        private TIntArrayList actionTargets; // ints (IDs)
+        private final FlatColumn actionIDs; // ints
+        private final FlatColumn actions; // Actions
+        private final FlatColumn actionTargets; // ints (IDs)
 
         // Round statistics
-        private TIntArrayList teamIDs;
-        private TFloatArrayList teamBullets;
-        private TIntArrayList teamVictoryPoints;
+        private final FlatColumn teamIDs;
+        private final FlatColumn teamBullets;
+        private final FlatColumn teamVictoryPoints;
 
         // Indicator dots with locations and RGB values
-        private TIntArrayList indicatorDotIDs;
-        private TFloatArrayList indicatorDotLocsX;
-        private TFloatArrayList indicatorDotLocsY;
-        private TIntArrayList indicatorDotRGBsRed;
-        private TIntArrayList indicatorDotRGBsGreen;
-        private TIntArrayList indicatorDotRGBsBlue;
+        private final FlatColumn indicatorDotIDs;
+        private final FlatColumn indicatorDotLocsX;
+        private final FlatColumn indicatorDotLocsY;
+        private final FlatColumn indicatorDotRGBsRed;
+        private final FlatColumn indicatorDotRGBsGreen;
+        private final FlatColumn indicatorDotRGBsBlue;
 
         // Indicator lines with locations and RGB values
-        private TIntArrayList indicatorLineIDs;
-        private TFloatArrayList indicatorLineStartLocsX;
-        private TFloatArrayList indicatorLineStartLocsY;
-        private TFloatArrayList indicatorLineEndLocsX;
-        private TFloatArrayList indicatorLineEndLocsY;
-        private TIntArrayList indicatorLineRGBsRed;
-        private TIntArrayList indicatorLineRGBsGreen;
-        private TIntArrayList indicatorLineRGBsBlue;
+        private final FlatColumn indicatorLineIDs;
+        private final FlatColumn indicatorLineStartLocsX;
+        private final FlatColumn indicatorLineStartLocsY;
+        private final FlatColumn indicatorLineEndLocsX;
+        private final FlatColumn indicatorLineEndLocsY;
+        private final FlatColumn indicatorLineRGBsRed;
+        private final FlatColumn indicatorLineRGBsGreen;
+        private final FlatColumn indicatorLineRGBsBlue;
 
         // Robot IDs and their bytecode usage
-        private TIntArrayList bytecodeIDs;
-        private TIntArrayList bytecodesUsed;
+        private final FlatColumn bytecodeIDs;
+        private final FlatColumn bytecodesUsed;
 
         // Used to write logs.
-        private final ByteArrayOutputStream logger;
+        private final LogBuffer logger;
+
+        // The round makeRound is making, for makeRoundEvent
+        private int roundNum;
+
+        // Made once, unlike a lambda that captures the round, so that making a round doesn't allocate
+        private final ToIntFunction<FlatBufferBuilder> roundEvent = this::makeRoundEvent;
 
         public MatchMaker() {
-            this.movedIDs = new TIntArrayList();
-            this.movedLocsXs = new TFloatArrayList();
-            this.movedLocsYs = new TFloatArrayList();
-            this.spawnedBodiesRobotIDs = new TIntArrayList();
-            this.spawnedBodiesTeamIDs = new TByteArrayList();
-            this.spawnedBodiesTypes = new TByteArrayList();
-            this.spawnedBodiesRadii = new TFloatArrayList();
-            this.spawnedBodiesLocsXs = new TFloatArrayList();
-            this.spawnedBodiesLocsYs = new TFloatArrayList();
-            this.spawnedBulletsRobotIDs = new TIntArrayList();
-            this.spawnedBulletsDamages = new TFloatArrayList();
-            this.spawnedBulletsLocsXs = new TFloatArrayList();
-            this.spawnedBulletsLocsYs = new TFloatArrayList();
-            this.spawnedBulletsVelsXs = new TFloatArrayList();
-            this.spawnedBulletsVelsYs = new TFloatArrayList();
-            this.healthChangedIDs = new TIntArrayList();
-            this.healthChangedLevels = new TFloatArrayList();
-            this.diedIDs = new TIntArrayList();
-            this.diedBulletIDs = new TIntArrayList();
-            this.actionIDs = new TIntArrayList();
-            this.actions = new TByteArrayList();
-            this.actionTargets = new TIntArrayList();
-            this.teamIDs = new TIntArrayList();
-            this.teamBullets = new TFloatArrayList();
-            this.teamVictoryPoints = new TIntArrayList();
-            this.indicatorDotIDs = new TIntArrayList();
-            this.indicatorDotLocsX = new TFloatArrayList();
-            this.indicatorDotLocsY = new TFloatArrayList();
-            this.indicatorDotRGBsRed = new TIntArrayList();
-            this.indicatorDotRGBsBlue = new TIntArrayList();
-            this.indicatorDotRGBsGreen = new TIntArrayList();
-            this.indicatorLineIDs = new TIntArrayList();
-            this.indicatorLineStartLocsX = new TFloatArrayList();
-            this.indicatorLineStartLocsY = new TFloatArrayList();
-            this.indicatorLineEndLocsX = new TFloatArrayList();
-            this.indicatorLineEndLocsY = new TFloatArrayList();
-            this.indicatorLineRGBsRed = new TIntArrayList();
-            this.indicatorLineRGBsBlue = new TIntArrayList();
-            this.indicatorLineRGBsGreen = new TIntArrayList();
-            this.bytecodeIDs = new TIntArrayList();
-            this.bytecodesUsed = new TIntArrayList();
-            this.logger = new ByteArrayOutputStream();
+            this.movedIDs = FlatColumn.ints();
+            this.movedLocsXs = FlatColumn.floats();
+            this.movedLocsYs = FlatColumn.floats();
+            this.spawnedBodiesRobotIDs = FlatColumn.ints();
+            this.spawnedBodiesTeamIDs = FlatColumn.bytes();
+            this.spawnedBodiesTypes = FlatColumn.bytes();
+            this.spawnedBodiesRadii = FlatColumn.floats();
+            this.spawnedBodiesLocsXs = FlatColumn.floats();
+            this.spawnedBodiesLocsYs = FlatColumn.floats();
+            this.spawnedBulletsRobotIDs = FlatColumn.ints();
+            this.spawnedBulletsDamages = FlatColumn.floats();
+            this.spawnedBulletsLocsXs = FlatColumn.floats();
+            this.spawnedBulletsLocsYs = FlatColumn.floats();
+            this.spawnedBulletsVelsXs = FlatColumn.floats();
+            this.spawnedBulletsVelsYs = FlatColumn.floats();
+            this.healthChangedIDs = FlatColumn.ints();
+            this.healthChangedLevels = FlatColumn.floats();
+            this.diedIDs = FlatColumn.ints();
+            this.diedBulletIDs = FlatColumn.ints();
+            this.actionIDs = FlatColumn.ints();
+            this.actions = FlatColumn.bytes();
+            this.actionTargets = FlatColumn.ints();
+            this.teamIDs = FlatColumn.ints();
+            this.teamBullets = FlatColumn.floats();
+            this.teamVictoryPoints = FlatColumn.ints();
+            this.indicatorDotIDs = FlatColumn.ints();
+            this.indicatorDotLocsX = FlatColumn.floats();
+            this.indicatorDotLocsY = FlatColumn.floats();
+            this.indicatorDotRGBsRed = FlatColumn.ints();
+            this.indicatorDotRGBsBlue = FlatColumn.ints();
+            this.indicatorDotRGBsGreen = FlatColumn.ints();
+            this.indicatorLineIDs = FlatColumn.ints();
+            this.indicatorLineStartLocsX = FlatColumn.floats();
+            this.indicatorLineStartLocsY = FlatColumn.floats();
+            this.indicatorLineEndLocsX = FlatColumn.floats();
+            this.indicatorLineEndLocsY = FlatColumn.floats();
+            this.indicatorLineRGBsRed = FlatColumn.ints();
+            this.indicatorLineRGBsBlue = FlatColumn.ints();
+            this.indicatorLineRGBsGreen = FlatColumn.ints();
+            this.bytecodeIDs = FlatColumn.ints();
+            this.bytecodesUsed = FlatColumn.ints();
+            this.logger = new LogBuffer();
         }
 
         public void makeMatchHeader(LiveMap gameMap) {
@@ -439,7 +614,9 @@ public strictfp class GameMaker {
                         MatchHeader.createMatchHeader(builder, map, gameMap.getRounds()));
             });
 
-            matchHeaders.add(events.size() - 1);
+            if (replayWriter == null) {
+                matchHeaders.add(events.size() - 1);
+            }
 
             clearData();
         }
@@ -450,121 +627,119 @@ public strictfp class GameMaker {
             createEvent((builder) -> EventWrapper.createEventWrapper(builder, Event.MatchFooter,
                     MatchFooter.createMatchFooter(builder, TeamMapping.id(winTeam), totalRounds)));
 
-            matchFooters.add(events.size() - 1);
+            if (replayWriter == null) {
+                matchFooters.add(events.size() - 1);
+            }
         }
 
         public void makeRound(int roundNum) {
             assertState(State.IN_MATCH);
 
-            try {
-                this.logger.flush();
-            } catch (IOException e) {
-                throw new RuntimeException("Can't flush byte[]outputstream?", e);
-            }
-            byte[] logs = this.logger.toByteArray();
-            this.logger.reset();
-
-            createEvent((builder) -> {
-                // The bodies that spawned
-                int spawnedBodiesLocsP = createVecTable(builder, spawnedBodiesLocsXs, spawnedBodiesLocsYs);
-                int spawnedBodiesRobotIDsP = intVector(builder, spawnedBodiesRobotIDs, SpawnedBodyTable::startRobotIDsVector);
-                int spawnedBodiesTeamIDsP = byteVector(builder, spawnedBodiesTeamIDs, SpawnedBodyTable::startTeamIDsVector);
-                int spawnedBodiesTypesP = byteVector(builder, spawnedBodiesTypes, SpawnedBodyTable::startTypesVector);
-                SpawnedBodyTable.startSpawnedBodyTable(builder);
-                SpawnedBodyTable.addLocs(builder, spawnedBodiesLocsP);
-                SpawnedBodyTable.addRobotIDs(builder, spawnedBodiesRobotIDsP);
-                SpawnedBodyTable.addTeamIDs(builder, spawnedBodiesTeamIDsP);
-                SpawnedBodyTable.addTypes(builder, spawnedBodiesTypesP);
-                int spawnedBodiesP = SpawnedBodyTable.endSpawnedBodyTable(builder);
-
-                // The bullets that spawned
-                int spawnedBulletsRobotIDsP = intVector(builder, spawnedBulletsRobotIDs, SpawnedBulletTable::startRobotIDsVector);
-                int spawnedBulletsDamagesP = floatVector(builder, spawnedBulletsDamages, SpawnedBulletTable::startDamagesVector);
-                int spawnedBulletsLocsP = createVecTable(builder, spawnedBulletsLocsXs, spawnedBulletsLocsYs);
-                int spawnedBulletsVelsP = createVecTable(builder, spawnedBulletsVelsXs, spawnedBulletsVelsYs);
-                SpawnedBulletTable.startSpawnedBulletTable(builder);
-                SpawnedBulletTable.addRobotIDs(builder, spawnedBulletsRobotIDsP);
-                SpawnedBulletTable.addDamages(builder, spawnedBulletsDamagesP);
-                SpawnedBulletTable.addLocs(builder, spawnedBulletsLocsP);
-                SpawnedBulletTable.addVels(builder, spawnedBulletsVelsP);
-                int spawnedBulletsP = SpawnedBulletTable.endSpawnedBulletTable(builder);
-
-                // The bodies that moved
-                int movedIDsP = intVector(builder, movedIDs, Round::startMovedIDsVector);
-                int movedLocsP = createVecTable(builder, movedLocsXs, movedLocsYs);
-
-                // The bodies that changed health
-                int healthChangedIDsP = intVector(builder, healthChangedIDs, Round::startHealthChangedIDsVector);
-                int healthChangedLevelsP = floatVector(builder, healthChangedLevels, Round::startHealthChangeLevelsVector);
-
-                // The bodies that died
-                int diedIDsP = intVector(builder, diedIDs, Round::startDiedIDsVector);
-
-                // The bullets that died
-                int diedBulletIDsP = intVector(builder, diedBulletIDs, Round::startDiedBulletIDsVector);
-
-                // The actions that happened
-                int actionIDsP = intVector(builder, actionIDs, Round::startActionIDsVector);
-                int actionsP = byteVector(builder, actions, Round::startActionsVector);
-                int actionTargetsP = intVector(builder, actionTargets, Round::startActionTargetsVector);
-
-                // Round statistics
-                int teamIDsP = intVector(builder, teamIDs, Round::startTeamIDsVector);
-                int teamBulletsP = floatVector(builder, teamBullets, Round::startTeamBulletsVector);
-                int teamVictoryPointsP = intVector(builder, teamVictoryPoints, Round::startTeamVictoryPointsVector);
-
-                // The indicator dots that were set
-                int indicatorDotIDsP = intVector(builder, indicatorDotIDs, Round::startIndicatorDotIDsVector);
-                int indicatorDotLocsP = createVecTable(builder, indicatorDotLocsX, indicatorDotLocsY);
-                int indicatorDotRGBsP = createRGBTable(builder, indicatorDotRGBsRed, indicatorDotRGBsGreen, indicatorDotRGBsBlue);
-
-                // The indicator lines that were set
-                int indicatorLineIDsP = intVector(builder, indicatorLineIDs, Round::startIndicatorLineIDsVector);
-                int indicatorLineStartLocsP = createVecTable(builder, indicatorLineStartLocsX, indicatorLineStartLocsY);
-                int indicatorLineEndLocsP = createVecTable(builder, indicatorLineEndLocsX, indicatorLineEndLocsY);
-                int indicatorLineRGBsP = createRGBTable(builder, indicatorLineRGBsRed, indicatorLineRGBsGreen, indicatorLineRGBsBlue);
-
-                // The bytecode usage
-                int bytecodeIDsP = intVector(builder, bytecodeIDs, Round::startBytecodeIDsVector);
-                int bytecodesUsedP = intVector(builder, bytecodesUsed, Round::startBytecodesUsedVector);
-
-                int logsP = builder.createString(ByteBuffer.wrap(logs));
-
-                Round.startRound(builder);
-                Round.addMovedIDs(builder, movedIDsP);
-                Round.addMovedLocs(builder, movedLocsP);
-                Round.addSpawnedBodies(builder, spawnedBodiesP);
-                Round.addSpawnedBullets(builder, spawnedBulletsP);
-                Round.addHealthChangedIDs(builder, healthChangedIDsP);
-                Round.addHealthChangeLevels(builder, healthChangedLevelsP);
-                Round.addDiedIDs(builder, diedIDsP);
-                Round.addDiedBulletIDs(builder, diedBulletIDsP);
-                Round.addActionIDs(builder, actionIDsP);
-                Round.addActions(builder, actionsP);
-                Round.addActionTargets(builder, actionTargetsP);
-                Round.addTeamIDs(builder, teamIDsP);
-                Round.addTeamBullets(builder, teamBulletsP);
-                Round.addTeamVictoryPoints(builder, teamVictoryPointsP);
-                Round.addIndicatorDotIDs(builder, indicatorDotIDsP);
-                Round.addIndicatorDotLocs(builder, indicatorDotLocsP);
-                Round.addIndicatorDotRGBs(builder, indicatorDotRGBsP);
-                Round.addIndicatorLineIDs(builder, indicatorLineIDsP);
-                Round.addIndicatorLineStartLocs(builder, indicatorLineStartLocsP);
-                Round.addIndicatorLineEndLocs(builder, indicatorLineEndLocsP);
-                Round.addIndicatorLineRGBs(builder, indicatorLineRGBsP);
-                Round.addRoundID(builder, roundNum);
-                Round.addBytecodeIDs(builder, bytecodeIDsP);
-                Round.addBytecodesUsed(builder, bytecodesUsedP);
-                Round.addLogs(builder, logsP);
-
-                int round = Round.endRound(builder);
-
-                return EventWrapper.createEventWrapper(builder, Event.Round, round);
-            });
+            this.roundNum = roundNum;
+            createEvent(roundEvent);
 
+            this.logger.reset();
             clearData();
         }
 
+        private int makeRoundEvent(FlatBufferBuilder builder) {
+            // The bodies that spawned
+            int spawnedBodiesLocsP = createVecTable(builder, spawnedBodiesLocsXs, spawnedBodiesLocsYs);
+            int spawnedBodiesRobotIDsP = spawnedBodiesRobotIDs.createVector(builder);
+            int spawnedBodiesTeamIDsP = spawnedBodiesTeamIDs.createVector(builder);
+            int spawnedBodiesTypesP = spawnedBodiesTypes.createVector(builder);
+            SpawnedBodyTable.startSpawnedBodyTable(builder);
+            SpawnedBodyTable.addLocs(builder, spawnedBodiesLocsP);
+            SpawnedBodyTable.addRobotIDs(builder, spawnedBodiesRobotIDsP);
+            SpawnedBodyTable.addTeamIDs(builder, spawnedBodiesTeamIDsP);
+            SpawnedBodyTable.addTypes(builder, spawnedBodiesTypesP);
+            int spawnedBodiesP = SpawnedBodyTable.endSpawnedBodyTable(builder);
+
+            // The bullets that spawned
+            int spawnedBulletsRobotIDsP = spawnedBulletsRobotIDs.createVector(builder);
+            int spawnedBulletsDamagesP = spawnedBulletsDamages.createVector(builder);
+            int spawnedBulletsLocsP = createVecTable(builder, spawnedBulletsLocsXs, spawnedBulletsLocsYs);
+            int spawnedBulletsVelsP = createVecTable(builder, spawnedBulletsVelsXs, spawnedBulletsVelsYs);
+            SpawnedBulletTable.startSpawnedBulletTable(builder);
+            SpawnedBulletTable.addRobotIDs(builder, spawnedBulletsRobotIDsP);
+            SpawnedBulletTable.addDamages(builder, spawnedBulletsDamagesP);
+            SpawnedBulletTable.addLocs(builder, spawnedBulletsLocsP);
+            SpawnedBulletTable.addVels(builder, spawnedBulletsVelsP);
+            int spawnedBulletsP = SpawnedBulletTable.endSpawnedBulletTable(builder);
+
+            // The bodies that moved
+            int movedIDsP = movedIDs.createVector(builder);
+            int movedLocsP = createVecTable(builder, movedLocsXs, movedLocsYs);
+
+            // The bodies that changed health
+            int healthChangedIDsP = healthChangedIDs.createVector(builder);
+            int healthChangedLevelsP = healthChangedLevels.createVector(builder);
+
+            // The bodies that died
+            int diedIDsP = diedIDs.createVector(builder);
+
+            // The bullets that died
+            int diedBulletIDsP = diedBulletIDs.createVector(builder);
+
+            // The actions that happened
+            int actionIDsP = actionIDs.createVector(builder);
+            int actionsP = actions.createVector(builder);
+            int actionTargetsP = actionTargets.createVector(builder);
+
+            // Round statistics
+            int teamIDsP = teamIDs.createVector(builder);
+            int teamBulletsP = teamBullets.createVector(builder);
+            int teamVictoryPointsP = teamVictoryPoints.createVector(builder);
+
+            // The indicator dots that were set
+            int indicatorDotIDsP = indicatorDotIDs.createVector(builder);
+            int indicatorDotLocsP = createVecTable(builder, indicatorDotLocsX, indicatorDotLocsY);
+            int indicatorDotRGBsP = createRGBTable(builder, indicatorDotRGBsRed, indicatorDotRGBsGreen, indicatorDotRGBsBlue);
+
+            // The indicator lines that were set
+            int indicatorLineIDsP = indicatorLineIDs.createVector(builder);
+            int indicatorLineStartLocsP = createVecTable(builder, indicatorLineStartLocsX, indicatorLineStartLocsY);
+            int indicatorLineEndLocsP = createVecTable(builder, indicatorLineEndLocsX, indicatorLineEndLocsY);
+            int indicatorLineRGBsP = createRGBTable(builder, indicatorLineRGBsRed, indicatorLineRGBsGreen, indicatorLineRGBsBlue);
+
+            // The bytecode usage
+            int bytecodeIDsP = bytecodeIDs.createVector(builder);
+            int bytecodesUsedP = bytecodesUsed.createVector(builder);
+
+            int logsP = builder.createString(logger.contents());
+
+            Round.startRound(builder);
+            Round.addMovedIDs(builder, movedIDsP);
+            Round.addMovedLocs(builder, movedLocsP);
+            Round.addSpawnedBodies(builder, spawnedBodiesP);
+            Round.addSpawnedBullets(builder, spawnedBulletsP);
+            Round.addHealthChangedIDs(builder, healthChangedIDsP);
+            Round.addHealthChangeLevels(builder, healthChangedLevelsP);
+            Round.addDiedIDs(builder, diedIDsP);
+            Round.addDiedBulletIDs(builder, diedBulletIDsP);
+            Round.addActionIDs(builder, actionIDsP);
+            Round.addActions(builder, actionsP);
+            Round.addActionTargets(builder, actionTargetsP);
+            Round.addTeamIDs(builder, teamIDsP);
+            Round.addTeamBullets(builder, teamBulletsP);
+            Round.addTeamVictoryPoints(builder, teamVictoryPointsP);
+            Round.addIndicatorDotIDs(builder, indicatorDotIDsP);
+            Round.addIndicatorDotLocs(builder, indicatorDotLocsP);
+            Round.addIndicatorDotRGBs(builder, indicatorDotRGBsP);
+            Round.addIndicatorLineIDs(builder, indicatorLineIDsP);
+            Round.addIndicatorLineStartLocs(builder, indicatorLineStartLocsP);
+            Round.addIndicatorLineEndLocs(builder, indicatorLineEndLocsP);
+            Round.addIndicatorLineRGBs(builder, indicatorLineRGBsP);
+            Round.addRoundID(builder, roundNum);
+            Round.addBytecodeIDs(builder, bytecodeIDsP);
+            Round.addBytecodesUsed(builder, bytecodesUsedP);
+            Round.addLogs(builder, logsP);
+
+            int round = Round.endRound(builder);
+
+            return EventWrapper.createEventWrapper(builder, Event.Round, round);
+        }
+
         /**
          * @return an outputstream that will be baked into the output file
          */
@@ -573,86 +748,86 @@ public strictfp class GameMaker {
         }
 
         public void addMoved(int id, MapLocation newLocation) {
-            movedIDs.add(id);
-            movedLocsXs.add(newLocation.x);
-            movedLocsYs.add(newLocation.y);
+            movedIDs.addInt(id);
+            movedLocsXs.addFloat(newLocation.x);
+            movedLocsYs.addFloat(newLocation.y);
         }
 
         public void addHealthChanged(int id, float newHealthLevel) {
-            healthChangedIDs.add(id);
-            healthChangedLevels.add(newHealthLevel);
+            healthChangedIDs.addInt(id);
+            healthChangedLevels.addFloat(newHealthLevel);
         }
 
         public void addDied(int id, boolean isBullet) {
             if (isBullet) {
-                diedBulletIDs.add(id);
+                diedBulletIDs.addInt(id);
             } else {
-                diedIDs.add(id);
+                diedIDs.addInt(id);
             }
         }
 
         public void addAction(int userID, byte action, int targetID) {
-            actionIDs.add(userID);
-            actions.add(action);
-            actionTargets.add(targetID);
+            actionIDs.addInt(userID);
+            actions.addByte(action);
+            actionTargets.addInt(targetID);
         }
 
         public void addTeamStat(Team team, float bullets, int victoryPoints) {
-            teamIDs.add(TeamMapping.id(team));
-            teamBullets.add(bullets);
-            teamVictoryPoints.add(victoryPoints);
+            teamIDs.addInt(TeamMapping.id(team));
+            teamBullets.addFloat(bullets);
+            teamVictoryPoints.addInt(victoryPoints);
         }
 
         public void addIndicatorDot(int id, MapLocation loc, int red, int green, int blue) {
-            indicatorDotIDs.add(id);
-            indicatorDotLocsX.add(loc.x);
-            indicatorDotLocsY.add(loc.y);
-            indicatorDotRGBsRed.add(red);
-            indicatorDotRGBsGreen.add(green);
-            indicatorDotRGBsBlue.add(blue);
+            indicatorDotIDs.addInt(id);
+            indicatorDotLocsX.addFloat(loc.x);
+            indicatorDotLocsY.addFloat(loc.y);
+            indicatorDotRGBsRed.addInt(red);
+            indicatorDotRGBsGreen.addInt(green);
+            indicatorDotRGBsBlue.addInt(blue);
         }
 
         public void addIndicatorLine(int id, MapLocation startLoc, MapLocation endLoc, int red, int green, int blue) {
-            indicatorLineIDs.add(id);
-            indicatorLineStartLocsX.add(startLoc.x);
-            indicatorLineStartLocsY.add(startLoc.y);
-            indicatorLineEndLocsX.add(endLoc.x);
-            indicatorLineEndLocsY.add(endLoc.y);
-            indicatorLineRGBsRed.add(red);
-            indicatorLineRGBsGreen.add(green);
-            indicatorLineRGBsBlue.add(blue);
+            indicatorLineIDs.addInt(id);
+            indicatorLineStartLocsX.addFloat(startLoc.x);
+            indicatorLineStartLocsY.addFloat(startLoc.y);
+            indicatorLineEndLocsX.addFloat(endLoc.x);
+            indicatorLineEndLocsY.addFloat(endLoc.y);
+            indicatorLineRGBsRed.addInt(red);
+            indicatorLineRGBsGreen.addInt(green);
+            indicatorLineRGBsBlue.addInt(blue);
         }
 
         public void addBytecodes(int id, int bytecodes) {
-            bytecodeIDs.add(id);
-            bytecodesUsed.add(bytecodes);
+            bytecodeIDs.addInt(id);
+            bytecodesUsed.addInt(bytecodes);
         }
 
         public void addSpawnedRobot(InternalRobot robot) {
-            spawnedBodiesRobotIDs.add(robot.getID());
-            spawnedBodiesRadii.add(robot.getType().bodyRadius);
-            spawnedBodiesLocsXs.add(robot.getLocation().x);
-            spawnedBodiesLocsYs.add(robot.getLocation().y);
-            spawnedBodiesTeamIDs.add(TeamMapping.id(robot.getTeam()));
-            spawnedBodiesTypes.add(FlatHelpers.getBodyTypeFromRobotType(robot.getType()));
+            spawnedBodiesRobotIDs.addInt(robot.getID());
+            spawnedBodiesRadii.addFloat(robot.getType().bodyRadius);
+            spawnedBodiesLocsXs.addFloat(robot.getLocation().x);
+            spawnedBodiesLocsYs.addFloat(robot.getLocation().y);
+            spawnedBodiesTeamIDs.addByte(TeamMapping.id(robot.getTeam()));
+            spawnedBodiesTypes.addByte(FlatHelpers.getBodyTypeFromRobotType(robot.getType()));
         }
 
         public void addSpawnedTree(InternalTree tree) {
-            spawnedBodiesRobotIDs.add(tree.getID());
-            spawnedBodiesRadii.add(tree.getRadius());
-            spawnedBodiesLocsXs.add(tree.getLocation().x);
-            spawnedBodiesLocsYs.add(tree.getLocation().y);
-            spawnedBodiesTeamIDs.add(TeamMapping.id(tree.getTeam()));
-            spawnedBodiesTypes.add(tree.getTeam() == Team.NEUTRAL ? BodyType.TREE_NEUTRAL : BodyType.TREE_BULLET);
+            spawnedBodiesRobotIDs.addInt(tree.getID());
+            spawnedBodiesRadii.addFloat(tree.getRadius());
+            spawnedBodiesLocsXs.addFloat(tree.getLocation().x);
+            spawnedBodiesLocsYs.addFloat(tree.getLocation().y);
+            spawnedBodiesTeamIDs.addByte(TeamMapping.id(tree.getTeam()));
+            spawnedBodiesTypes.addByte(tree.getTeam() == Team.NEUTRAL ? BodyType.TREE_NEUTRAL : BodyType.TREE_BULLET);
         }
 
         public void addSpawnedBullet(InternalBullet bullet) {
-            spawnedBulletsRobotIDs.add(bullet.getID());
-            spawnedBulletsDamages.add(bullet.getDamage());
-            spawnedBulletsLocsXs.add(bullet.getLocation().x);
-            spawnedBulletsLocsYs.add(bullet.getLocation().y);
-            spawnedBulletsVelsXs.add(bullet.getDirection().getDeltaX(bullet.getSpeed()));
-            spawnedBulletsVelsYs.add(bullet.getDirection().getDeltaY(bullet.getSpeed()));
+            spawnedBulletsRobotIDs.addInt(bullet.getID());
+            spawnedBulletsDamages.addFloat(bullet.getDamage());
+            spawnedBulletsLocsXs.addFloat(bullet.getLocation().x);
+            spawnedBulletsLocsYs.addFloat(bullet.getLocation().y);
+            spawnedBulletsVelsXs.addFloat(bullet.getDirection().getDeltaX(bullet.getSpeed()));
+            spawnedBulletsVelsYs.addFloat(bullet.getDirection().getDeltaY(bullet.getSpeed()));
         }
 
         private void clearData() {
@@ -699,4 +874,24 @@ public strictfp class GameMaker {
             bytecodesUsed.clear();
         }
     }
+
+    /**
+     * Holds a round's logs, and lets us write them without copying them out
+     * first.
+     */
+    private static final class LogBuffer extends ByteArrayOutputStream {
+        private ByteBuffer contents;
+
+        /**
+         * @return the logs so far; only good until the next write or reset
+         */
+        synchronized ByteBuffer contents() {
+            if (contents == null || contents.array() != buf) {
+                contents = ByteBuffer.wrap(buf);
+            }
+            contents.clear();
+            contents.limit(count);
+            return contents;
+        }
+    }
 }
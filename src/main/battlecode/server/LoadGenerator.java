@@ -0,0 +1,194 @@
+package battlecode.server;
+
+import battlecode.common.GameConstants;
+import battlecode.world.GameMapIO;
+import battlecode.world.GameWorld;
+import battlecode.world.LiveMap;
+import battlecode.world.ObjectInfo;
+import battlecode.world.control.ScriptedControlProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Measures how fast the engine runs rounds, with robots controlled by a
+ * ScriptedControlProvider rather than player code, so that the numbers
+ * don't include instrumentation or sandboxes.
+ * <p/>
+ * Usage:<br>
+ * <code>java -Dbc.game.maps=Barrier -Dbc.loadgen.rounds=2000 battlecode.server.LoadGenerator</code><br>
+ * Runs the first map in bc.game.maps (from bc.game.map-path, or the built-in
+ * maps) again and again until it has measured bc.loadgen.rounds rounds,
+ * after bc.loadgen.warmup-rounds rounds of warmup, and prints rounds per
+ * second, average and 99th percentile round times, bodies per round, and
+ * how fast the engine allocated memory. Robots do what
+ * bc.loadgen.behaviors says; see ScriptedControlProvider.Behavior.
+ */
+public class LoadGenerator {
+
+    private final LiveMap map;
+    private final ScriptedControlProvider provider;
+
+    private GameWorld world;
+
+    /**
+     * @param map the map to run
+     * @param behaviors what the robots should do
+     */
+    public LoadGenerator(LiveMap map, Set<ScriptedControlProvider.Behavior> behaviors) {
+        this.map = map;
+        this.provider = new ScriptedControlProvider(behaviors);
+    }
+
+    /**
+     * Run rounds, starting a new match whenever the last one finishes.
+     *
+     * @param rounds how many rounds to run
+     * @param stats where to record them, or null
+     */
+    public void run(int rounds, Stats stats) {
+        for (int i = 0; i < rounds; i++) {
+            if (world == null || !world.isRunning()) {
+                newMatch();
+            }
+            final long start = System.nanoTime();
+            world.runRound();
+            final long time = System.nanoTime() - start;
+            if (stats != null) {
+                final ObjectInfo objects = world.getObjectInfo();
+                stats.add(time, objects.robots().size() + objects.trees().size() + objects.bullets().size());
+            }
+        }
+    }
+
+    private void newMatch() {
+        // Each match gets a game of its own, so finished ones can be collected
+        final GameMaker gameMaker = new GameMaker(new GameInfo(
+                "scriptedA", "scriptedA", null, "scriptedB", "scriptedB", null,
+                new String[]{map.getMapName()}, null, false
+        ), null);
+        gameMaker.makeGameHeader();
+        world = new GameWorld(map, provider, new long[2][GameConstants.TEAM_MEMORY_LENGTH],
+                gameMaker.getMatchMaker());
+    }
+
+    /**
+     * The times and sizes of the rounds run.
+     */
+    public static class Stats {
+        private final long[] times;
+        private long bodies;
+        private int count;
+
+        /**
+         * @param rounds the most rounds to record
+         */
+        public Stats(int rounds) {
+            this.times = new long[rounds];
+        }
+
+        void add(long time, int bodies) {
+            this.times[count++] = time;
+            this.bodies += bodies;
+        }
+
+        public int getRounds() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                total += times[i];
+            }
+            return total;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the round time in nanoseconds that the given percentage
+         *         of rounds took no longer than
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            final long[] sorted = Arrays.copyOf(times, count);
+            Arrays.sort(sorted);
+            final int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+
+        public double getAverageBodies() {
+            return count == 0 ? 0 : (double) bodies / count;
+        }
+    }
+
+    /**
+     * @return the bytes the current thread has allocated so far, or -1 if
+     *         the JVM can't tell us
+     */
+    private static long allocatedBytes() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) {
+        final Config options = Main.setupConfig(args);
+
+        final String mapName = options.get("bc.game.maps").split(",")[0];
+        final LiveMap map;
+        try {
+            map = GameMapIO.loadMap(mapName, new File(options.get("bc.game.map-path")));
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        final Set<ScriptedControlProvider.Behavior> behaviors;
+        try {
+            behaviors = ScriptedControlProvider.Behavior.parse(options.get("bc.loadgen.behaviors"));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid bc.loadgen.behaviors: " + options.get("bc.loadgen.behaviors"));
+            System.exit(64);
+            return;
+        }
+        final int rounds = options.getInt("bc.loadgen.rounds");
+        final int warmupRounds = options.getInt("bc.loadgen.warmup-rounds");
+
+        final LoadGenerator generator = new LoadGenerator(map, behaviors);
+        generator.run(warmupRounds, null);
+
+        final Stats stats = new Stats(rounds);
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        generator.run(rounds, stats);
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+
+        System.out.printf("Map %s, robots %s, %d rounds after %d of warmup%n",
+                mapName, behaviors, rounds, warmupRounds);
+        System.out.printf("%.1f rounds/sec%n", stats.getRounds() / (stats.getTotalNanos() / 1e9));
+        System.out.printf("round time: average %.3f ms, p99 %.3f ms%n",
+                stats.getTotalNanos() / 1e6 / Math.max(1, stats.getRounds()),
+                stats.getPercentileNanos(99) / 1e6);
+        System.out.printf("%.1f bodies per round%n", stats.getAverageBodies());
+        if (allocated >= 0) {
+            System.out.printf("allocated %.1f MB/sec, %.1f KB per round%n",
+                    allocated / 1e6 / (elapsed / 1e9), allocated / 1e3 / Math.max(1, stats.getRounds()));
+        } else {
+            System.out.println("allocation rate not available on this JVM");
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package battlecode.server;
 
+import battlecode.common.Team;
+
 import java.io.File;
 import java.net.URL;
+import java.util.List;
 
 public class Main {
 
@@ -83,6 +86,34 @@ public class Main {
         }
     }
 
+    private static boolean runTournament(Config options) {
+        final String gamesFile = options.get("bc.server.tournament-file");
+        if (gamesFile == null) {
+            System.err.println("Can't run a tournament without bc.server.tournament-file set!");
+            return false;
+        }
+
+        try {
+            final List<GameInfo> games = Tournament.readGames(new File(gamesFile), options);
+            final Team[] winners = new Tournament(options, options.getInt("bc.server.parallel-games"))
+                    .run(games);
+
+            boolean allFinished = true;
+            for (int i = 0; i < winners.length; i++) {
+                final GameInfo game = games.get(i);
+                if (winners[i] == null) {
+                    allFinished = false;
+                }
+                Server.say(String.format("%s vs. %s: %s", game.getTeamAName(), game.getTeamBName(),
+                        winners[i] == null ? "failed" : "winner " + winners[i]));
+            }
+            return allFinished;
+        } catch (Exception e) {
+            ErrorReporter.report(e, true);
+            return false;
+        }
+    }
+
     public static Config setupConfig(String[] args) {
         try {
             Config options = new Config(args);
@@ -107,6 +138,8 @@ public class Main {
         switch (mode) {
             case HEADLESS:
                 return runHeadless(options);
+            case TOURNAMENT:
+                return runTournament(options);
             default:
                 return false;
         }
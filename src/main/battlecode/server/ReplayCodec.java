@@ -0,0 +1,309 @@
+package battlecode.server;
+
+import battlecode.util.Lz4InputStream;
+import battlecode.util.Lz4OutputStream;
+import battlecode.util.ParallelGzipOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The ways finished games can be compressed when they're saved, selected
+ * with the bc.server.replay-codec property.
+ *
+ * The client reads gzip, so GZIP is the default; GZIP_BEST is gzip too,
+ * smaller but slower to write. LZ4 is much faster to write, and NONE
+ * faster still, for local runs. Files written by these two start with a
+ * small header saying which they are, and have to be converted before the
+ * client can read them:<br>
+ * <code>java battlecode.server.ReplayCodec match.bc17 watchable.bc17 gzip</code>
+ * <p/>
+ * decompress tells the formats apart, so tools can read any of them.
+ */
+public enum ReplayCodec {
+
+    /**
+     * Gzip at the default level. The client can read these.
+     */
+    GZIP("gzip", -1) {
+        @Override
+        protected OutputStream wrap(OutputStream out, ExecutorService pool, int threads) throws IOException {
+            return gzip(out, Deflater.DEFAULT_COMPRESSION, pool, threads);
+        }
+
+        @Override
+        protected InputStream unwrap(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    },
+
+    /**
+     * Gzip at the best level deflate has; the smallest files, and the
+     * slowest to write. The client can read these.
+     */
+    GZIP_BEST("gzip-best", -1) {
+        @Override
+        protected OutputStream wrap(OutputStream out, ExecutorService pool, int threads) throws IOException {
+            return gzip(out, Deflater.BEST_COMPRESSION, pool, threads);
+        }
+
+        @Override
+        protected InputStream unwrap(InputStream in) throws IOException {
+            return GZIP.unwrap(in);
+        }
+    },
+
+    /**
+     * LZ4; several times faster to write than gzip, but bigger.
+     */
+    LZ4("lz4", 1) {
+        @Override
+        protected OutputStream wrap(OutputStream out, ExecutorService pool, int threads) {
+            return new Lz4OutputStream(out);
+        }
+
+        @Override
+        protected InputStream unwrap(InputStream in) {
+            return new Lz4InputStream(in);
+        }
+    },
+
+    /**
+     * Not compressed at all.
+     */
+    NONE("none", 0) {
+        @Override
+        protected OutputStream wrap(OutputStream out, ExecutorService pool, int threads) {
+            return out;
+        }
+
+        @Override
+        protected InputStream unwrap(InputStream in) {
+            return in;
+        }
+    };
+
+    /**
+     * Starts the header of files that aren't gzip: "BC17" in ASCII, then
+     * the version of the header, then the codec's ID.
+     */
+    private static final byte[] MAGIC = {'B', 'C', '1', '7'};
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 2;
+
+    private static final int GZIP_MAGIC_0 = 0x1f;
+    private static final int GZIP_MAGIC_1 = 0x8b;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String name;
+
+    /**
+     * The ID in the header, or -1 for gzip, which has a header of its own.
+     */
+    private final int id;
+
+    ReplayCodec(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * @return the codec's name, as bc.server.replay-codec has it
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Start writing a file in this format, compressing it on the calling
+     * thread.
+     *
+     * @param out the stream to write the file to; closed when the returned
+     *            stream is
+     * @return a stream to write the game to, uncompressed
+     * @throws IOException if writing the header fails
+     */
+    public OutputStream compress(OutputStream out) throws IOException {
+        return compress(out, null, 1);
+    }
+
+    /**
+     * Start writing a file in this format, gzipping it on a pool of
+     * threads if there's more than one; see ParallelGzipOutputStream.
+     * Only the gzip codecs use the pool.
+     *
+     * @param out the stream to write the file to; closed when the returned
+     *            stream is
+     * @param pool the pool to compress on, or null to compress on the
+     *             calling thread
+     * @param threads how many threads the pool has
+     * @return a stream to write the game to, uncompressed
+     * @throws IOException if writing the header fails
+     */
+    public OutputStream compress(OutputStream out, ExecutorService pool, int threads) throws IOException {
+        if (id >= 0) {
+            out.write(MAGIC);
+            out.write(VERSION);
+            out.write(id);
+        }
+        return wrap(out, pool, threads);
+    }
+
+    /**
+     * @param out the stream to write to, after the header
+     * @param pool the pool to compress on, or null
+     * @param threads how many threads the pool has
+     * @return a stream that compresses to out
+     */
+    protected abstract OutputStream wrap(OutputStream out, ExecutorService pool, int threads) throws IOException;
+
+    /**
+     * @param in the stream to read from, after the header
+     * @return a stream that decompresses from in
+     */
+    protected abstract InputStream unwrap(InputStream in) throws IOException;
+
+    /**
+     * Start reading a file in any of these formats.
+     *
+     * @param in the file's contents; closed when the returned stream is
+     * @return a stream of the game, uncompressed
+     * @throws IOException if reading fails, or the format isn't one of ours
+     */
+    public static InputStream decompress(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            in = new BufferedInputStream(in, BUFFER_SIZE);
+        }
+        in.mark(HEADER_LENGTH);
+        final byte[] header = new byte[HEADER_LENGTH];
+        final int read = IOUtils.read(in, header);
+
+        if (read >= 2 && (header[0] & 0xff) == GZIP_MAGIC_0 && (header[1] & 0xff) == GZIP_MAGIC_1) {
+            in.reset();
+            return GZIP.unwrap(in);
+        }
+        return forHeader(header, read).unwrap(in);
+    }
+
+    /**
+     * @param file a file in any of these formats
+     * @return the codec that wrote it; GZIP for either kind of gzip
+     * @throws IOException if reading fails, or the format isn't one of ours
+     */
+    public static ReplayCodec detect(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            final byte[] header = new byte[HEADER_LENGTH];
+            final int read = IOUtils.read(in, header);
+            if (read >= 2 && (header[0] & 0xff) == GZIP_MAGIC_0 && (header[1] & 0xff) == GZIP_MAGIC_1) {
+                return GZIP;
+            }
+            return forHeader(header, read);
+        }
+    }
+
+    private static ReplayCodec forHeader(byte[] header, int length) throws IOException {
+        if (length < HEADER_LENGTH) {
+            throw new IOException("Not a replay: too short");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                throw new IOException("Not a replay: unknown format");
+            }
+        }
+        if (header[MAGIC.length] != VERSION) {
+            throw new IOException("Unknown replay header version: " + header[MAGIC.length]);
+        }
+        final int id = header[MAGIC.length + 1];
+        for (ReplayCodec codec : values()) {
+            if (codec.id >= 0 && codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IOException("Unknown replay codec: " + id);
+    }
+
+    /**
+     * @param name a codec's name, as bc.server.replay-codec has it
+     * @return the codec
+     */
+    public static ReplayCodec forName(String name) {
+        for (ReplayCodec codec : values()) {
+            if (codec.name.equals(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown replay codec: " + name);
+    }
+
+    /**
+     * @param config the configuration to read bc.server.replay-codec from
+     * @return the codec the configuration asks for
+     */
+    public static ReplayCodec fromConfig(Config config) {
+        final String name = config.get("bc.server.replay-codec");
+        return name == null ? GZIP : forName(name);
+    }
+
+    /**
+     * @param out the stream to gzip to
+     * @param level the compression level, as for Deflater
+     * @param pool the pool to compress on, or null
+     * @param threads how many threads the pool has
+     * @return a stream that gzips to out, on the pool if it has more than
+     *         one thread
+     */
+    private static OutputStream gzip(OutputStream out, int level, ExecutorService pool, int threads)
+            throws IOException {
+        if (pool == null || threads <= 1) {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        return new ParallelGzipOutputStream(out, pool, threads, level);
+    }
+
+    /**
+     * Convert a saved game from one format to another, e.g. so the client
+     * can watch a game saved with LZ4 or NONE.
+     *
+     * @param in the saved game, in any of these formats
+     * @param out where to write it
+     * @param codec what to write it with
+     * @throws IOException if reading or writing fails
+     */
+    public static void convert(File in, File out, ReplayCodec codec) throws IOException {
+        try (InputStream game = decompress(new FileInputStream(in));
+             OutputStream converted = codec.compress(new BufferedOutputStream(new FileOutputStream(out), BUFFER_SIZE))) {
+            IOUtils.copyLarge(game, converted);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1 && args.length != 3) {
+            System.err.println("Usage: battlecode.server.ReplayCodec ${saved} [${converted} ${codec}], which prints " +
+                    "what saved was written with, or converts it to codec (one of gzip, gzip-best, lz4, none) " +
+                    "and prints both sizes; the client reads gzip");
+            System.exit(64);
+        }
+        try {
+            if (args.length == 1) {
+                System.out.println(detect(new File(args[0])).getName());
+            } else {
+                final File saved = new File(args[0]);
+                final File converted = new File(args[1]);
+                convert(saved, converted, forName(args[2]));
+                System.out.println(saved.length() + " -> " + converted.length() + " bytes");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package battlecode.server;
+
+import battlecode.schema.Event;
+import battlecode.schema.EventWrapper;
+import battlecode.util.FlatHelpers;
+import com.google.flatbuffers.FlatBufferBuilder;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads a replay written by ReplayWriter, one event at a time, and checks
+ * it against the index at the end of the file.
+ * <p/>
+ * Can also rebuild the GameWrapper that clients expect, so that a streamed
+ * replay can be watched:<br>
+ * <code>java battlecode.server.ReplayReader streamed.bc17s match.bc17</code>
+ */
+public final class ReplayReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DataInputStream in;
+
+    /**
+     * How many bytes we've read, before compression.
+     */
+    private long read;
+
+    private final TLongArrayList eventPositions = new TLongArrayList();
+    private final TIntArrayList matchHeaders = new TIntArrayList();
+    private final TIntArrayList matchFooters = new TIntArrayList();
+
+    private final EventWrapper wrapper = new EventWrapper();
+
+    private boolean finished;
+
+    /**
+     * @param file a replay written by ReplayWriter, with any ReplayCodec
+     * @throws IOException if the file can't be opened, or isn't in a format we know
+     */
+    public ReplayReader(File file) throws IOException {
+        final InputStream fileIn = new FileInputStream(file);
+        try {
+            this.in = new DataInputStream(new BufferedInputStream(ReplayCodec.decompress(fileIn), BUFFER_SIZE));
+        } catch (IOException | RuntimeException e) {
+            fileIn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next event.
+     *
+     * @return a finished flatbuffer with an EventWrapper at its root, or null
+     *         if there are no more events
+     * @throws IOException if reading fails, or the replay is corrupt
+     */
+    public ByteBuffer nextEvent() throws IOException {
+        if (finished) {
+            return null;
+        }
+
+        final long position = read;
+        final int length = readInt();
+        if (length == ReplayWriter.END_OF_EVENTS) {
+            readIndex(position);
+            finished = true;
+            return null;
+        }
+        if (length < 4) {
+            throw new IOException("Corrupt replay: event " + eventPositions.size() + " has length " + length);
+        }
+
+        final byte[] bytes = new byte[length];
+        readFully(bytes);
+        final ByteBuffer event = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        final byte type = EventWrapper.getRootAsEventWrapper(event.duplicate(), wrapper).eType();
+        if (type == Event.MatchHeader) {
+            matchHeaders.add(eventPositions.size());
+        } else if (type == Event.MatchFooter) {
+            matchFooters.add(eventPositions.size());
+        }
+        eventPositions.add(position);
+
+        return event;
+    }
+
+    /**
+     * @return the indices of the match headers among the events read so far
+     */
+    public TIntArrayList getMatchHeaders() {
+        return matchHeaders;
+    }
+
+    /**
+     * @return the indices of the match footers among the events read so far
+     */
+    public TIntArrayList getMatchFooters() {
+        return matchFooters;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Check the index and trailer against what we've read.
+     */
+    private void readIndex(long indexPosition) throws IOException {
+        final int eventCount = readInt();
+        if (eventCount != eventPositions.size()) {
+            throw new IOException("Corrupt replay: index has " + eventCount + " events, but file has "
+                    + eventPositions.size());
+        }
+        for (int i = 0; i < eventCount; i++) {
+            if (readLong() != eventPositions.get(i)) {
+                throw new IOException("Corrupt replay: index has the wrong position for event " + i);
+            }
+        }
+        checkIndices("match header", matchHeaders);
+        checkIndices("match footer", matchFooters);
+
+        if (readLong() != indexPosition || readInt() != ReplayWriter.MAGIC) {
+            throw new IOException("Corrupt replay: bad trailer");
+        }
+        if (in.read() != -1) {
+            throw new IOException("Corrupt replay: data after trailer");
+        }
+    }
+
+    private void checkIndices(String name, TIntArrayList expected) throws IOException {
+        final int count = readInt();
+        if (count != expected.size()) {
+            throw new IOException("Corrupt replay: index has " + count + " " + name + "s, but file has "
+                    + expected.size());
+        }
+        for (int i = 0; i < count; i++) {
+            if (readInt() != expected.get(i)) {
+                throw new IOException("Corrupt replay: index has the wrong " + name + " " + i);
+            }
+        }
+    }
+
+    private int readInt() throws IOException {
+        read += 4;
+        return Integer.reverseBytes(in.readInt());
+    }
+
+    private long readLong() throws IOException {
+        read += 8;
+        return Long.reverseBytes(in.readLong());
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+        in.readFully(bytes);
+        read += bytes.length;
+    }
+
+    /**
+     * Rebuild a streamed replay as a GameWrapper, byte for byte the same as
+     * the one GameMaker builds in memory when it isn't streaming.
+     *
+     * @param file a replay written by ReplayWriter
+     * @return the game as a packed (uncompressed) flatbuffer
+     * @throws IOException if reading fails, or the replay is corrupt
+     */
+    public static byte[] toGameWrapper(File file) throws IOException {
+        final FlatBufferBuilder builder = new FlatBufferBuilder();
+        final TIntArrayList events = new TIntArrayList();
+
+        try (ReplayReader reader = new ReplayReader(file)) {
+            ByteBuffer event;
+            while ((event = reader.nextEvent()) != null) {
+                events.add(FlatHelpers.addFinishedBuffer(builder, event));
+            }
+
+            GameMaker.finishGameWrapper(builder, events, reader.getMatchHeaders(), reader.getMatchFooters());
+        }
+        return builder.sizedByteArray();
+    }
+
+    /**
+     * Convert a streamed replay to the gzipped GameWrapper clients read.
+     *
+     * @param streamed a replay written by ReplayWriter
+     * @param saveFile where to write the game
+     * @throws IOException if reading or writing fails, or the replay is corrupt
+     */
+    public static void convert(File streamed, File saveFile) throws IOException {
+        final byte[] game = toGameWrapper(streamed);
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(saveFile), BUFFER_SIZE)) {
+            out.write(game);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: battlecode.server.ReplayReader ${streamed} ${save.file}, where streamed is " +
+                    "a replay written with bc.server.stream-replay set, and save.file is where to write it " +
+                    "for the client");
+            System.exit(64);
+        }
+        try {
+            convert(new File(args[0]), new File(args[1]));
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package battlecode.server;
+
+import battlecode.schema.Event;
+import battlecode.schema.EventWrapper;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a game's replay event by event as the game runs, rather than
+ * building the whole game in memory and writing it at the end.
+ *
+ * The file is compressed with a ReplayCodec, gzip unless the server's
+ * bc.server.replay-codec says otherwise. Inside, each event is a finished flatbuffer with an
+ * EventWrapper at its root, after its length; then comes an index of the
+ * events, and a trailer pointing at the index:
+ *
+ * <pre>
+ * event:   int length, byte[length] flatbuffer
+ * index:   int END_OF_EVENTS,
+ *          int count, long[count] where each event's length is,
+ *          int count, int[count] which events are match headers,
+ *          int count, int[count] which events are match footers
+ * trailer: long where the index is, int MAGIC
+ * </pre>
+ *
+ * Everything is little-endian, like flatbuffers, and positions are in the
+ * uncompressed stream. ReplayReader reads these back, and can rebuild the
+ * GameWrapper that clients expect from them.
+ */
+public final class ReplayWriter implements Closeable {
+
+    /**
+     * Ends a streamed replay: "BC17" in ASCII.
+     */
+    static final int MAGIC = 0x37314342;
+
+    /**
+     * Takes the place of an event's length after the last event.
+     */
+    static final int END_OF_EVENTS = -1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+
+    /**
+     * Scratch space for writing numbers.
+     */
+    private final ByteBuffer scratch = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Used to copy events that aren't backed by an array.
+     */
+    private byte[] copyBuffer;
+
+    /**
+     * How many bytes we've written, before compression.
+     */
+    private long written;
+
+    private final TLongArrayList eventPositions = new TLongArrayList();
+    private final TIntArrayList matchHeaders = new TIntArrayList();
+    private final TIntArrayList matchFooters = new TIntArrayList();
+
+    private final EventWrapper wrapper = new EventWrapper();
+
+    private boolean closed;
+
+    /**
+     * @param file the file to write to, gzipped; replaced if it exists
+     * @throws IOException if the file can't be opened
+     */
+    public ReplayWriter(File file) throws IOException {
+        this(file, ReplayCodec.GZIP);
+    }
+
+    /**
+     * @param file the file to write to; replaced if it exists
+     * @param codec how to compress the file
+     * @throws IOException if the file can't be opened
+     */
+    public ReplayWriter(File file, ReplayCodec codec) throws IOException {
+        final OutputStream fileOut = Channels.newOutputStream(FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        try {
+            this.out = new BufferedOutputStream(codec.compress(fileOut), BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            fileOut.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write an event.
+     *
+     * @param event a finished flatbuffer with an EventWrapper at its root,
+     *              between its position and limit; left unchanged
+     * @throws IOException if writing fails
+     */
+    public void writeEvent(ByteBuffer event) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Can't write event, replay already closed");
+        }
+
+        // getRootAsEventWrapper makes the buffer little-endian, which only builders' buffers already are
+        final ByteBuffer root = event.order() == ByteOrder.LITTLE_ENDIAN ? event : event.duplicate();
+        final byte type = EventWrapper.getRootAsEventWrapper(root, wrapper).eType();
+        if (type == Event.MatchHeader) {
+            matchHeaders.add(eventPositions.size());
+        } else if (type == Event.MatchFooter) {
+            matchFooters.add(eventPositions.size());
+        }
+        eventPositions.add(written);
+
+        writeInt(event.remaining());
+        if (event.hasArray()) {
+            write(event.array(), event.arrayOffset() + event.position(), event.remaining());
+        } else {
+            if (copyBuffer == null) {
+                copyBuffer = new byte[BUFFER_SIZE];
+            }
+            final ByteBuffer source = event.duplicate();
+            while (source.hasRemaining()) {
+                final int length = Math.min(source.remaining(), copyBuffer.length);
+                source.get(copyBuffer, 0, length);
+                write(copyBuffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * @return how many events have been written
+     */
+    public int getEventCount() {
+        return eventPositions.size();
+    }
+
+    /**
+     * Write the index and close the file.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            final long indexPosition = written;
+            writeInt(END_OF_EVENTS);
+            writeInt(eventPositions.size());
+            for (int i = 0; i < eventPositions.size(); i++) {
+                writeLong(eventPositions.get(i));
+            }
+            writeInts(matchHeaders);
+            writeInts(matchFooters);
+
+            writeLong(indexPosition);
+            writeInt(MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeInts(TIntArrayList values) throws IOException {
+        writeInt(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            writeInt(values.get(i));
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        scratch.putInt(0, value);
+        write(scratch.array(), 0, 4);
+    }
+
+    private void writeLong(long value) throws IOException {
+        scratch.putLong(0, value);
+        write(scratch.array(), 0, 8);
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        written += length;
+    }
+}
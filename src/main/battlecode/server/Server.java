@@ -7,7 +7,13 @@ import battlecode.world.control.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
@@ -48,6 +54,32 @@ public strictfp class Server implements Runnable {
      */
     private GameWorld currentWorld;
 
+    /**
+     * How many finished games can be waiting to be written before we wait
+     * for the oldest, so that unwritten games don't pile up in memory.
+     */
+    private static final int MAX_PENDING_WRITES = 2;
+
+    /**
+     * Writes finished games out, in order, so that the next game can start
+     * while the last one is compressed. Made when the first game finishes.
+     */
+    private ExecutorService gameWriter;
+
+    /**
+     * Games being written, oldest first, with their save files.
+     */
+    private final Deque<Future<?>> pendingWrites = new ArrayDeque<>();
+    private final Deque<File> pendingWriteFiles = new ArrayDeque<>();
+
+    /**
+     * How many threads gzip finished games, from bc.server.compression-threads,
+     * and the pool they run on; made with the first game if there's more
+     * than one thread, and null otherwise.
+     */
+    private final int compressionThreads;
+    private ExecutorService compressionPool;
+
 
     /**
      * The server's mode affects how notifications are handled, whether or not
@@ -56,6 +88,7 @@ public strictfp class Server implements Runnable {
      */
     public enum Mode {
         HEADLESS,
+        TOURNAMENT,
     }
 
     /**
@@ -72,6 +105,9 @@ public strictfp class Server implements Runnable {
 
         this.options = options;
         this.state = ServerState.NOT_READY;
+
+        final int threads = options.getInt("bc.server.compression-threads");
+        this.compressionThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
     }
 
     // ******************************
@@ -116,6 +152,14 @@ public strictfp class Server implements Runnable {
      * matches.
      */
     public void run() {
+        try {
+            runGames();
+        } finally {
+            finishWrites();
+        }
+    }
+
+    private void runGames() {
         final NetServer netServer;
         if (options.getBoolean("bc.server.websocket")) {
             netServer = new NetServer(options.getInt("bc.server.port"),
@@ -146,55 +190,132 @@ public strictfp class Server implements Runnable {
                 return;
             }
 
-            GameMaker gameMaker = new GameMaker(currentGame, netServer);
-            gameMaker.makeGameHeader();
+            if (runGame(currentGame, netServer) == null) {
+                return;
+            }
+        }
+    }
 
-            debug("Running: "+currentGame);
+    /**
+     * Run every match of a game, and start writing the game out to its save
+     * file; see finishWrites.
+     *
+     * Everything the game needs (its GameMaker, control providers, and so on)
+     * is created here, so separate Server instances can run games at the
+     * same time; see Tournament.
+     *
+     * @param currentGame the game to run
+     * @param netServer where to stream the game to, or null
+     * @return the winner of the game, or null if a match failed to run
+     */
+    public Team runGame(GameInfo currentGame, NetServer netServer) {
+        if (compressionPool == null && compressionThreads > 1) {
+            compressionPool = Executors.newFixedThreadPool(compressionThreads, r -> {
+                final Thread thread = new Thread(r, "replay-compression");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        GameMaker gameMaker = new GameMaker(currentGame, netServer,
+                options.getBoolean("bc.server.stream-replay") ? currentGame.getSaveFile() : null,
+                ReplayCodec.fromConfig(options), compressionPool, compressionThreads);
+        gameMaker.makeGameHeader();
 
-            // Set up our control provider
-            final RobotControlProvider prov = createControlProvider(currentGame, gameMaker);
+        debug("Running: "+currentGame);
 
-            // We start with zeroed team memories.
-            long[][] teamMemory = new long[2][GameConstants.TEAM_MEMORY_LENGTH];
+        // Set up our control provider
+        final RobotControlProvider prov = createControlProvider(currentGame, gameMaker);
 
-            // Count wins
-            int aWins = 0, bWins = 0;
+        // We start with zeroed team memories.
+        long[][] teamMemory = new long[2][GameConstants.TEAM_MEMORY_LENGTH];
 
-            // Loop through the maps in the current game
-            for (int matchIndex = 0; matchIndex < currentGame.getMaps().length; matchIndex++) {
+        // Count wins
+        int aWins = 0, bWins = 0;
 
-                Team winner;
-                try {
-                    winner = runMatch(currentGame, matchIndex, prov, teamMemory, gameMaker);
-                } catch (Exception e) {
-                    ErrorReporter.report(e);
-                    this.state = ServerState.ERROR;
-                    return;
-                }
+        // Loop through the maps in the current game
+        for (int matchIndex = 0; matchIndex < currentGame.getMaps().length; matchIndex++) {
 
-                switch (winner) {
-                    case A:
-                        aWins++;
-                        break;
-                    case B:
-                        bWins++;
-                        break;
-                    default:
-                        warn("Team "+winner+" won???");
-                }
+            Team winner;
+            try {
+                winner = runMatch(currentGame, matchIndex, prov, teamMemory, gameMaker);
+            } catch (Exception e) {
+                ErrorReporter.report(e);
+                gameMaker.abandon();
+                this.state = ServerState.ERROR;
+                return null;
+            }
+
+            switch (winner) {
+                case A:
+                    aWins++;
+                    break;
+                case B:
+                    bWins++;
+                    break;
+                default:
+                    warn("Team "+winner+" won???");
+            }
 
-                teamMemory = currentWorld.getTeamInfo().getTeamMemory();
-                currentWorld = null;
+            teamMemory = currentWorld.getTeamInfo().getTeamMemory();
+            currentWorld = null;
 
-                if (currentGame.isBestOfThree()) {
-                    if (aWins == 2 || bWins == 2) {
-                        break;
-                    }
+            if (currentGame.isBestOfThree()) {
+                if (aWins == 2 || bWins == 2) {
+                    break;
                 }
             }
-            Team winner = aWins >= bWins ? Team.A : Team.B;
-            gameMaker.makeGameFooter(winner);
-            gameMaker.writeGame(currentGame.getSaveFile());
+        }
+        Team winner = aWins >= bWins ? Team.A : Team.B;
+        gameMaker.makeGameFooter(winner);
+        writeGame(gameMaker, currentGame.getSaveFile());
+        return winner;
+    }
+
+    /**
+     * Write a finished game to its save file, off this thread; see
+     * finishWrites.
+     */
+    private void writeGame(GameMaker gameMaker, File saveFile) {
+        if (gameWriter == null) {
+            gameWriter = Executors.newSingleThreadExecutor(r -> new Thread(r, "game-writer"));
+        }
+        while (pendingWrites.size() >= MAX_PENDING_WRITES) {
+            finishOldestWrite();
+        }
+        pendingWrites.add(gameWriter.submit(() -> gameMaker.writeGame(saveFile)));
+        pendingWriteFiles.add(saveFile);
+    }
+
+    /**
+     * Wait for every game run so far to be written to its save file.
+     * Called at the end of run; if you call runGame yourself, call this
+     * before reading the save file.
+     */
+    public void finishWrites() {
+        while (!pendingWrites.isEmpty()) {
+            finishOldestWrite();
+        }
+        if (gameWriter != null) {
+            gameWriter.shutdown();
+            gameWriter = null;
+        }
+        if (compressionPool != null) {
+            compressionPool.shutdown();
+            compressionPool = null;
+        }
+    }
+
+    private void finishOldestWrite() {
+        final File saveFile = pendingWriteFiles.remove();
+        try {
+            pendingWrites.remove().get();
+        } catch (ExecutionException e) {
+            ErrorReporter.report(e.getCause(), "Couldn't write game to " + saveFile, true);
+            this.state = ServerState.ERROR;
+        } catch (InterruptedException e) {
+            warn("Interrupted while writing game to " + saveFile);
+            Thread.currentThread().interrupt();
+            this.state = ServerState.ERROR;
         }
     }
 
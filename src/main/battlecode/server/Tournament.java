@@ -0,0 +1,137 @@
+package battlecode.server;
+
+import battlecode.common.Team;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many independent games at once, on a fixed pool of worker threads.
+ *
+ * Every game runs on its own Server instance, and so gets its own
+ * GameWorld, GameMaker and control providers; since every robot is
+ * loaded by its own class loader, robots in different games never share a
+ * RobotMonitor. Games don't share any other mutable state, so each game
+ * plays out exactly as it would if it were run alone.
+ *
+ * Games aren't streamed to clients; each one is written to its own
+ * save file.
+ */
+public class Tournament {
+
+    /**
+     * The options to run games with.
+     */
+    private final Config options;
+
+    /**
+     * How many games to run at once.
+     */
+    private final int parallelGames;
+
+    /**
+     * @param options the options to run games with
+     * @param parallelGames how many games to run at once, or 0 for one per
+     *                      available processor
+     */
+    public Tournament(Config options, int parallelGames) {
+        if (parallelGames < 0) {
+            throw new IllegalArgumentException("Invalid number of parallel games: " + parallelGames);
+        }
+        this.options = options;
+        this.parallelGames = parallelGames > 0 ? parallelGames : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Run every game, and wait for them all to finish.
+     *
+     * @param games the games to run
+     * @return the winner of each game, in the same order as the games,
+     *         with null for games that failed to run or be written
+     * @throws InterruptedException if interrupted while waiting for games
+     */
+    public Team[] run(List<GameInfo> games) throws InterruptedException {
+        final AtomicInteger workerCount = new AtomicInteger();
+        final ExecutorService workers = Executors.newFixedThreadPool(
+                Math.min(parallelGames, Math.max(1, games.size())),
+                r -> new Thread(r, "tournament-game-" + workerCount.incrementAndGet())
+        );
+
+        try {
+            final List<Future<Team>> results = new ArrayList<>(games.size());
+            for (GameInfo game : games) {
+                results.add(workers.submit(() -> {
+                    final Server server = new Server(options, false);
+                    final Team winner = server.runGame(game, null);
+                    server.finishWrites();
+                    // finishWrites reports games it couldn't write
+                    return server.getState() == ServerState.ERROR ? null : winner;
+                }));
+            }
+
+            final Team[] winners = new Team[games.size()];
+            for (int i = 0; i < winners.length; i++) {
+                try {
+                    winners[i] = results.get(i).get();
+                } catch (ExecutionException e) {
+                    ErrorReporter.report(e.getCause(), "Game failed: " + games.get(i), true);
+                }
+            }
+            return winners;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Read a list of games from a file, one game per line:
+     *
+     * <pre>
+     * teamA teamAURL teamB teamBURL map1,map2,map3 saveFile
+     * </pre>
+     *
+     * Blank lines and lines starting with # are ignored. Each team's package
+     * is its name, and games are best-of-three if bc.game.best-of-three is
+     * set and they have exactly three maps.
+     *
+     * @param file the file to read
+     * @param options the options to read bc.game.best-of-three from
+     * @return the games in the file, in order
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if a line is malformed
+     */
+    public static List<GameInfo> readGames(File file, Config options) throws IOException {
+        final List<GameInfo> games = new ArrayList<>();
+        final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        for (int lineNumber = 1; lineNumber <= lines.size(); lineNumber++) {
+            final String line = lines.get(lineNumber - 1).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            final String[] fields = line.split("\\s+");
+            if (fields.length != 6) {
+                throw new IllegalArgumentException(file + ":" + lineNumber +
+                        ": expected \"teamA teamAURL teamB teamBURL maps saveFile\", got: " + line);
+            }
+            final String[] maps = fields[4].split(",");
+            games.add(new GameInfo(
+                    fields[0], fields[0], fields[1],
+                    fields[2], fields[2], fields[3],
+                    maps,
+                    new File(fields[5]),
+                    options.getBoolean("bc.game.best-of-three") && maps.length == 3
+            ));
+        }
+        return games;
+    }
+}
@@ -0,0 +1,209 @@
+package battlecode.util;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A column of ints, floats, or bytes on its way into a flatbuffer vector.
+ *
+ * Values are stored the way the vector lays them out, so the whole column
+ * goes into a builder in one copy, rather than value by value. Clearing a
+ * column keeps its storage, so once a column has grown to fit a round's
+ * worth of values, filling and writing it again allocates nothing.
+ */
+public final class FlatColumn {
+    /**
+     * How many values a new column has room for.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * How many bytes each value takes: 4 for ints and floats, 1 for bytes.
+     */
+    private final int valueSize;
+
+    /**
+     * The values, little-endian, from 0 until length. Kept at position 0
+     * and limit capacity between calls.
+     */
+    private ByteBuffer data;
+
+    /**
+     * How many bytes of data are values.
+     */
+    private int length;
+
+    private FlatColumn(int valueSize) {
+        this.valueSize = valueSize;
+        this.data = ByteBuffer.allocate(INITIAL_CAPACITY * valueSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return a new, empty column of ints
+     */
+    public static FlatColumn ints() {
+        return new FlatColumn(4);
+    }
+
+    /**
+     * @return a new, empty column of floats
+     */
+    public static FlatColumn floats() {
+        return new FlatColumn(4);
+    }
+
+    /**
+     * @return a new, empty column of bytes
+     */
+    public static FlatColumn bytes() {
+        return new FlatColumn(1);
+    }
+
+    public void addInt(int value) {
+        makeRoom(4);
+        data.putInt(length, value);
+        length += 4;
+    }
+
+    public void addFloat(float value) {
+        makeRoom(4);
+        data.putFloat(length, value);
+        length += 4;
+    }
+
+    public void addByte(byte value) {
+        makeRoom(1);
+        data.put(length, value);
+        length += 1;
+    }
+
+    /**
+     * @return how many values are in the column
+     */
+    public int size() {
+        return length / valueSize;
+    }
+
+    /**
+     * Empty the column, keeping its storage.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * Write the column to a builder as a vector; in one copy if the builder
+     * is a FlatColumn.Builder, or value by value otherwise.
+     *
+     * Call like so:
+     * int xyzP = xyz.createVector(builder);
+     *
+     * @param builder the builder to write to
+     * @return the vector's offset
+     */
+    public int createVector(FlatBufferBuilder builder) {
+        if (builder instanceof Builder) {
+            return ((Builder) builder).createVector(this);
+        }
+
+        builder.startVector(valueSize, size(), valueSize);
+        // arrays go backwards in flatbuffers
+        for (int i = length - valueSize; i >= 0; i -= valueSize) {
+            if (valueSize == 1) {
+                builder.putByte(data.get(i));
+            } else {
+                builder.putInt(data.getInt(i));
+            }
+        }
+        return builder.endVector();
+    }
+
+    /**
+     * A FlatBufferBuilder that takes a column in one copy.
+     *
+     * flatbuffers-java 1.4.0.1, the version build.gradle pins, has no bulk
+     * vector API. Its createString(ByteBuffer) is the one method that copies
+     * a whole buffer in, and it starts its vector of bytes by calling
+     * startVector, which we can override. copyVector is the only place that
+     * relies on that; it checks the override really was called, and
+     * FlatColumnTest fails if the version changes, so a dependency bump
+     * can't quietly write bad vectors.
+     */
+    public static class Builder extends FlatBufferBuilder {
+        /**
+         * The element size and count of the vector being copied in, if any.
+         */
+        private int copyElemSize;
+        private int copyNumElems;
+        private boolean copying;
+        private boolean copyStarted;
+
+        public Builder() {
+            super();
+        }
+
+        public Builder(int initialSize) {
+            super(initialSize);
+        }
+
+        private int createVector(FlatColumn column) {
+            column.data.limit(column.length);
+            try {
+                return copyVector(column.data, column.valueSize);
+            } finally {
+                column.data.clear();
+            }
+        }
+
+        /**
+         * Write a vector in one copy, by having createString start a vector
+         * of the values instead of a vector of bytes. Leaves a zero byte
+         * after the vector, which nothing refers to.
+         *
+         * @param values the values, little-endian, between position and limit
+         * @param elemSize the size of each value, which is also its alignment
+         * @return the vector's offset
+         */
+        private int copyVector(ByteBuffer values, int elemSize) {
+            copyElemSize = elemSize;
+            copyNumElems = values.remaining() / elemSize;
+            copying = true;
+            copyStarted = false;
+            final int vectorP;
+            try {
+                vectorP = createString(values);
+            } finally {
+                copying = false;
+            }
+            if (!copyStarted) {
+                throw new IllegalStateException(
+                        "createString didn't start its vector with startVector; "
+                                + "FlatColumn.Builder doesn't work with this version of flatbuffers");
+            }
+            return vectorP;
+        }
+
+        @Override
+        public void startVector(int elemSize, int numElems, int alignment) {
+            if (copying) {
+                copyStarted = true;
+                super.startVector(copyElemSize, copyNumElems, copyElemSize);
+            } else {
+                super.startVector(elemSize, numElems, alignment);
+            }
+        }
+    }
+
+    private void makeRoom(int bytes) {
+        if (length + bytes > data.capacity()) {
+            final ByteBuffer bigger = ByteBuffer.allocate(Math.max(data.capacity() * 2, length + bytes))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            data.limit(length);
+            bigger.put(data);
+            bigger.clear();
+            data = bigger;
+        }
+    }
+}
@@ -12,6 +12,8 @@ import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TByteArrayList;
 import gnu.trove.list.array.TFloatArrayList;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.List;
 import java.util.function.ObjIntConsumer;
 
@@ -142,6 +144,15 @@ public class FlatHelpers {
         return VecTable.createVecTable(builder, xsP, ysP);
     }
 
+    public static int createVecTable(FlatBufferBuilder builder, FlatColumn xs, FlatColumn ys) {
+        if (xs.size() != ys.size()) {
+            throw new RuntimeException("Mismatched x/y length: "+xs.size()+" != "+ys.size());
+        }
+        int xsP = xs.createVector(builder);
+        int ysP = ys.createVector(builder);
+        return VecTable.createVecTable(builder, xsP, ysP);
+    }
+
     public static int createRGBTable(FlatBufferBuilder builder, TIntList red, TIntList green, TIntList blue) {
         if (red.size() != green.size() || green.size() != blue.size()) {
             throw new RuntimeException("Mismatched lengths: "+red.size()+", "+green.size()+", "+blue.size());
@@ -151,4 +162,50 @@ public class FlatHelpers {
         int blueP = intVector(builder, blue, RGBTable::startBlueVector);
         return RGBTable.createRGBTable(builder, redP, greenP, blueP);
     }
+
+    public static int createRGBTable(FlatBufferBuilder builder, FlatColumn red, FlatColumn green, FlatColumn blue) {
+        if (red.size() != green.size() || green.size() != blue.size()) {
+            throw new RuntimeException("Mismatched lengths: "+red.size()+", "+green.size()+", "+blue.size());
+        }
+        int redP = red.createVector(builder);
+        int greenP = green.createVector(builder);
+        int blueP = blue.createVector(builder);
+        return RGBTable.createRGBTable(builder, redP, greenP, blueP);
+    }
+
+    /**
+     * Copy a finished flatbuffer into a builder, so that its root table can
+     * be referred to like any other table in the builder.
+     *
+     * All offsets in a flatbuffer are relative, so the copied tables work
+     * as-is, as long as the copy keeps their alignment; this saves having
+     * to rebuild them field by field.
+     *
+     * Call like so:
+     * int eventP = addFinishedBuffer(builder, otherBuilder.dataBuffer());
+     *
+     * @param builder the builder to copy into
+     * @param finished a finished flatbuffer, between its position and limit
+     * @return the offset of the copy's root table
+     */
+    public static int addFinishedBuffer(FlatBufferBuilder builder, ByteBuffer finished) {
+        final ByteBuffer source = finished.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int start = source.position();
+        final int length = source.remaining();
+        // finish() pads buffers to a multiple of their largest alignment
+        if (length < 4 || length % 4 != 0) {
+            throw new IllegalArgumentException("Not a finished flatbuffer: " + length + " bytes");
+        }
+
+        final int root = source.getInt(start);
+
+        // Nothing in a flatbuffer is aligned to more than 8 bytes, so line the copy up on 8.
+        // The builder fills backwards, so copy the last word first
+        builder.prep(8, length);
+        for (int i = start + length - 4; i >= start; i -= 4) {
+            builder.putInt(source.getInt(i));
+        }
+        // A finished buffer starts with the position of its root table
+        return builder.offset() - root;
+    }
 }
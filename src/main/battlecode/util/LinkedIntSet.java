@@ -0,0 +1,189 @@
+package battlecode.util;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.procedure.TIntProcedure;
+
+/**
+ * An ordered set of ints, stored as a doubly linked list threaded through
+ * hash maps keyed by the values themselves.
+ *
+ * Appending, inserting before an existing value, and removing a value are
+ * all O(1) (expected), unlike a list that has to search and shift.
+ *
+ * Iteration with forEach() sees the set as it was when iteration started:
+ * values removed during iteration are skipped, and values added during
+ * iteration are not visited. The set may be modified freely while it is
+ * being iterated over.
+ */
+public final class LinkedIntSet {
+
+    /**
+     * Marks the ends of the list. Not a legal value.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private final TIntIntHashMap next;
+    private final TIntIntHashMap prev;
+
+    /**
+     * When each value was added, used to skip values added mid-iteration.
+     */
+    private final TIntIntHashMap addedAt;
+    private int addCount;
+
+    private int head;
+    private int tail;
+
+    /**
+     * The next value an in-progress forEach() will look at, or NONE.
+     * Kept here so that remove() can step it past a removed value.
+     */
+    private int cursor;
+    private boolean iterating;
+
+    public LinkedIntSet() {
+        this.next = new TIntIntHashMap(16, 0.5f, NONE, NONE);
+        this.prev = new TIntIntHashMap(16, 0.5f, NONE, NONE);
+        this.addedAt = new TIntIntHashMap(16, 0.5f, NONE, NONE);
+        this.head = NONE;
+        this.tail = NONE;
+        this.cursor = NONE;
+    }
+
+    /**
+     * Add a value to the end of the set.
+     *
+     * @param value the value to add; must not already be in the set
+     */
+    public void add(int value) {
+        checkNew(value);
+        link(value, tail, NONE);
+    }
+
+    /**
+     * Add a value immediately before another value in the set.
+     *
+     * @param before the value to insert in front of
+     * @param value the value to add; must not already be in the set
+     */
+    public void insertBefore(int before, int value) {
+        if (!contains(before)) {
+            throw new IllegalArgumentException("Not in set: " + before);
+        }
+        checkNew(value);
+        link(value, prev.get(before), before);
+    }
+
+    /**
+     * Remove a value from the set.
+     *
+     * @param value the value to remove
+     * @return whether the value was in the set
+     */
+    public boolean remove(int value) {
+        if (!contains(value)) {
+            return false;
+        }
+        final int before = prev.remove(value);
+        final int after = next.remove(value);
+        addedAt.remove(value);
+
+        if (cursor == value) {
+            cursor = after;
+        }
+
+        if (before == NONE) {
+            head = after;
+        } else {
+            next.put(before, after);
+        }
+        if (after == NONE) {
+            tail = before;
+        } else {
+            prev.put(after, before);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return addedAt.containsKey(value);
+    }
+
+    public int size() {
+        return addedAt.size();
+    }
+
+    /**
+     * Apply an operation to every value in order.
+     * Values removed before they are reached are skipped, and values
+     * added after iteration started are not visited. Must not be called
+     * from within another forEach() on the same set.
+     *
+     * @param op a lambda (value) -> boolean; return false to stop iterating
+     */
+    public void forEach(TIntProcedure op) {
+        if (iterating) {
+            throw new IllegalStateException("Already iterating");
+        }
+        final int limit = addCount;
+        iterating = true;
+        try {
+            cursor = head;
+            while (cursor != NONE) {
+                final int value = cursor;
+                cursor = next.get(value);
+                if (addedAt.get(value) >= limit) {
+                    continue;
+                }
+                if (!op.execute(value)) {
+                    break;
+                }
+            }
+        } finally {
+            cursor = NONE;
+            iterating = false;
+        }
+    }
+
+    /**
+     * @return the values in the set, in order
+     */
+    public int[] toArray() {
+        final int[] result = new int[size()];
+        int i = 0;
+        for (int value = head; value != NONE; value = next.get(value)) {
+            result[i++] = value;
+        }
+        return result;
+    }
+
+    // ****************************
+    // *** PRIVATE METHODS ********
+    // ****************************
+
+    private void checkNew(int value) {
+        if (value == NONE) {
+            throw new IllegalArgumentException("Illegal value: " + value);
+        }
+        if (contains(value)) {
+            throw new IllegalArgumentException("Already in set: " + value);
+        }
+    }
+
+    private void link(int value, int before, int after) {
+        prev.put(value, before);
+        next.put(value, after);
+        addedAt.put(value, addCount++);
+
+        if (before == NONE) {
+            head = value;
+        } else {
+            next.put(before, value);
+        }
+        if (after == NONE) {
+            tail = value;
+        } else {
+            prev.put(after, value);
+        }
+    }
+}
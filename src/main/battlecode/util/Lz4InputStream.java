@@ -0,0 +1,184 @@
+package battlecode.util;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads back what Lz4OutputStream writes.
+ *
+ * Not thread-safe.
+ */
+public final class Lz4InputStream extends InputStream {
+
+    private final DataInputStream in;
+
+    private final byte[] compressed = new byte[Lz4OutputStream.maxCompressedLength(Lz4OutputStream.BLOCK_SIZE)];
+
+    /**
+     * The block being read, from position until length.
+     */
+    private final byte[] block = new byte[Lz4OutputStream.BLOCK_SIZE];
+    private int blockLength;
+    private int position;
+
+    private boolean finished;
+
+    /**
+     * @param in the stream to read compressed input from
+     */
+    public Lz4InputStream(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == blockLength && !readBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == blockLength && !readBlock()) {
+            return -1;
+        }
+        final int copied = Math.min(len, blockLength - position);
+        System.arraycopy(block, position, b, off, copied);
+        position += copied;
+        return copied;
+    }
+
+    @Override
+    public int available() {
+        return blockLength - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return false if the stream has ended
+     */
+    private boolean readBlock() throws IOException {
+        if (finished) {
+            return false;
+        }
+        final int length;
+        try {
+            length = Integer.reverseBytes(in.readInt());
+        } catch (EOFException e) {
+            throw new IOException("Corrupt LZ4 stream: ends without an end marker");
+        }
+        position = 0;
+
+        if (length == 0) {
+            finished = true;
+            blockLength = 0;
+            return false;
+        } else if ((length & Lz4OutputStream.STORED) != 0) {
+            blockLength = length & ~Lz4OutputStream.STORED;
+            if (blockLength > block.length) {
+                throw new IOException("Corrupt LZ4 stream: block of " + blockLength + " bytes");
+            }
+            in.readFully(block, 0, blockLength);
+        } else {
+            if (length > compressed.length) {
+                throw new IOException("Corrupt LZ4 stream: block of " + length + " bytes");
+            }
+            in.readFully(compressed, 0, length);
+            blockLength = decompress(compressed, length, block);
+        }
+        if (blockLength == 0) {
+            throw new IOException("Corrupt LZ4 stream: empty block");
+        }
+        return true;
+    }
+
+    /**
+     * Decompress a block in LZ4's block format.
+     *
+     * @param src the compressed block
+     * @param srcLength how long it is
+     * @param dst where to decompress it to
+     * @return how many bytes it decompressed to
+     * @throws IOException if the block is corrupt, or too big for dst
+     */
+    static int decompress(byte[] src, int srcLength, byte[] dst) throws IOException {
+        int ip = 0;
+        int op = 0;
+        while (true) {
+            if (ip >= srcLength) {
+                throw corrupt();
+            }
+            final int token = src[ip++] & 0xff;
+
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int extra;
+                do {
+                    if (ip >= srcLength) {
+                        throw corrupt();
+                    }
+                    extra = src[ip++] & 0xff;
+                    literalLength += extra;
+                } while (extra == 255);
+            }
+            if (literalLength > srcLength - ip || literalLength > dst.length - op) {
+                throw corrupt();
+            }
+            System.arraycopy(src, ip, dst, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+
+            // the last sequence is only literals
+            if (ip == srcLength) {
+                return op;
+            }
+
+            if (ip + 2 > srcLength) {
+                throw corrupt();
+            }
+            final int offset = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+            ip += 2;
+
+            int matchLength = token & 15;
+            if (matchLength == 15) {
+                int extra;
+                do {
+                    if (ip >= srcLength) {
+                        throw corrupt();
+                    }
+                    extra = src[ip++] & 0xff;
+                    matchLength += extra;
+                } while (extra == 255);
+            }
+            matchLength += Lz4OutputStream.MIN_MATCH;
+
+            if (offset == 0 || offset > op || matchLength > dst.length - op) {
+                throw corrupt();
+            }
+            int ref = op - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dst, ref, dst, op, matchLength);
+                op += matchLength;
+            } else {
+                // the match overlaps what it's copying, so repeats it
+                for (int i = 0; i < matchLength; i++) {
+                    dst[op++] = dst[ref++];
+                }
+            }
+        }
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Corrupt LZ4 block");
+    }
+}
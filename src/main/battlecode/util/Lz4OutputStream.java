@@ -0,0 +1,249 @@
+package battlecode.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compresses with LZ4's block format: fast to write and to read, at the
+ * cost of a worse ratio than deflate. Lz4InputStream reads it back.
+ *
+ * The input is cut into blocks of BLOCK_SIZE, each compressed by itself.
+ * Each block is written after its length, little-endian; a length with
+ * STORED set is a block that didn't compress, written as it is. A length
+ * of 0 ends the stream.
+ *
+ * Not thread-safe.
+ */
+public final class Lz4OutputStream extends OutputStream {
+    /**
+     * How much input each block holds; as far back as LZ4 can refer.
+     */
+    public static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Set in a block's length if the block is stored uncompressed.
+     */
+    static final int STORED = 1 << 31;
+
+    static final int MIN_MATCH = 4;
+
+    /**
+     * A block's last literals take up at least this many bytes, and its
+     * last match starts at least MATCH_LIMIT bytes from its end, as the
+     * format requires.
+     */
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_LIMIT = 12;
+
+    private static final int HASH_LOG = 14;
+
+    /**
+     * After this many misses in a row, start skipping ahead faster, so that
+     * input that doesn't compress doesn't take long.
+     */
+    private static final int SKIP_TRIGGER = 6;
+
+    private final OutputStream out;
+
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+
+    private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE) + 4];
+
+    /**
+     * Where in the block we last saw each hash of four bytes.
+     */
+    private final int[] table = new int[1 << HASH_LOG];
+
+    private boolean finished;
+
+    /**
+     * @param out the stream to write compressed output to
+     */
+    public Lz4OutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Can't write, stream already finished");
+        }
+        while (len > 0) {
+            final int copied = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, copied);
+            blockLength += copied;
+            off += copied;
+            len -= copied;
+
+            if (blockLength == BLOCK_SIZE) {
+                writeBlock();
+            }
+        }
+    }
+
+    /**
+     * Write everything that's left and the end of the stream, without
+     * closing the underlying stream.
+     *
+     * @throws IOException if writing fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        if (blockLength > 0) {
+            writeBlock();
+        }
+        putLength(0);
+        out.write(compressed, 0, 4);
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        final int length = compress(block, blockLength, compressed, 4, table);
+        if (length < blockLength) {
+            putLength(length);
+            out.write(compressed, 0, 4 + length);
+        } else {
+            putLength(blockLength | STORED);
+            out.write(compressed, 0, 4);
+            out.write(block, 0, blockLength);
+        }
+        blockLength = 0;
+    }
+
+    /**
+     * Put a block's length in front of where it's compressed to.
+     */
+    private void putLength(int length) {
+        compressed[0] = (byte) length;
+        compressed[1] = (byte) (length >>> 8);
+        compressed[2] = (byte) (length >>> 16);
+        compressed[3] = (byte) (length >>> 24);
+    }
+
+    /**
+     * @param length how many bytes will be compressed
+     * @return the most space compressing them can take
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress a block into LZ4's block format.
+     *
+     * @param src the block
+     * @param srcLength how much of it to compress
+     * @param dst where to put the compressed block; must have room for
+     *            maxCompressedLength(srcLength) bytes after dstOffset
+     * @param dstOffset where in dst to start
+     * @param table scratch space of 1 << HASH_LOG entries
+     * @return how many bytes the compressed block takes
+     */
+    static int compress(byte[] src, int srcLength, byte[] dst, int dstOffset, int[] table) {
+        Arrays.fill(table, -1);
+
+        int op = dstOffset;
+        int anchor = 0;
+        int ip = 0;
+        final int matchLimit = srcLength - MATCH_LIMIT;
+        final int literalLimit = srcLength - LAST_LITERALS;
+
+        int misses = 0;
+        while (ip < matchLimit) {
+            final int sequence = readInt(src, ip);
+            final int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+            int ref = table[hash];
+            table[hash] = ip;
+
+            if (ref < 0 || readInt(src, ref) != sequence) {
+                ip += 1 + (misses++ >>> SKIP_TRIGGER);
+                continue;
+            }
+            misses = 0;
+
+            // take in any matching bytes before, that we skipped past
+            while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+                ip--;
+                ref--;
+            }
+            int matchLength = MIN_MATCH;
+            while (ip + matchLength < literalLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                matchLength++;
+            }
+
+            op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+            ip += matchLength;
+            anchor = ip;
+        }
+
+        op = writeSequence(src, anchor, srcLength - anchor, dst, op, 0, 0);
+        return op - dstOffset;
+    }
+
+    /**
+     * Write some literals and the match after them, or just literals if
+     * matchLength is 0.
+     *
+     * @return where the sequence ends in dst
+     */
+    private static int writeSequence(byte[] src, int literalStart, int literalLength,
+                                     byte[] dst, int op, int offset, int matchLength) {
+        final int tokenPos = op++;
+        int token = Math.min(literalLength, 15) << 4;
+        if (literalLength >= 15) {
+            op = writeLengthBytes(dst, op, literalLength - 15);
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        op += literalLength;
+
+        if (matchLength > 0) {
+            dst[op++] = (byte) offset;
+            dst[op++] = (byte) (offset >>> 8);
+            final int extra = matchLength - MIN_MATCH;
+            token |= Math.min(extra, 15);
+            if (extra >= 15) {
+                op = writeLengthBytes(dst, op, extra - 15);
+            }
+        }
+        dst[tokenPos] = (byte) token;
+        return op;
+    }
+
+    private static int writeLengthBytes(byte[] dst, int op, int length) {
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xff) | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff) << 16 | (src[i + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,248 @@
+package battlecode.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzips on a pool of threads, the way pigz does: the input is cut into
+ * blocks, and each block is deflated by itself on the pool, primed with the
+ * end of the block before it so that little compression is lost.
+ *
+ * Blocks end on a byte boundary (a sync flush), so they're written one after
+ * another as a single deflate stream, in a single gzip member. The output is
+ * an ordinary gzip file, which any gzip reader (GZIPInputStream, the
+ * client, gunzip) can read.
+ *
+ * Not thread-safe; only the compression itself happens on the pool.
+ */
+public final class ParallelGzipOutputStream extends OutputStream {
+    /**
+     * How much input each block holds; the same as pigz.
+     */
+    public static final int BLOCK_SIZE = 1 << 17;
+
+    /**
+     * How much of the previous block to prime each block with: all that
+     * deflate can refer back to.
+     */
+    private static final int DICTIONARY_SIZE = 1 << 15;
+
+    /**
+     * The same header GZIPOutputStream writes, but for the extra flags.
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int EXTRA_FLAGS = 8;
+
+    private final OutputStream out;
+    private final ExecutorService pool;
+    private final int level;
+
+    /**
+     * How many blocks can be compressing at once, before we wait for the
+     * oldest one to be written.
+     */
+    private final int maxPending;
+
+    /**
+     * Blocks being compressed, oldest first.
+     */
+    private final ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+
+    private final CRC32 crc = new CRC32();
+    private long size;
+
+    /**
+     * The block being filled, and the full one before it.
+     */
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private byte[] previous;
+
+    private boolean finished;
+
+    /**
+     * @param out the stream to write the gzipped output to
+     * @param pool the pool to compress on
+     * @param threads how many threads the pool has; up to twice as many
+     *                blocks are kept compressing at once
+     * @param level the compression level, as for Deflater
+     * @throws IOException if the header can't be written
+     */
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService pool, int threads, int level)
+            throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.out = out;
+        this.pool = pool;
+        this.level = level;
+        this.maxPending = 2 * threads;
+
+        // say whether we compressed hardest or fastest, as gzip does
+        final byte[] header = HEADER.clone();
+        header[EXTRA_FLAGS] = (byte) (level == Deflater.BEST_COMPRESSION ? 2 : level == Deflater.BEST_SPEED ? 4 : 0);
+        out.write(header);
+    }
+
+    /**
+     * Compress at the default level.
+     *
+     * @see #ParallelGzipOutputStream(OutputStream, ExecutorService, int, int)
+     */
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService pool, int threads) throws IOException {
+        this(out, pool, threads, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Can't write, stream already finished");
+        }
+        crc.update(b, off, len);
+        size += len;
+
+        while (len > 0) {
+            final int copied = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, copied);
+            blockLength += copied;
+            off += copied;
+            len -= copied;
+
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Write everything that's left and the gzip trailer, without closing
+     * the underlying stream.
+     *
+     * @throws IOException if compressing or writing fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        submitBlock(true);
+        while (!pending.isEmpty()) {
+            writeOldest();
+        }
+
+        final ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        trailer.putInt((int) crc.getValue());
+        trailer.putInt((int) size);
+        out.write(trailer.array());
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            // don't leave blocks compressing if we failed
+            for (Future<ByteBuffer> block : pending) {
+                block.cancel(true);
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Hand the current block to the pool, and start a new one.
+     */
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] input = block;
+        final int length = blockLength;
+        final byte[] dictionary = previous;
+        pending.add(pool.submit(() -> compress(input, length, dictionary, last)));
+
+        previous = block;
+        block = last ? null : new byte[BLOCK_SIZE];
+        blockLength = 0;
+
+        // write whatever's done, and wait if too much is in flight
+        while (!pending.isEmpty() && (pending.size() > maxPending || pending.peek().isDone())) {
+            writeOldest();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        final ByteBuffer compressed;
+        try {
+            compressed = pending.peek().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Compressing failed", e.getCause());
+        }
+        pending.remove();
+        out.write(compressed.array(), 0, compressed.limit());
+    }
+
+    /**
+     * Deflate one block.
+     *
+     * @param input the block
+     * @param length how much of it to compress
+     * @param dictionary the block before, whose end the block may refer
+     *                   to; null for the first block
+     * @param last whether this is the last block, which ends the stream
+     * @return the deflated block, from 0 to its limit
+     */
+    private ByteBuffer compress(byte[] input, int length, byte[] dictionary, boolean last) {
+        final Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(input, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+
+            byte[] output = new byte[length / 2 + 64];
+            int written = 0;
+            while (true) {
+                if (written == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                final int space = output.length - written;
+                final int count = deflater.deflate(output, written, space,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                written += count;
+                // a sync flush is done once it doesn't fill the space it's given
+                if (last ? deflater.finished() : count < space) {
+                    break;
+                }
+            }
+            return ByteBuffer.wrap(output, 0, written);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package battlecode.world;
+
+import battlecode.common.Direction;
+import battlecode.common.GameConstants;
+import battlecode.common.MapLocation;
+import battlecode.world.index.GridCells;
+import battlecode.world.index.GridMatches;
+import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.procedure.TObjectProcedure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Works out which trees every bullet will hit in a round, in one batch
+ * before the round's bodies update.
+ *
+ * Trees never move, so each tree is registered in every cell of a fixed
+ * grid that its circle touches. A bullet then only has to look at the few
+ * cells its path crosses, rather than searching the huge circle that
+ * NEUTRAL_TREE_MAX_RADIUS forces on a plain radius query.
+ *
+ * The world still changes while the round runs, so the plans are checked
+ * when each bullet updates: trees destroyed since planning are skipped,
+ * and trees planted since planning are tested directly. Ties are broken
+ * by the key every BodyIndex backend sorts its matches by
+ * (GridMatches.order(), distance from the middle of the bullet's path and
+ * then ID), so the result is always the tree the live query would have
+ * found, whichever backend is configured.
+ *
+ * Robots move between bullet updates, so they're still found with a live
+ * query when each bullet updates.
+ */
+public strictfp class BulletSweep {
+
+    /**
+     * How far outside their circles trees are registered, to absorb
+     * rounding in the broadphase. Hits are always confirmed exactly.
+     */
+    private static final float SLACK = 0.01f;
+
+    private final ObjectInfo objectInfo;
+
+    private final GridCells grid;
+
+    /**
+     * The trees touching each cell of the grid.
+     */
+    private final InternalTree[][] cellTrees;
+    private final int[] cellSizes;
+
+    /**
+     * Whether a pass is running, i.e. between begin() and end().
+     */
+    private boolean sweeping;
+
+    /**
+     * Each planned bullet's hits, packed as (first hit << 32 | hit count).
+     */
+    private final TIntLongHashMap plans;
+
+    /**
+     * Every planned hit, grouped by bullet and sorted closest first.
+     */
+    private InternalTree[] hitTrees;
+    private float[] hitDists;
+    private long[] hitOrders;
+    private int hitCount;
+
+    /**
+     * Trees planted since the plans were made.
+     */
+    private final ArrayList<InternalTree> plantedTrees;
+
+    /**
+     * The result of the last findTreeHit().
+     */
+    private InternalTree hitTree;
+    private float hitTreeDist;
+
+    private final TObjectProcedure<InternalBullet> planBullet = bullet -> {
+        plan(bullet);
+        return true;
+    };
+
+    /**
+     * @param objectInfo the bodies to sweep
+     * @param origin the lower-left corner of the map
+     * @param width the width of the map
+     * @param height the height of the map
+     * @param cellSize the width and height of each cell
+     */
+    public BulletSweep(ObjectInfo objectInfo, MapLocation origin, float width, float height, float cellSize) {
+        this.objectInfo = objectInfo;
+        this.grid = new GridCells(origin, width, height, cellSize);
+
+        this.cellTrees = new InternalTree[grid.getCellCount()][];
+        this.cellSizes = new int[grid.getCellCount()];
+
+        this.plans = new TIntLongHashMap();
+        this.hitTrees = new InternalTree[16];
+        this.hitDists = new float[16];
+        this.hitOrders = new long[16];
+        this.plantedTrees = new ArrayList<>();
+    }
+
+    // ****************************
+    // *** TREES ******************
+    // ****************************
+
+    public void addTree(InternalTree tree) {
+        final MapLocation loc = tree.getLocation();
+        final float reach = tree.getRadius() + SLACK;
+        final int maxColumn = grid.columnOf(loc.x + reach);
+        final int maxRow = grid.rowOf(loc.y + reach);
+        for (int row = grid.rowOf(loc.y - reach); row <= maxRow; row++) {
+            for (int column = grid.columnOf(loc.x - reach); column <= maxColumn; column++) {
+                append(grid.cell(row, column), tree);
+            }
+        }
+        if (sweeping) {
+            plantedTrees.add(tree);
+        }
+    }
+
+    public void removeTree(InternalTree tree) {
+        final MapLocation loc = tree.getLocation();
+        final float reach = tree.getRadius() + SLACK;
+        final int maxColumn = grid.columnOf(loc.x + reach);
+        final int maxRow = grid.rowOf(loc.y + reach);
+        for (int row = grid.rowOf(loc.y - reach); row <= maxRow; row++) {
+            for (int column = grid.columnOf(loc.x - reach); column <= maxColumn; column++) {
+                remove(grid.cell(row, column), tree);
+            }
+        }
+    }
+
+    // ****************************
+    // *** SWEEPING ***************
+    // ****************************
+
+    /**
+     * Plan the tree hits of every bullet currently in the world.
+     * Call before the round's bodies update.
+     */
+    public void begin() {
+        end();
+        sweeping = true;
+        objectInfo.eachBullet(planBullet);
+    }
+
+    /**
+     * Throw away this round's plans.
+     * Call after the round's bodies have updated.
+     */
+    public void end() {
+        sweeping = false;
+        if (!plans.isEmpty()) {
+            plans.clear();
+        }
+        Arrays.fill(hitTrees, 0, hitCount, null);
+        hitCount = 0;
+        plantedTrees.clear();
+        hitTree = null;
+    }
+
+    /**
+     * Find the closest tree a bullet hits this round, using the bullet's plan.
+     * The result is available from getHitTree() and getHitTreeDist().
+     *
+     * @param bullet the bullet, which must not have moved since begin()
+     * @param start the bullet's location
+     * @param finish where the bullet will be at the end of its update
+     * @param checkCenter the middle of the bullet's path
+     * @param radius the radius updateBullet() would search for trees around checkCenter
+     * @return false if the bullet has no plan, and the trees have to be searched instead
+     */
+    public boolean findTreeHit(InternalBullet bullet, MapLocation start, MapLocation finish,
+                               MapLocation checkCenter, float radius) {
+        if (!plans.containsKey(bullet.getID())) {
+            return false;
+        }
+        final long plan = plans.get(bullet.getID());
+        final int first = (int) (plan >>> 32);
+        final int end = first + (int) plan;
+
+        hitTree = null;
+        hitTreeDist = Float.MAX_VALUE;
+        long hitOrder = Long.MAX_VALUE;
+
+        // Planned hits are sorted, so the first one still standing is the best of them
+        for (int i = first; i < end; i++) {
+            if (objectInfo.getTreeByID(hitTrees[i].getID()) != null) {
+                hitTree = hitTrees[i];
+                hitTreeDist = hitDists[i];
+                hitOrder = hitOrders[i];
+                break;
+            }
+        }
+
+        for (int i = 0; i < plantedTrees.size(); i++) {
+            final InternalTree tree = plantedTrees.get(i);
+            if (objectInfo.getTreeByID(tree.getID()) == null) {
+                continue;
+            }
+            final float hitDist = hitDist(tree, start, finish, checkCenter, radius);
+            if (!(hitDist >= 0)) {
+                continue;
+            }
+            final long order = order(tree, checkCenter);
+            if (hitTree == null || closer(hitDist, order, hitTreeDist, hitOrder)) {
+                hitTree = tree;
+                hitTreeDist = hitDist;
+                hitOrder = order;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the tree found by the last findTreeHit(), or null if there wasn't one
+     */
+    public InternalTree getHitTree() {
+        return hitTree;
+    }
+
+    /**
+     * @return how far the bullet travels before hitting getHitTree()
+     */
+    public float getHitTreeDist() {
+        return hitTreeDist;
+    }
+
+    // ****************************
+    // *** PRIVATE METHODS ********
+    // ****************************
+
+    private void plan(InternalBullet bullet) {
+        // The same path updateBullet() computes
+        final MapLocation start = bullet.getLocation();
+        final MapLocation finish = start.add(bullet.getDirection(), bullet.getSpeed());
+        final Direction toFinish = start.directionTo(finish);
+        if (toFinish == null) {
+            // Leave degenerate bullets to the live search
+            return;
+        }
+        final float distToFinish = (float) start.distanceTo(finish);
+        final MapLocation checkCenter = start.add(toFinish, distToFinish / 2);
+        final float radius = GameConstants.NEUTRAL_TREE_MAX_RADIUS + distToFinish / 2;
+
+        final int first = hitCount;
+        final int maxColumn = grid.columnOf(Math.max(start.x, finish.x));
+        final int maxRow = grid.rowOf(Math.max(start.y, finish.y));
+        for (int row = grid.rowOf(Math.min(start.y, finish.y)); row <= maxRow; row++) {
+            for (int column = grid.columnOf(Math.min(start.x, finish.x)); column <= maxColumn; column++) {
+                final int cell = grid.cell(row, column);
+                final InternalTree[] trees = cellTrees[cell];
+                for (int i = 0; i < cellSizes[cell]; i++) {
+                    addHit(first, trees[i], start, finish, checkCenter, radius);
+                }
+            }
+        }
+        plans.put(bullet.getID(), ((long) first << 32) | (hitCount - first));
+    }
+
+    private void addHit(int first, InternalTree tree, MapLocation start, MapLocation finish,
+                        MapLocation checkCenter, float radius) {
+        // A tree touching several cells on the path is seen more than once
+        for (int i = first; i < hitCount; i++) {
+            if (hitTrees[i] == tree) {
+                return;
+            }
+        }
+        final float hitDist = hitDist(tree, start, finish, checkCenter, radius);
+        if (!(hitDist >= 0)) {
+            return;
+        }
+        final long order = order(tree, checkCenter);
+
+        if (hitCount == hitTrees.length) {
+            hitTrees = Arrays.copyOf(hitTrees, hitCount * 2);
+            hitDists = Arrays.copyOf(hitDists, hitCount * 2);
+            hitOrders = Arrays.copyOf(hitOrders, hitCount * 2);
+        }
+        // Insertion sort; a bullet only ever hits a handful of trees
+        int slot = hitCount++;
+        while (slot > first && closer(hitDist, order, hitDists[slot - 1], hitOrders[slot - 1])) {
+            hitTrees[slot] = hitTrees[slot - 1];
+            hitDists[slot] = hitDists[slot - 1];
+            hitOrders[slot] = hitOrders[slot - 1];
+            slot--;
+        }
+        hitTrees[slot] = tree;
+        hitDists[slot] = hitDist;
+        hitOrders[slot] = order;
+    }
+
+    /**
+     * @return where along the bullet's path it hits the tree, or -1 if the
+     *         live search wouldn't report the tree as hit
+     */
+    private static float hitDist(InternalTree tree, MapLocation start, MapLocation finish,
+                                 MapLocation checkCenter, float radius) {
+        // The tests ObjectInfo.eachTreeWithinRadius() applies before a tree is even considered
+        final float searchRadius = radius + GameConstants.NEUTRAL_TREE_MAX_RADIUS;
+        if (distanceSq(tree, checkCenter) > searchRadius * searchRadius
+                || !tree.getLocation().isWithinDistance(checkCenter, tree.getRadius() + radius)) {
+            return -1;
+        }
+        return InternalBullet.calcHitDist(start, finish, tree.getLocation(), tree.getRadius());
+    }
+
+    private static float distanceSq(InternalTree tree, MapLocation checkCenter) {
+        return GridMatches.distanceSq(tree.getLocation().x, tree.getLocation().y, checkCenter.x, checkCenter.y);
+    }
+
+    /**
+     * @return the key the tree index orders results by
+     */
+    private static long order(InternalTree tree, MapLocation checkCenter) {
+        return GridMatches.order(distanceSq(tree, checkCenter), tree.getID());
+    }
+
+    /**
+     * The live search keeps the first tree it sees at the smallest hit
+     * distance, and sees trees in the order of their keys.
+     */
+    private static boolean closer(float hitDist, long order, float otherHitDist, long otherOrder) {
+        if (hitDist != otherHitDist) {
+            return hitDist < otherHitDist;
+        }
+        return order < otherOrder;
+    }
+
+    private void append(int cell, InternalTree tree) {
+        final int count = cellSizes[cell];
+        if (cellTrees[cell] == null) {
+            cellTrees[cell] = new InternalTree[4];
+        } else if (count == cellTrees[cell].length) {
+            cellTrees[cell] = Arrays.copyOf(cellTrees[cell], count * 2);
+        }
+        cellTrees[cell][count] = tree;
+        cellSizes[cell] = count + 1;
+    }
+
+    private void remove(int cell, InternalTree tree) {
+        final InternalTree[] trees = cellTrees[cell];
+        final int last = cellSizes[cell] - 1;
+        for (int i = 0; i <= last; i++) {
+            if (trees[i] == tree) {
+                trees[i] = trees[last];
+                trees[last] = null;
+                cellSizes[cell] = last;
+                return;
+            }
+        }
+    }
+}
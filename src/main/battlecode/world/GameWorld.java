@@ -5,6 +5,7 @@ import battlecode.server.ErrorReporter;
 import battlecode.server.GameMaker;
 import battlecode.server.GameState;
 import battlecode.world.control.RobotControlProvider;
+import battlecode.world.control.TurnResult;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.*;
@@ -128,21 +129,27 @@ public strictfp class GameWorld {
     }
 
     private void updateDynamicBodies(){
-        objectInfo.eachDynamicBodyByExecOrder((body) -> {
-            if (body instanceof InternalRobot) {
-                return updateRobot((InternalRobot) body);
-            } else if (body instanceof InternalBullet) {
-                return updateBullet((InternalBullet) body);
-            } else {
-                throw new RuntimeException("non-robot non-bullet body registered as dynamic");
-            }
-        });
+        // Work out every bullet's tree hits up front
+        objectInfo.getBulletSweep().begin();
+        try {
+            objectInfo.eachDynamicBodyByExecOrder((body) -> {
+                if (body instanceof InternalRobot) {
+                    return updateRobot((InternalRobot) body);
+                } else if (body instanceof InternalBullet) {
+                    return updateBullet((InternalBullet) body);
+                } else {
+                    throw new RuntimeException("non-robot non-bullet body registered as dynamic");
+                }
+            });
+        } finally {
+            objectInfo.getBulletSweep().end();
+        }
     }
 
     private boolean updateRobot(InternalRobot robot) {
         robot.processBeginningOfTurn();
-        this.controlProvider.runRobot(robot);
-        robot.setBytecodesUsed(this.controlProvider.getBytecodesUsed(robot));
+        final long turn = this.controlProvider.runTurn(robot);
+        robot.setBytecodesUsed(TurnResult.getBytecodesUsed(turn));
 
         if(robot.getHealth() > 0) { // Only processEndOfTurn if robot is still alive
             robot.processEndOfTurn();
@@ -150,7 +157,7 @@ public strictfp class GameWorld {
 
         // If the robot terminates but the death signal has not yet
         // been visited:
-        if (this.controlProvider.getTerminated(robot) && objectInfo.getRobotByID(robot.getID()) != null) {
+        if (TurnResult.isTerminated(turn) && objectInfo.getRobotByID(robot.getID()) != null) {
             destroyRobot(robot.getID());
         }
         return true;
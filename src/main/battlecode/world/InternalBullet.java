@@ -1,6 +1,7 @@
 package battlecode.world;
 
 import battlecode.common.*;
+import gnu.trove.procedure.TObjectProcedure;
 
 /**
  * The representation of a bullet used by the server.
@@ -23,6 +24,20 @@ public strictfp class InternalBullet implements InternalBody {
      */
     private BulletInfo cachedBulletInfo;
 
+    /**
+     * Scratch state for updateBullet()'s collision checks, along with the
+     * visitors that fill it in; kept here so that updating doesn't allocate
+     * a visitor per query.
+     */
+    private MapLocation scanStart;
+    private MapLocation scanFinish;
+    private InternalTree hitTree;
+    private float hitTreeDist;
+    private InternalRobot hitRobot;
+    private float hitRobotDist;
+    private final TObjectProcedure<InternalTree> checkTreeHit = this::checkTreeHit;
+    private final TObjectProcedure<InternalRobot> checkRobotHit = this::checkRobotHit;
+
     public InternalBullet(GameWorld gw, int id, Team team, float speed, float damage, MapLocation location,
                         Direction dir) {
         this.gameWorld = gw;
@@ -103,31 +118,26 @@ public strictfp class InternalBullet implements InternalBody {
 
         MapLocation checkCenter = bulletStart.add(toFinish, distToFinish/2);
 
-        //Find closest hit tree
-        InternalTree hitTree = null;
-        float hitTreeDist = Float.MAX_VALUE;
-        for(InternalTree tree : gameWorld.getObjectInfo().getAllTreesWithinRadius(checkCenter,
-                GameConstants.NEUTRAL_TREE_MAX_RADIUS + distToFinish/2)){
-            float hitDist = calcHitDist(bulletStart, bulletFinish,
-                    tree.getLocation(), tree.getRadius());
-            if(hitDist < hitTreeDist && hitDist >=0){
-                hitTree = tree;
-                hitTreeDist = hitDist;
-            }
+        scanStart = bulletStart;
+        scanFinish = bulletFinish;
+
+        //Find closest hit tree, from this round's sweep if it covered us
+        hitTree = null;
+        hitTreeDist = Float.MAX_VALUE;
+        BulletSweep sweep = gameWorld.getObjectInfo().getBulletSweep();
+        float treeRadius = GameConstants.NEUTRAL_TREE_MAX_RADIUS + distToFinish/2;
+        if (sweep.findTreeHit(this, bulletStart, bulletFinish, checkCenter, treeRadius)) {
+            hitTree = sweep.getHitTree();
+            hitTreeDist = sweep.getHitTreeDist();
+        } else {
+            gameWorld.getObjectInfo().eachTreeWithinRadius(checkCenter, treeRadius, checkTreeHit);
         }
 
         //Find closest hit robot
-        InternalRobot hitRobot = null;
-        float hitRobotDist = Float.MAX_VALUE;
-        for(InternalRobot robot : gameWorld.getObjectInfo().getAllRobotsWithinRadius(checkCenter,
-                GameConstants.MAX_ROBOT_RADIUS + distToFinish/2)){
-            float hitDist = calcHitDist(bulletStart, bulletFinish,
-                    robot.getLocation(), robot.getType().bodyRadius);
-            if(hitDist < hitRobotDist && hitDist >=0){
-                hitRobot = robot;
-                hitRobotDist = hitDist;
-            }
-        }
+        hitRobot = null;
+        hitRobotDist = Float.MAX_VALUE;
+        gameWorld.getObjectInfo().eachRobotWithinRadius(checkCenter,
+                GameConstants.MAX_ROBOT_RADIUS + distToFinish/2, checkRobotHit);
 
         if(hitRobot == null && hitTree == null) {
             // If bullet didn't hit anything...
@@ -155,12 +165,32 @@ public strictfp class InternalBullet implements InternalBody {
         }
     }
 
+    private boolean checkTreeHit(InternalTree tree) {
+        float hitDist = calcHitDist(scanStart, scanFinish,
+                tree.getLocation(), tree.getRadius());
+        if(hitDist < hitTreeDist && hitDist >=0){
+            hitTree = tree;
+            hitTreeDist = hitDist;
+        }
+        return true;
+    }
+
+    private boolean checkRobotHit(InternalRobot robot) {
+        float hitDist = calcHitDist(scanStart, scanFinish,
+                robot.getLocation(), robot.getType().bodyRadius);
+        if(hitDist < hitRobotDist && hitDist >=0){
+            hitRobot = robot;
+            hitRobotDist = hitDist;
+        }
+        return true;
+    }
+
     // ******************************************
     // ****** CALCULATIONS **********************
     // ******************************************
 
-    private float calcHitDist(MapLocation bulletStart, MapLocation bulletFinish,
-                              MapLocation targetCenter, float targetRadius){
+    static float calcHitDist(MapLocation bulletStart, MapLocation bulletFinish,
+                             MapLocation targetCenter, float targetRadius){
         final float minDist = 0;
         final float maxDist = bulletStart.distanceTo(bulletFinish);
         final float distToTarget = bulletStart.distanceTo(targetCenter);
@@ -4,17 +4,18 @@ import battlecode.common.GameConstants;
 import battlecode.common.MapLocation;
 import battlecode.common.RobotType;
 import battlecode.common.Team;
+import battlecode.server.Config;
+import battlecode.util.LinkedIntSet;
+import battlecode.world.index.BodyIndex;
+import battlecode.world.index.GridBodyIndex;
+import battlecode.world.index.PackedGridBodyIndex;
+import battlecode.world.index.RTreeBodyIndex;
 
-import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.procedure.TIntObjectProcedure;
 import gnu.trove.procedure.TIntProcedure;
 
 import gnu.trove.procedure.TObjectProcedure;
-import net.sf.jsi.SpatialIndex;
-import net.sf.jsi.rtree.RTree;
-import net.sf.jsi.Rectangle;
-import net.sf.jsi.Point;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -35,11 +36,32 @@ public strictfp class ObjectInfo {
     private final TIntObjectHashMap<InternalTree> gameTreesByID;
     private final TIntObjectHashMap<InternalBullet> gameBulletsByID;
 
-    private final SpatialIndex treeIndex;
-    private final SpatialIndex robotIndex;
-    private final SpatialIndex bulletIndex;
+    private final BodyIndex treeIndex;
+    private final BodyIndex robotIndex;
+    private final BodyIndex bulletIndex;
 
-    private final TIntArrayList dynamicBodyExecOrder;
+    private final LinkedIntSet dynamicBodyExecOrder;
+
+    private final BulletSweep bulletSweep;
+
+    private final TreeQuery treeQuery = new TreeQuery();
+    private final RobotQuery robotQuery = new RobotQuery();
+    private final BulletQuery bulletQuery = new BulletQuery();
+
+    /**
+     * Visitors and results for get*AtLocation, kept around so that
+     * those queries don't allocate.
+     */
+    private InternalTree foundTree;
+    private InternalRobot foundRobot;
+    private final TObjectProcedure<InternalTree> findTree = tree -> {
+        foundTree = tree;
+        return false;
+    };
+    private final TObjectProcedure<InternalRobot> findRobot = robot -> {
+        foundRobot = robot;
+        return false;
+    };
 
     private Map<Team, Map<RobotType, Integer>> robotTypeCount = new EnumMap<>(
             Team.class);
@@ -47,6 +69,14 @@ public strictfp class ObjectInfo {
     private int[] treeCount = new int[3];
 
     public ObjectInfo(LiveMap gm){
+        this(gm, Config.getGlobalConfig().get("bc.engine.spatial-index"));
+    }
+
+    /**
+     * @param gm the map the objects live on
+     * @param indexType the spatial index backend to use, "grid" or "rtree"
+     */
+    public ObjectInfo(LiveMap gm, String indexType){
         this.mapWidth = gm.getWidth();
         this.mapHeight = gm.getHeight();
         this.mapTopLeft = gm.getOrigin();
@@ -55,15 +85,15 @@ public strictfp class ObjectInfo {
         this.gameRobotsByID = new TIntObjectHashMap<>();
         this.gameBulletsByID = new TIntObjectHashMap<>();
 
-        treeIndex = new RTree();
-        robotIndex = new RTree();
-        bulletIndex = new RTree();
+        // Trees never move, and are spawned and destroyed far less often than
+        // they're queried, so they get an index that's only rebuilt when they change.
+        treeIndex = createIndex(indexType, true);
+        robotIndex = createIndex(indexType, false);
+        bulletIndex = createIndex(indexType, false);
 
-        dynamicBodyExecOrder = new TIntArrayList();
+        dynamicBodyExecOrder = new LinkedIntSet();
 
-        treeIndex.init(null);
-        robotIndex.init(null);
-        bulletIndex.init(null);
+        bulletSweep = new BulletSweep(this, mapTopLeft, mapWidth, mapHeight, 2 * GameConstants.MAX_ROBOT_RADIUS);
 
         robotTypeCount.put(Team.A, new EnumMap<>(
                 RobotType.class));
@@ -130,28 +160,15 @@ public strictfp class ObjectInfo {
      * @param op a lambda (body) -> void
      */
     public void eachDynamicBodyByExecOrder(TObjectProcedure<InternalBody> op) {
-        // We can't modify the ArrayList we are looping over
-        int[] spawnOrderArray = dynamicBodyExecOrder.toArray();
-
-        for (int id : spawnOrderArray) {
-            // Check if body still exists.
-            // This can produce bugs if a bullet and a robot can have the same ID.
-            if (existsRobot(id)) {
-                boolean returnedTrue = op.execute(gameRobotsByID.get(id));
-                if (!returnedTrue) {
-                    break;
-                }
-            } else if (existsBullet(id)) {
-                boolean returnedTrue = op.execute(gameBulletsByID.get(id));
-                if (!returnedTrue) {
-                    break;
-                }
-            } else {
-                // The body does not exist, so it was deleted in an earlier
-                // iteration and should be skipped.
-                continue;
+        // Bodies spawned during iteration aren't visited until the next pass,
+        // and bodies destroyed before they're reached are unlinked and skipped.
+        dynamicBodyExecOrder.forEach(id -> {
+            final InternalRobot robot = gameRobotsByID.get(id);
+            if (robot != null) {
+                return op.execute(robot);
             }
-        }
+            return op.execute(gameBulletsByID.get(id));
+        });
     }
 
     /**
@@ -216,18 +233,16 @@ public strictfp class ObjectInfo {
         return gameBulletsByID.get(id);
     }
 
-    public void moveBullet(InternalBullet bullet, MapLocation newLocation) {
-        MapLocation loc = bullet.getLocation();
+    public BulletSweep getBulletSweep() {
+        return bulletSweep;
+    }
 
-        bulletIndex.delete(fromPoint(loc),bullet.getID());
-        bulletIndex.add(fromPoint(newLocation),bullet.getID());
+    public void moveBullet(InternalBullet bullet, MapLocation newLocation) {
+        bulletIndex.move(bullet.getID(), bullet.getLocation(), newLocation);
     }
 
     public void moveRobot(InternalRobot robot, MapLocation newLocation) {
-        MapLocation loc = robot.getLocation();
-
-        robotIndex.delete(fromPoint(loc),robot.getID());
-        robotIndex.add(fromPoint(newLocation),robot.getID());
+        robotIndex.move(robot.getID(), robot.getLocation(), newLocation);
     }
 
     // ****************************
@@ -241,7 +256,8 @@ public strictfp class ObjectInfo {
         gameTreesByID.put(id, tree);
 
         MapLocation loc = tree.getLocation();
-        treeIndex.add(fromPoint(loc),tree.getID());
+        treeIndex.insert(tree.getID(), loc);
+        bulletSweep.addTree(tree);
     }
 
     public void spawnRobot(InternalRobot robot){
@@ -254,7 +270,7 @@ public strictfp class ObjectInfo {
         dynamicBodyExecOrder.add(id);
 
         MapLocation loc = robot.getLocation();
-        robotIndex.add(fromPoint(loc),robot.getID());
+        robotIndex.insert(robot.getID(), loc);
     }
 
     public void spawnBullet(InternalBullet bullet, InternalRobot parent){
@@ -265,11 +281,10 @@ public strictfp class ObjectInfo {
         // which fired it). This means that the bullet will first update immediately
         // before its parent next updates, and after any bullets previously fired
         // by this robot have updated again.
-        int parentIndex = dynamicBodyExecOrder.indexOf(parent.getID());
-        dynamicBodyExecOrder.insert(parentIndex, id);
+        dynamicBodyExecOrder.insertBefore(parent.getID(), id);
 
         MapLocation loc = bullet.getLocation();
-        bulletIndex.add(fromPoint(loc),bullet.getID());
+        bulletIndex.insert(bullet.getID(), loc);
     }
 
     // ****************************
@@ -298,7 +313,8 @@ public strictfp class ObjectInfo {
 
         MapLocation loc = tree.getLocation();
         gameTreesByID.remove(id);
-        treeIndex.delete(fromPoint(loc),id);
+        treeIndex.remove(id, loc);
+        bulletSweep.removeTree(tree);
     }
 
     public void destroyRobot(int id){
@@ -309,7 +325,7 @@ public strictfp class ObjectInfo {
         MapLocation loc = robot.getLocation();
         gameRobotsByID.remove(id);
         dynamicBodyExecOrder.remove(id);
-        robotIndex.delete(fromPoint(loc),id);
+        robotIndex.remove(id, loc);
     }
 
     public void destroyBullet(int id){
@@ -318,174 +334,277 @@ public strictfp class ObjectInfo {
         MapLocation loc = b.getLocation();
         gameBulletsByID.remove(id);
         dynamicBodyExecOrder.remove(id);
-        bulletIndex.delete(fromPoint(loc),id);
+        bulletIndex.remove(id, loc);
     }
     
     // ****************************
     // *** PLAYER METHODS *********
     // ****************************
 
-    public InternalTree[] getAllTreesWithinRadius(MapLocation center, float radius){
-
-        float searchRadius = radius + GameConstants.NEUTRAL_TREE_MAX_RADIUS;
+    /**
+     * Apply an operation to every tree that overlaps the given circle,
+     * in order of increasing distance from its center.
+     * Return false to stop iterating.
+     *
+     * Doesn't allocate, so prefer this to getAllTreesWithinRadius() in hot
+     * code. The operation must not spawn or destroy trees.
+     *
+     * @param center the center of the circle
+     * @param radius the radius of the circle
+     * @param op a lambda (tree) -> boolean
+     * @return false if op stopped the iteration, true otherwise
+     */
+    public boolean eachTreeWithinRadius(MapLocation center, float radius,
+                                        TObjectProcedure<InternalTree> op) {
+        return treeQuery.acquire().run(treeIndex,
+                center, radius + GameConstants.NEUTRAL_TREE_MAX_RADIUS, radius, null, op);
+    }
 
-        ArrayList<InternalTree> returnTrees = new ArrayList<InternalTree>();
+    /**
+     * Apply an operation to every robot that overlaps the given circle,
+     * in order of increasing distance from its center.
+     * Return false to stop iterating.
+     *
+     * Doesn't allocate, so prefer this to getAllRobotsWithinRadius() in hot
+     * code. The operation must not spawn or destroy robots.
+     *
+     * @param center the center of the circle
+     * @param radius the radius of the circle
+     * @param op a lambda (robot) -> boolean
+     * @return false if op stopped the iteration, true otherwise
+     */
+    public boolean eachRobotWithinRadius(MapLocation center, float radius,
+                                         TObjectProcedure<InternalRobot> op) {
+        return eachRobotWithinRadius(center, radius, null, op);
+    }
 
-        treeIndex.nearestN(
-                new Point(center.x,center.y),   // Search from center
-                new TIntProcedure() {          // Add each to a list
-                    public boolean execute(int i) {
-                        InternalTree potentialTree = getTreeByID(i);
-                        if (potentialTree.getLocation().isWithinDistance(center,potentialTree.getRadius()+radius))
-                            returnTrees.add(potentialTree);
-                        return true;    // Keep searching for results
-                    }
-                },
-                Integer.MAX_VALUE,
-                searchRadius
-        );
+    /**
+     * Apply an operation to every bullet within the given circle,
+     * in order of increasing distance from its center.
+     * Return false to stop iterating.
+     *
+     * Doesn't allocate, so prefer this to getAllBulletsWithinRadius() in hot
+     * code. The operation must not spawn or destroy bullets.
+     *
+     * @param center the center of the circle
+     * @param radius the radius of the circle
+     * @param op a lambda (bullet) -> boolean
+     * @return false if op stopped the iteration, true otherwise
+     */
+    public boolean eachBulletWithinRadius(MapLocation center, float radius,
+                                          TObjectProcedure<InternalBullet> op) {
+        return bulletQuery.acquire().run(bulletIndex,
+                center, radius, radius, null, op);
+    }
 
+    /**
+     * This allocates; prefer eachTreeWithinRadius()
+     */
+    public InternalTree[] getAllTreesWithinRadius(MapLocation center, float radius){
+        ArrayList<InternalTree> returnTrees = new ArrayList<InternalTree>();
+        eachTreeWithinRadius(center, radius, returnTrees::add);
         return returnTrees.toArray(new InternalTree[returnTrees.size()]);
     }
-    
-    public InternalRobot[] getAllRobotsWithinRadius(MapLocation center, float radius){
-
-        float searchRadius = radius + GameConstants.MAX_ROBOT_RADIUS;
 
+    /**
+     * This allocates; prefer eachRobotWithinRadius()
+     */
+    public InternalRobot[] getAllRobotsWithinRadius(MapLocation center, float radius){
         ArrayList<InternalRobot> returnRobots = new ArrayList<InternalRobot>();
-
-        robotIndex.nearestN(
-                new Point(center.x,center.y),   // Search from center
-                new TIntProcedure() {           // Add each to a list
-                    public boolean execute(int i) {
-                        InternalRobot potentialRobot = getRobotByID(i);
-                        if (potentialRobot.getLocation().isWithinDistance(center,potentialRobot.getType().bodyRadius+radius))
-                            returnRobots.add(potentialRobot);
-                        return true;   // Keep searching for results
-                    }
-                },
-                Integer.MAX_VALUE,
-                searchRadius
-        );
-
+        eachRobotWithinRadius(center, radius, returnRobots::add);
         return returnRobots.toArray(new InternalRobot[returnRobots.size()]);
     }
-    
-    public InternalBullet[] getAllBulletsWithinRadius(MapLocation center, float radius){
 
+    /**
+     * This allocates; prefer eachBulletWithinRadius()
+     */
+    public InternalBullet[] getAllBulletsWithinRadius(MapLocation center, float radius){
         ArrayList<InternalBullet> returnBullets = new ArrayList<InternalBullet>();
-
-        // Add each to a list
-        bulletIndex.nearestN(
-                new Point(center.x,center.y),   // Search from center
-                i -> {
-                    returnBullets.add(getBulletByID(i));
-                    return true;
-                },
-                Integer.MAX_VALUE,
-                radius
-        );
-
+        eachBulletWithinRadius(center, radius, returnBullets::add);
         return returnBullets.toArray(new InternalBullet[returnBullets.size()]);
     }
-    
-    public InternalTree getTreeAtLocation(MapLocation loc){
 
-        // even though it only contains one element, arraylist is required to be accessed from inside TIntProcedure
-        ArrayList<InternalTree> returnTrees = new ArrayList<InternalTree>();
+    public InternalTree getTreeAtLocation(MapLocation loc){
+        // The closest tree containing loc is the first one visited
+        foundTree = null;
+        eachTreeWithinRadius(loc, 0, findTree);
 
-        treeIndex.nearestN(
-                new Point(loc.x,loc.y),
-                i -> {
-                    InternalTree potentialTree = getTreeByID(i);
-                    if (potentialTree.getLocation().isWithinDistance(loc,potentialTree.getRadius())) {
-                        returnTrees.add(potentialTree);
-                        return false;
-                    }
-                    return true;   // keep looking for results
-                },
-                Integer.MAX_VALUE,
-                GameConstants.NEUTRAL_TREE_MAX_RADIUS  // Furthest distance
-        );
-
-        if(returnTrees.size() > 0)
-            return returnTrees.get(0);
-        else
-            return null;
+        InternalTree tree = foundTree;
+        foundTree = null;
+        return tree;
     }
 
     public InternalRobot getRobotAtLocation(MapLocation loc){
+        // The closest robot containing loc is the first one visited
+        foundRobot = null;
+        eachRobotWithinRadius(loc, 0, findRobot);
 
-        // even though it only contains one element, arraylist is required to be accessed from inside TIntProcedure
-        ArrayList<InternalRobot> returnRobots = new ArrayList<InternalRobot>();
-
-        robotIndex.nearestN(
-                new Point(loc.x,loc.y),
-                new TIntProcedure() {
-                    public boolean execute(int i) {
-                        InternalRobot potentialRobot = getRobotByID(i);
-                        if (potentialRobot.getLocation().isWithinDistance(loc,potentialRobot.getType().bodyRadius)) {
-                            returnRobots.add(potentialRobot);
-                            return false;
-                        }
-                        return true;   // keep looking for results
-                    }
-                },
-                Integer.MAX_VALUE,
-                GameConstants.MAX_ROBOT_RADIUS  // Furthest distance
-        );
-
-        if(returnRobots.size() > 0)
-            return returnRobots.get(0);
-        else
-            return null;
+        InternalRobot robot = foundRobot;
+        foundRobot = null;
+        return robot;
     }
 
     public boolean isEmpty(MapLocation loc, float radius){
-        return getAllTreesWithinRadius(loc, radius).length == 0 &&
-                getAllRobotsWithinRadius(loc, radius).length == 0;
+        return eachTreeWithinRadius(loc, radius, tree -> false) &&
+                eachRobotWithinRadius(loc, radius, robot -> false);
     }
 
     public boolean isEmptyExceptForRobot(MapLocation loc, float radius, InternalRobot robot){
-        if (getAllTreesWithinRadius(loc, radius).length != 0)
-            return false;
-        InternalRobot[] robots = getAllRobotsWithinRadius(loc, radius);
-        if (robots.length == 0) {
-            return true;
-        } else if (robots.length == 1) {
-            return robot.equals(robots[0]);
-        } else {
-            return false;
-        }
+        return eachTreeWithinRadius(loc, radius, tree -> false) &&
+                noRobotsExceptForRobot(loc, radius, robot);
     }
-    
+
     public boolean noRobotsExceptForRobot(MapLocation loc, float radius, InternalRobot robot){
-        InternalRobot[] robots = getAllRobotsWithinRadius(loc, radius);
-        if (robots.length == 0) {
+        return eachRobotWithinRadius(loc, radius, robot, other -> false);
+    }
+
+    private boolean eachRobotWithinRadius(MapLocation center, float radius, InternalRobot except,
+                                          TObjectProcedure<InternalRobot> op) {
+        return robotQuery.acquire().run(robotIndex,
+                center, radius + GameConstants.MAX_ROBOT_RADIUS, radius, except, op);
+    }
+
+    /**
+     * A reusable visitor that turns the IDs a BodyIndex finds into bodies,
+     * drops the ones that don't actually overlap the query circle, and
+     * hands the rest to the caller's operation.
+     *
+     * ObjectInfo keeps one of these per kind of body so that queries don't
+     * allocate. If a query is started from inside another query of the
+     * same kind, acquire() hands out a fresh instance instead.
+     */
+    private abstract class RadiusQuery<T> implements TIntProcedure {
+        private boolean inUse;
+
+        private MapLocation center;
+        private float radius;
+        private T except;
+        private TObjectProcedure<T> op;
+        private boolean stopped;
+
+        /**
+         * @return this query if it's free, or a new one if it's already running
+         */
+        RadiusQuery<T> acquire() {
+            return inUse ? fresh() : this;
+        }
+
+        boolean run(BodyIndex index, MapLocation center, float searchRadius, float radius,
+                    T except, TObjectProcedure<T> op) {
+            this.inUse = true;
+            this.center = center;
+            this.radius = radius;
+            this.except = except;
+            this.op = op;
+            this.stopped = false;
+            try {
+                index.nearest(center, searchRadius, this);
+                return !stopped;
+            } finally {
+                this.center = null;
+                this.except = null;
+                this.op = null;
+                this.inUse = false;
+            }
+        }
+
+        @Override
+        public boolean execute(int id) {
+            // Not every index stops when asked to; JSI's nearestN doesn't
+            if (stopped) {
+                return false;
+            }
+            T body = lookup(id);
+            if (body == null || body == except || !overlaps(body, center, radius)) {
+                return true;    // Keep searching for results
+            }
+            if (!op.execute(body)) {
+                stopped = true;
+                return false;
+            }
             return true;
-        } else if (robots.length == 1) {
-            return robot.equals(robots[0]);
-        } else {
-            return false;
         }
+
+        abstract RadiusQuery<T> fresh();
+
+        abstract T lookup(int id);
+
+        abstract boolean overlaps(T body, MapLocation center, float radius);
     }
 
-    private Rectangle fromPoint(float x, float y) {
-        return new Rectangle(x,y,x,y);
+    private final class TreeQuery extends RadiusQuery<InternalTree> {
+        @Override
+        RadiusQuery<InternalTree> fresh() {
+            return new TreeQuery();
+        }
+
+        @Override
+        InternalTree lookup(int id) {
+            return getTreeByID(id);
+        }
+
+        @Override
+        boolean overlaps(InternalTree tree, MapLocation center, float radius) {
+            return tree.getLocation().isWithinDistance(center, tree.getRadius() + radius);
+        }
     }
 
-    private Rectangle fromPoint(Point p) {
-        return new Rectangle(p.x,p.y,p.x,p.y);
+    private final class RobotQuery extends RadiusQuery<InternalRobot> {
+        @Override
+        RadiusQuery<InternalRobot> fresh() {
+            return new RobotQuery();
+        }
+
+        @Override
+        InternalRobot lookup(int id) {
+            return getRobotByID(id);
+        }
+
+        @Override
+        boolean overlaps(InternalRobot robot, MapLocation center, float radius) {
+            return robot.getLocation().isWithinDistance(center, robot.getType().bodyRadius + radius);
+        }
     }
 
-    private Rectangle fromPoint(MapLocation loc) {
-        return new Rectangle(loc.x,loc.y,loc.x,loc.y);
+    private final class BulletQuery extends RadiusQuery<InternalBullet> {
+        @Override
+        RadiusQuery<InternalBullet> fresh() {
+            return new BulletQuery();
+        }
+
+        @Override
+        InternalBullet lookup(int id) {
+            return getBulletByID(id);
+        }
+
+        @Override
+        boolean overlaps(InternalBullet bullet, MapLocation center, float radius) {
+            // The index already only returns bullets within radius
+            return true;
+        }
     }
 
     // ****************************
     // *** PRIVATE METHODS ********
     // ****************************
 
+    private BodyIndex createIndex(String indexType, boolean isStatic) {
+        if (indexType == null || indexType.equals("grid")) {
+            // Cells as wide as the largest robot, so a typical query
+            // touches only a handful of cells.
+            if (isStatic) {
+                return new PackedGridBodyIndex(mapTopLeft, mapWidth, mapHeight,
+                        2 * GameConstants.MAX_ROBOT_RADIUS);
+            }
+            return new GridBodyIndex(mapTopLeft, mapWidth, mapHeight,
+                    2 * GameConstants.MAX_ROBOT_RADIUS);
+        } else if (indexType.equals("rtree")) {
+            return new RTreeBodyIndex();
+        } else {
+            throw new IllegalArgumentException("Unknown spatial index type: " + indexType);
+        }
+    }
+
     private void incrementRobotCount(Team team) {
         robotCount[team.ordinal()]++;
     }
@@ -364,25 +364,25 @@ public final strictfp class RobotControllerImpl implements RobotController {
     @Override
     public RobotInfo[] senseNearbyRobots(MapLocation center, float radius, Team team) {
         assertNotNull(center);
-        InternalRobot[] allSensedRobots = gameWorld.getObjectInfo().getAllRobotsWithinRadius(center,
-                radius == -1 ? getType().sensorRadius : radius);
         List<RobotInfo> validSensedRobots = new ArrayList<>();
-        for(InternalRobot sensedRobot : allSensedRobots){
+        gameWorld.getObjectInfo().eachRobotWithinRadius(center,
+                radius == -1 ? getType().sensorRadius : radius, (sensedRobot) -> {
             // check if this robot
             if(sensedRobot.equals(this.robot)){
-                continue;
+                return true;
             }
             // check if can sense
             if(!canSensePartOfCircle(sensedRobot.getLocation(), sensedRobot.getType().bodyRadius)){
-                continue;
+                return true;
             }
             // check if right team
             if(team != null && sensedRobot.getTeam() != team){
-                continue;
+                return true;
             }
 
             validSensedRobots.add(sensedRobot.getRobotInfo());
-        }
+            return true;
+        });
         return validSensedRobots.toArray(new RobotInfo[validSensedRobots.size()]);
     }
 
@@ -404,21 +404,21 @@ public final strictfp class RobotControllerImpl implements RobotController {
     @Override
     public TreeInfo[] senseNearbyTrees(MapLocation center, float radius, Team team) {
         assertNotNull(center);
-        InternalTree[] allSensedTrees = gameWorld.getObjectInfo().getAllTreesWithinRadius(center,
-                radius == -1 ? getType().sensorRadius : radius);
         List<TreeInfo> validSensedTrees = new ArrayList<>();
-        for(InternalTree sensedTree : allSensedTrees){
+        gameWorld.getObjectInfo().eachTreeWithinRadius(center,
+                radius == -1 ? getType().sensorRadius : radius, (sensedTree) -> {
             // check if can sense
             if(!canSensePartOfCircle(sensedTree.getLocation(), sensedTree.getRadius())){
-                continue;
+                return true;
             }
             // check if right team
             if(team != null && sensedTree.getTeam() != team){
-                continue;
+                return true;
             }
 
             validSensedTrees.add(sensedTree.getTreeInfo());
-        }
+            return true;
+        });
         return validSensedTrees.toArray(new TreeInfo[validSensedTrees.size()]);
     }
 
@@ -435,17 +435,15 @@ public final strictfp class RobotControllerImpl implements RobotController {
     @Override
     public BulletInfo[] senseNearbyBullets(MapLocation center, float radius) {
         assertNotNull(center);
-        InternalBullet[] allSensedBullets = gameWorld.getObjectInfo().getAllBulletsWithinRadius(center,
-                radius == -1 ? getType().bulletSightRadius : radius);
         List<BulletInfo> validSensedBullets = new ArrayList<>();
-        for(InternalBullet sensedBullet : allSensedBullets){
+        gameWorld.getObjectInfo().eachBulletWithinRadius(center,
+                radius == -1 ? getType().bulletSightRadius : radius, (sensedBullet) -> {
             // check if can sense
-            if(!canSenseBulletLocation(sensedBullet.getLocation())){
-                continue;
+            if(canSenseBulletLocation(sensedBullet.getLocation())){
+                validSensedBullets.add(sensedBullet.getBulletInfo());
             }
-
-            validSensedBullets.add(sensedBullet.getBulletInfo());
-        }
+            return true;
+        });
         return validSensedBullets.toArray(new BulletInfo[validSensedBullets.size()]);
     }
 
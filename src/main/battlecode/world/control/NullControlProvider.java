@@ -30,6 +30,11 @@ public class NullControlProvider implements RobotControlProvider {
     @Override
     public void roundEnded() {}
 
+    @Override
+    public long runTurn(InternalRobot robot) {
+        return TurnResult.of(0, false);
+    }
+
     @Override
     public int getBytecodesUsed(InternalRobot robot) {
         return 0;
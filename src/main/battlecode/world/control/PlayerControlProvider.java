@@ -1,16 +1,20 @@
 package battlecode.world.control;
 
 import battlecode.instrumenter.InstrumentationException;
+import battlecode.instrumenter.SandboxPool;
 import battlecode.instrumenter.TeamClassLoaderFactory;
 import battlecode.instrumenter.SandboxedRobotPlayer;
+import battlecode.server.Config;
 import battlecode.server.ErrorReporter;
+import battlecode.server.Server;
 import battlecode.world.GameWorld;
 import battlecode.world.InternalRobot;
+import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Controls robots with instrumented player code.
@@ -34,7 +38,7 @@ public class PlayerControlProvider implements RobotControlProvider {
      * will have a value of null, so that the classloader it uses
      * can be reclaimed.
      */
-    private final Map<Integer, SandboxedRobotPlayer> sandboxes;
+    private final TIntObjectHashMap<SandboxedRobotPlayer> sandboxes;
 
     /**
      * The GameWorld we're providing for.
@@ -51,6 +55,17 @@ public class PlayerControlProvider implements RobotControlProvider {
      */
     private final OutputStream robotOut;
 
+    /**
+     * Whether we've instrumented the team's classes ahead of time yet.
+     */
+    private boolean preinstrumented;
+
+    /**
+     * Sandboxes set up ahead of time for robots to spawn into; null when
+     * there's no match running.
+     */
+    private SandboxPool sandboxPool;
+
     /**
      * Create a new PlayerControlProvider.
      *  @param teamPackage the name / package of the team we're loading
@@ -59,7 +74,7 @@ public class PlayerControlProvider implements RobotControlProvider {
      */
     public PlayerControlProvider(String teamPackage, String teamURL, OutputStream robotOut) {
         this.teamPackage = teamPackage;
-        this.sandboxes = new HashMap<>(); // GameWorld maintains order for us
+        this.sandboxes = new TIntObjectHashMap<>(); // GameWorld maintains order for us
         this.factory = new TeamClassLoaderFactory(teamURL);
         this.robotOut = robotOut;
     }
@@ -67,29 +82,52 @@ public class PlayerControlProvider implements RobotControlProvider {
     @Override
     public void matchStarted(GameWorld gameWorld) {
         this.gameWorld = gameWorld;
+
+        if (!preinstrumented && Config.getGlobalConfig().getBoolean("bc.engine.preinstrument")) {
+            preinstrumented = true;
+            final Map<String, InstrumentationException> failures =
+                    factory.preinstrument(ForkJoinPool.commonPool());
+            if (!failures.isEmpty()) {
+                // Robots only fail if they actually load one of these, so
+                // just let the player know up front
+                final StringBuilder message = new StringBuilder("Player " + teamPackage + " has "
+                        + failures.size() + " class(es) that can't be instrumented:");
+                for (Map.Entry<String, InstrumentationException> failure : failures.entrySet()) {
+                    message.append("\n    ").append(failure.getKey())
+                            .append(": ").append(failure.getValue().getMessage());
+                }
+                Server.warn(message.toString());
+            }
+        }
+
+        this.sandboxPool = new SandboxPool(teamPackage, factory,
+                Config.getGlobalConfig().getInt("bc.engine.sandbox-pool-size"));
+        this.sandboxPool.refill();
     }
 
     @Override
     public void matchEnded() {
-        for (final SandboxedRobotPlayer player : this.sandboxes.values()) {
-           if (player != null && !player.getTerminated()) {
-               player.terminate();
-           }
-        }
+        this.sandboxes.forEachValue(player -> {
+            if (player != null && !player.getTerminated()) {
+                player.terminate();
+            }
+            return true;
+        });
         this.sandboxes.clear();
+        if (this.sandboxPool != null) {
+            this.sandboxPool.close();
+            this.sandboxPool = null;
+        }
         this.gameWorld = null;
     }
 
     @Override
     public void robotSpawned(InternalRobot robot) {
         try {
-            final SandboxedRobotPlayer player = new SandboxedRobotPlayer(
-                    teamPackage,
-                    robot.getController(),
-                    robot.getID(),
-                    factory.createLoader(),
-                    robotOut
-            );
+            final SandboxedRobotPlayer player = this.sandboxPool != null
+                    ? this.sandboxPool.take()
+                    : new SandboxedRobotPlayer(teamPackage, factory.createLoader());
+            player.bind(robot.getController(), robot.getID(), robotOut);
             this.sandboxes.put(robot.getID(), player);
         } catch (InstrumentationException e) {
             ErrorReporter.report("Error while loading player "+ teamPackage +": "+e.getMessage(), false);
@@ -109,7 +147,7 @@ public class PlayerControlProvider implements RobotControlProvider {
         final SandboxedRobotPlayer player = this.sandboxes.get(robot.getID());
 
         if (player != null) {
-            this.sandboxes.get(robot.getID()).terminate();
+            player.terminate();
         }
 
         this.sandboxes.put(robot.getID(), null);
@@ -119,7 +157,12 @@ public class PlayerControlProvider implements RobotControlProvider {
     public void roundStarted() {}
 
     @Override
-    public void roundEnded() {}
+    public void roundEnded() {
+        if (this.sandboxPool != null) {
+            // Make up for this round's spawns before the next round
+            this.sandboxPool.refill();
+        }
+    }
 
     @Override
     public void runRobot(InternalRobot robot) {
@@ -134,6 +177,28 @@ public class PlayerControlProvider implements RobotControlProvider {
         }
     }
 
+    @Override
+    public long runTurn(InternalRobot robot) {
+
+        assert this.sandboxes.get(robot.getID()) != null;
+
+        final SandboxedRobotPlayer player = this.sandboxes.get(robot.getID());
+
+        if (player == null) {
+            return TurnResult.of(0, true);
+        }
+
+        player.setBytecodeLimit(robot.getBytecodeLimit());
+        player.step();
+
+        if (player.getKilled()) {
+            // The robot was killed during its own turn, so robotKilled has
+            // already let go of its sandbox
+            return TurnResult.of(0, true);
+        }
+        return TurnResult.of(player.getBytecodesUsed(), player.getTerminated());
+    }
+
     @Override
     public int getBytecodesUsed(InternalRobot robot) {
         assert this.sandboxes.containsKey(robot.getID());
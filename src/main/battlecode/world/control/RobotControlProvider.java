@@ -84,4 +84,19 @@ public interface RobotControlProvider {
      * @return whether the robot is terminated or not
      */
     boolean getTerminated(InternalRobot robot);
+
+    /**
+     * Process a round for the given robot, and report how it went.
+     *
+     * The same as runRobot followed by getBytecodesUsed and getTerminated,
+     * which GameWorld would otherwise call for every robot every round;
+     * providers should override it to look the robot up only once.
+     *
+     * @param robot the robot to process
+     * @return the result of the turn, packed by TurnResult
+     */
+    default long runTurn(InternalRobot robot) {
+        runRobot(robot);
+        return TurnResult.of(getBytecodesUsed(robot), getTerminated(robot));
+    }
 }
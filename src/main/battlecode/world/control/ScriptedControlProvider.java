@@ -0,0 +1,232 @@
+package battlecode.world.control;
+
+import battlecode.common.*;
+import battlecode.server.ErrorReporter;
+import battlecode.world.GameWorld;
+import battlecode.world.InternalRobot;
+import battlecode.world.RobotControllerImpl;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Controls robots with simple built-in behaviors, by calling their
+ * RobotControllerImpl directly rather than running player code.
+ *
+ * Used to load the engine without instrumentation or sandboxes getting in
+ * the way, so that the engine's own costs can be measured; see
+ * battlecode.server.LoadGenerator. Robots use no bytecodes.
+ *
+ * Robots choose where to go and shoot with a Random seeded from the map, so
+ * a match is still reproducible.
+ */
+public class ScriptedControlProvider implements RobotControlProvider {
+
+    /**
+     * Things scripted robots can do. Each robot does every enabled one it's
+     * able to, every turn.
+     */
+    public enum Behavior {
+        /**
+         * Move in a random direction.
+         */
+        WALK,
+        /**
+         * Fire the biggest shot the team can afford in a random direction,
+         * keeping enough bullets back to plant a tree.
+         */
+        FIRE,
+        /**
+         * Archons hire gardeners, up to a few per team, and gardeners build
+         * soldiers.
+         */
+        BUILD,
+        /**
+         * Gardeners plant trees and water the weakest tree next to them.
+         */
+        PLANT;
+
+        /**
+         * @param names a comma-separated list of behavior names, in any case
+         * @return the behaviors
+         * @throws IllegalArgumentException if a name isn't a behavior
+         */
+        public static Set<Behavior> parse(String names) {
+            final Set<Behavior> behaviors = EnumSet.noneOf(Behavior.class);
+            for (String name : names.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    behaviors.add(Behavior.valueOf(name.trim().toUpperCase()));
+                }
+            }
+            return behaviors;
+        }
+    }
+
+    /**
+     * How many random directions to try before giving up on an action.
+     */
+    private static final int TRIES = 4;
+
+    /**
+     * The most gardeners archons hire for a team, so that there are
+     * bullets left over for soldiers.
+     */
+    private static final int MAX_GARDENERS = 6;
+
+    private final Set<Behavior> behaviors;
+
+    private GameWorld world;
+    private Random random;
+
+    /**
+     * @param behaviors what the robots should do
+     */
+    public ScriptedControlProvider(Set<Behavior> behaviors) {
+        this.behaviors = EnumSet.noneOf(Behavior.class);
+        this.behaviors.addAll(behaviors);
+    }
+
+    @Override
+    public void matchStarted(GameWorld world) {
+        this.world = world;
+        this.random = new Random(world.getMapSeed());
+    }
+
+    @Override
+    public void matchEnded() {
+        this.world = null;
+        this.random = null;
+    }
+
+    @Override
+    public void roundStarted() {}
+
+    @Override
+    public void roundEnded() {}
+
+    @Override
+    public void robotSpawned(InternalRobot robot) {}
+
+    @Override
+    public void robotKilled(InternalRobot robot) {}
+
+    @Override
+    public void runRobot(InternalRobot robot) {
+        final RobotControllerImpl rc = robot.getController();
+        try {
+            if (behaviors.contains(Behavior.BUILD)) {
+                build(rc);
+            }
+            if (behaviors.contains(Behavior.PLANT)) {
+                plant(rc);
+            }
+            if (behaviors.contains(Behavior.FIRE)) {
+                fire(rc);
+            }
+            if (behaviors.contains(Behavior.WALK)) {
+                walk(rc);
+            }
+        } catch (GameActionException e) {
+            // We check before every action, so this is our bug
+            ErrorReporter.report(e, true);
+        }
+    }
+
+    @Override
+    public long runTurn(InternalRobot robot) {
+        runRobot(robot);
+        return TurnResult.of(0, false);
+    }
+
+    @Override
+    public int getBytecodesUsed(InternalRobot robot) {
+        return 0;
+    }
+
+    @Override
+    public boolean getTerminated(InternalRobot robot) {
+        return false;
+    }
+
+    private void build(RobotControllerImpl rc) throws GameActionException {
+        final RobotType type;
+        if (rc.getType() == RobotType.ARCHON) {
+            if (world.getObjectInfo().getRobotTypeCount(rc.getTeam(), RobotType.GARDENER) >= MAX_GARDENERS) {
+                return;
+            }
+            type = RobotType.GARDENER;
+        } else if (rc.getType() == RobotType.GARDENER) {
+            type = RobotType.SOLDIER;
+        } else {
+            return;
+        }
+        if (!rc.hasRobotBuildRequirements(type) || !rc.isBuildReady()) {
+            return;
+        }
+        for (int i = 0; i < TRIES; i++) {
+            final Direction dir = randomDirection();
+            if (rc.canBuildRobot(type, dir)) {
+                rc.buildRobot(type, dir);
+                return;
+            }
+        }
+    }
+
+    private void plant(RobotControllerImpl rc) throws GameActionException {
+        if (rc.getType() != RobotType.GARDENER) {
+            return;
+        }
+        if (rc.hasTreeBuildRequirements() && rc.isBuildReady()) {
+            for (int i = 0; i < TRIES; i++) {
+                final Direction dir = randomDirection();
+                if (rc.canPlantTree(dir)) {
+                    rc.plantTree(dir);
+                    break;
+                }
+            }
+        }
+
+        TreeInfo weakest = null;
+        for (TreeInfo tree : rc.senseNearbyTrees(
+                rc.getType().bodyRadius + GameConstants.INTERACTION_DIST_FROM_EDGE + GameConstants.BULLET_TREE_RADIUS,
+                rc.getTeam())) {
+            if (rc.canWater(tree.getID()) && (weakest == null || tree.getHealth() < weakest.getHealth())) {
+                weakest = tree;
+            }
+        }
+        if (weakest != null) {
+            rc.water(weakest.getID());
+        }
+    }
+
+    private void fire(RobotControllerImpl rc) throws GameActionException {
+        if (rc.getTeamBullets() < GameConstants.BULLET_TREE_COST + GameConstants.SINGLE_SHOT_COST) {
+            return;
+        }
+        if (rc.canFirePentadShot()) {
+            rc.firePentadShot(randomDirection());
+        } else if (rc.canFireTriadShot()) {
+            rc.fireTriadShot(randomDirection());
+        } else if (rc.canFireSingleShot()) {
+            rc.fireSingleShot(randomDirection());
+        }
+    }
+
+    private void walk(RobotControllerImpl rc) throws GameActionException {
+        if (rc.hasMoved()) {
+            return;
+        }
+        for (int i = 0; i < TRIES; i++) {
+            final Direction dir = randomDirection();
+            if (rc.canMove(dir)) {
+                rc.move(dir);
+                return;
+            }
+        }
+    }
+
+    private Direction randomDirection() {
+        return new Direction(random.nextFloat() * 2 * (float) Math.PI);
+    }
+}
@@ -102,6 +102,14 @@ public final class TeamControlProvider implements RobotControlProvider {
 
     }
 
+    @Override
+    public long runTurn(InternalRobot robot) {
+        Team team = robot.getTeam();
+        assert teamProviderMap.containsKey(team);
+
+        return teamProviderMap.get(team).runTurn(robot);
+    }
+
     @Override
     public int getBytecodesUsed(InternalRobot robot) {
         Team team = robot.getTeam();
@@ -0,0 +1,40 @@
+package battlecode.world.control;
+
+/**
+ * Packs what happened in a robot's turn into a long, so that
+ * RobotControlProvider.runTurn can report it without allocating.
+ *
+ * The low 32 bits are the bytecodes the robot used; the bit above them is
+ * set if the robot's computation has terminated.
+ */
+public final class TurnResult {
+
+    private static final long TERMINATED = 1L << 32;
+
+    private TurnResult() {}
+
+    /**
+     * @param bytecodesUsed the bytecodes the robot used in its turn
+     * @param terminated whether the robot's computation has terminated
+     * @return the packed result
+     */
+    public static long of(int bytecodesUsed, boolean terminated) {
+        return (bytecodesUsed & 0xFFFFFFFFL) | (terminated ? TERMINATED : 0);
+    }
+
+    /**
+     * @param result a packed result
+     * @return the bytecodes the robot used in its turn
+     */
+    public static int getBytecodesUsed(long result) {
+        return (int) result;
+    }
+
+    /**
+     * @param result a packed result
+     * @return whether the robot's computation has terminated
+     */
+    public static boolean isTerminated(long result) {
+        return (result & TERMINATED) != 0;
+    }
+}
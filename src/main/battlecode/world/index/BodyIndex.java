@@ -0,0 +1,59 @@
+package battlecode.world.index;
+
+import battlecode.common.MapLocation;
+import gnu.trove.procedure.TIntProcedure;
+
+/**
+ * A spatial index over the centers of bodies in the world, keyed by body ID.
+ *
+ * ObjectInfo keeps one of these for each kind of body; the backend is
+ * selected with the bc.engine.spatial-index property, so that results
+ * from different backends can be cross-checked.
+ *
+ * Implementations only store centers; callers are responsible for padding
+ * their query distances by the largest radius a body can have.
+ */
+public interface BodyIndex {
+
+    /**
+     * Add a body to the index.
+     *
+     * @param id the ID of the body
+     * @param loc the center of the body
+     */
+    void insert(int id, MapLocation loc);
+
+    /**
+     * Remove a body from the index.
+     *
+     * @param id the ID of the body
+     * @param loc the center the body was inserted or last moved to
+     */
+    void remove(int id, MapLocation loc);
+
+    /**
+     * Move a body that is already in the index.
+     *
+     * @param id the ID of the body
+     * @param from the center the body was inserted or last moved to
+     * @param to the new center of the body
+     */
+    void move(int id, MapLocation from, MapLocation to);
+
+    /**
+     * Visit every body whose center is within the given distance of a point,
+     * in order of increasing distance. Bodies at exactly the same distance
+     * are visited in order of ID, so every backend visits the same bodies
+     * in the same order.
+     *
+     * @param center the point to search from
+     * @param distance the furthest distance to search
+     * @param op a lambda (id) -> boolean; return false to stop visiting
+     */
+    void nearest(MapLocation center, float distance, TIntProcedure op);
+
+    /**
+     * @return the number of bodies in the index
+     */
+    int size();
+}
@@ -0,0 +1,177 @@
+package battlecode.world.index;
+
+import battlecode.common.MapLocation;
+import gnu.trove.procedure.TIntProcedure;
+
+import java.util.Arrays;
+
+/**
+ * A BodyIndex that buckets body centers into a fixed grid of square cells
+ * covering the map.
+ *
+ * Moves within a cell just overwrite the stored center, and moves between
+ * cells are a removal from one small bucket plus an append to another.
+ * Queries scan the cells overlapping the bounding box of the search circle,
+ * then sort only the matches by distance.
+ *
+ * Bodies outside the map are clamped into the border cells, so the index
+ * stays correct (if slower) for them.
+ */
+public strictfp class GridBodyIndex implements BodyIndex {
+
+    /**
+     * The initial capacity of each cell's bucket.
+     */
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private final GridCells grid;
+
+    /**
+     * Per-cell buckets, indexed by row * columns + column.
+     * The IDs and centers of a cell's bodies are stored in parallel arrays,
+     * so queries never have to look bodies up by ID.
+     */
+    private final int[][] cellIDs;
+    private final float[][] cellXs;
+    private final float[][] cellYs;
+    private final int[] cellSizes;
+
+    private int size;
+
+    private final GridMatches matches;
+
+    /**
+     * Create a grid over the given area.
+     *
+     * @param origin the lower-left corner of the area
+     * @param width the width of the area
+     * @param height the height of the area
+     * @param cellSize the width and height of each cell
+     */
+    public GridBodyIndex(MapLocation origin, float width, float height, float cellSize) {
+        this.grid = new GridCells(origin, width, height, cellSize);
+
+        final int cells = grid.getCellCount();
+        this.cellIDs = new int[cells][];
+        this.cellXs = new float[cells][];
+        this.cellYs = new float[cells][];
+        this.cellSizes = new int[cells];
+
+        this.matches = new GridMatches();
+    }
+
+    @Override
+    public void insert(int id, MapLocation loc) {
+        append(grid.cellOf(loc.x, loc.y), id, loc.x, loc.y);
+        size++;
+    }
+
+    @Override
+    public void remove(int id, MapLocation loc) {
+        final int cell = grid.cellOf(loc.x, loc.y);
+        final int slot = slotOf(cell, id);
+        if (slot < 0) {
+            return;
+        }
+        removeSlot(cell, slot);
+        size--;
+    }
+
+    @Override
+    public void move(int id, MapLocation from, MapLocation to) {
+        final int fromCell = grid.cellOf(from.x, from.y);
+        final int toCell = grid.cellOf(to.x, to.y);
+        final int slot = slotOf(fromCell, id);
+        if (slot < 0) {
+            throw new IllegalStateException("Body " + id + " is not indexed at " + from);
+        }
+
+        if (fromCell == toCell) {
+            cellXs[fromCell][slot] = to.x;
+            cellYs[fromCell][slot] = to.y;
+        } else {
+            removeSlot(fromCell, slot);
+            append(toCell, id, to.x, to.y);
+        }
+    }
+
+    @Override
+    public void nearest(MapLocation center, float distance, TIntProcedure op) {
+        final float x = center.x;
+        final float y = center.y;
+        final float reach = Math.abs(distance);
+        final float maxDistanceSq = distance * distance;
+
+        final int minColumn = grid.columnOf(x - reach);
+        final int maxColumn = grid.columnOf(x + reach);
+        final int minRow = grid.rowOf(y - reach);
+        final int maxRow = grid.rowOf(y + reach);
+
+        matches.begin();
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                final int cell = grid.cell(row, column);
+                final int count = cellSizes[cell];
+                if (count == 0) {
+                    continue;
+                }
+                final int[] ids = cellIDs[cell];
+                final float[] xs = cellXs[cell];
+                final float[] ys = cellYs[cell];
+                for (int i = 0; i < count; i++) {
+                    final float distanceSq = GridMatches.distanceSq(xs[i], ys[i], x, y);
+                    if (distanceSq <= maxDistanceSq) {
+                        matches.add(distanceSq, ids[i]);
+                    }
+                }
+            }
+        }
+        matches.visit(op);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // ****************************
+    // *** PRIVATE METHODS ********
+    // ****************************
+
+    private int slotOf(int cell, int id) {
+        final int[] ids = cellIDs[cell];
+        final int count = cellSizes[cell];
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(int cell, int id, float x, float y) {
+        int count = cellSizes[cell];
+        if (cellIDs[cell] == null) {
+            cellIDs[cell] = new int[INITIAL_CELL_CAPACITY];
+            cellXs[cell] = new float[INITIAL_CELL_CAPACITY];
+            cellYs[cell] = new float[INITIAL_CELL_CAPACITY];
+        } else if (count == cellIDs[cell].length) {
+            cellIDs[cell] = Arrays.copyOf(cellIDs[cell], count * 2);
+            cellXs[cell] = Arrays.copyOf(cellXs[cell], count * 2);
+            cellYs[cell] = Arrays.copyOf(cellYs[cell], count * 2);
+        }
+        cellIDs[cell][count] = id;
+        cellXs[cell][count] = x;
+        cellYs[cell][count] = y;
+        cellSizes[cell] = count + 1;
+    }
+
+    private void removeSlot(int cell, int slot) {
+        // Order within a cell doesn't matter, so fill the hole with the last entry
+        final int last = cellSizes[cell] - 1;
+        cellIDs[cell][slot] = cellIDs[cell][last];
+        cellXs[cell][slot] = cellXs[cell][last];
+        cellYs[cell][slot] = cellYs[cell][last];
+        cellSizes[cell] = last;
+    }
+}
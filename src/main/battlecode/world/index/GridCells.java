@@ -0,0 +1,90 @@
+package battlecode.world.index;
+
+import battlecode.common.MapLocation;
+
+/**
+ * A fixed grid of square cells covering the map, as used by the grid
+ * indexes and BulletSweep.
+ *
+ * Cells are numbered row * columns + column. Points outside the map are
+ * clamped into the border cells.
+ */
+public final strictfp class GridCells {
+
+    private final float originX;
+    private final float originY;
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * Create a grid over the given area.
+     *
+     * @param origin the lower-left corner of the area
+     * @param width the width of the area
+     * @param height the height of the area
+     * @param cellSize the width and height of each cell
+     */
+    public GridCells(MapLocation origin, float width, float height, float cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Invalid grid cell size: " + cellSize);
+        }
+
+        this.originX = origin.x;
+        this.originY = origin.y;
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+    }
+
+    /**
+     * @return the number of columns of cells
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of rows of cells
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of cells
+     */
+    public int getCellCount() {
+        return columns * rows;
+    }
+
+    /**
+     * @return the column containing x, clamped to the grid
+     */
+    public int columnOf(float x) {
+        final int column = (int) Math.floor((x - originX) / cellSize);
+        return column < 0 ? 0 : (column >= columns ? columns - 1 : column);
+    }
+
+    /**
+     * @return the row containing y, clamped to the grid
+     */
+    public int rowOf(float y) {
+        final int row = (int) Math.floor((y - originY) / cellSize);
+        return row < 0 ? 0 : (row >= rows ? rows - 1 : row);
+    }
+
+    /**
+     * @return the cell in the given row and column
+     */
+    public int cell(int row, int column) {
+        return row * columns + column;
+    }
+
+    /**
+     * @return the cell containing (x, y), clamped to the grid
+     */
+    public int cellOf(float x, float y) {
+        return cell(rowOf(y), columnOf(x));
+    }
+}
@@ -0,0 +1,95 @@
+package battlecode.world.index;
+
+import gnu.trove.procedure.TIntProcedure;
+
+import java.util.Arrays;
+
+/**
+ * Collects the matches of index queries and visits them in order of
+ * distance, then ID. Every BodyIndex backend orders its results through
+ * here, and BulletSweep orders its planned hits by the same key, so they
+ * all break ties the same way.
+ *
+ * There's one buffer per level of query nesting, so that a visitor may
+ * query the same index again.
+ */
+public final strictfp class GridMatches {
+
+    private long[][] buffers;
+    private int depth;
+
+    /**
+     * The matches of the query being collected.
+     */
+    private long[] matches;
+    private int count;
+
+    public GridMatches() {
+        this.buffers = new long[1][16];
+        this.depth = 0;
+    }
+
+    /**
+     * The distance squared between a body's center and the center of a
+     * query, computed the same way as JSI's Rectangle.distanceSq, so that
+     * every backend agrees on which bodies are in range.
+     */
+    public static float distanceSq(float x, float y, float centerX, float centerY) {
+        final float dx = x - centerX;
+        final float dy = y - centerY;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @return a key that sorts matches by distance and then by ID
+     */
+    public static long order(float distanceSq, int id) {
+        // distanceSq is never negative, so its bits sort like the float
+        return ((long) Float.floatToIntBits(distanceSq) << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Start collecting the matches of a query.
+     */
+    void begin() {
+        if (depth == buffers.length) {
+            buffers = Arrays.copyOf(buffers, depth + 1);
+            buffers[depth] = new long[16];
+        }
+        matches = buffers[depth];
+        count = 0;
+    }
+
+    /**
+     * Add a match to the query being collected.
+     */
+    void add(float distanceSq, int id) {
+        if (count == matches.length) {
+            matches = Arrays.copyOf(matches, count * 2);
+            buffers[depth] = matches;
+        }
+        matches[count++] = order(distanceSq, id);
+    }
+
+    /**
+     * Visit the collected matches closest first, until op returns false.
+     * op may start queries of its own.
+     */
+    void visit(TIntProcedure op) {
+        // Nested queries reuse the fields, so hold on to ours
+        final long[] matches = this.matches;
+        final int count = this.count;
+        Arrays.sort(matches, 0, count);
+
+        depth++;
+        try {
+            for (int i = 0; i < count; i++) {
+                if (!op.execute((int) matches[i])) {
+                    break;
+                }
+            }
+        } finally {
+            depth--;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package battlecode.world.index;
+
+import battlecode.common.MapLocation;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.procedure.TIntProcedure;
+
+import java.util.Arrays;
+
+/**
+ * A read-optimized BodyIndex for bodies that rarely change, i.e. trees.
+ *
+ * Bodies are kept in one flat list, and queries run against a packed copy
+ * of that list sorted by grid cell: each cell's bodies sit next to each
+ * other in three flat arrays, found through a table of cell offsets.
+ *
+ * Removals are patched into the packed copy in place: the body's packed
+ * slot is tombstoned with a NaN center, which no query distance matches.
+ * Inserts and moves mark the packed copy stale, and it is rebuilt (with a
+ * counting sort, which also drops the tombstones) the first time the index
+ * is queried afterwards, so a run of spawns costs one rebuild and a tree
+ * destroyed mid-round costs none.
+ *
+ * Queries visit bodies in exactly the same order as GridBodyIndex: both
+ * sort their matches with GridMatches.
+ */
+public strictfp class PackedGridBodyIndex implements BodyIndex {
+
+    private final GridCells grid;
+
+    /**
+     * Every body in the index, unordered, and where each ID is in the list.
+     */
+    private final TIntIntHashMap slots;
+    private int[] bodyIDs;
+    private float[] bodyXs;
+    private float[] bodyYs;
+    private int size;
+
+    /**
+     * The packed copy: the bodies in cell c are at [cellStarts[c], cellStarts[c + 1]).
+     */
+    private final int[] cellStarts;
+    private int[] packedIDs;
+    private float[] packedXs;
+    private float[] packedYs;
+    private boolean stale;
+
+    /**
+     * How many times the packed copy has been rebuilt; for tests.
+     */
+    private int packs;
+
+    private final GridMatches matches;
+
+    /**
+     * Create a grid over the given area.
+     *
+     * @param origin the lower-left corner of the area
+     * @param width the width of the area
+     * @param height the height of the area
+     * @param cellSize the width and height of each cell
+     */
+    public PackedGridBodyIndex(MapLocation origin, float width, float height, float cellSize) {
+        this.grid = new GridCells(origin, width, height, cellSize);
+
+        this.slots = new TIntIntHashMap(16, 0.5f, -1, -1);
+        this.bodyIDs = new int[16];
+        this.bodyXs = new float[16];
+        this.bodyYs = new float[16];
+
+        this.cellStarts = new int[grid.getCellCount() + 1];
+        this.packedIDs = new int[16];
+        this.packedXs = new float[16];
+        this.packedYs = new float[16];
+
+        this.matches = new GridMatches();
+    }
+
+    @Override
+    public void insert(int id, MapLocation loc) {
+        if (size == bodyIDs.length) {
+            bodyIDs = Arrays.copyOf(bodyIDs, size * 2);
+            bodyXs = Arrays.copyOf(bodyXs, size * 2);
+            bodyYs = Arrays.copyOf(bodyYs, size * 2);
+        }
+        bodyIDs[size] = id;
+        bodyXs[size] = loc.x;
+        bodyYs[size] = loc.y;
+        slots.put(id, size);
+        size++;
+        stale = true;
+    }
+
+    @Override
+    public void remove(int id, MapLocation loc) {
+        final int slot = slots.remove(id);
+        if (slot < 0) {
+            return;
+        }
+        if (!stale) {
+            tombstone(grid.cellOf(bodyXs[slot], bodyYs[slot]), id);
+        }
+        // Fill the hole with the last body
+        final int last = --size;
+        if (slot != last) {
+            bodyIDs[slot] = bodyIDs[last];
+            bodyXs[slot] = bodyXs[last];
+            bodyYs[slot] = bodyYs[last];
+            slots.put(bodyIDs[slot], slot);
+        }
+    }
+
+    @Override
+    public void move(int id, MapLocation from, MapLocation to) {
+        final int slot = slots.get(id);
+        if (slot < 0) {
+            throw new IllegalStateException("Body " + id + " is not indexed at " + from);
+        }
+        bodyXs[slot] = to.x;
+        bodyYs[slot] = to.y;
+        stale = true;
+    }
+
+    @Override
+    public void nearest(MapLocation center, float distance, TIntProcedure op) {
+        if (stale) {
+            pack();
+        }
+
+        final float x = center.x;
+        final float y = center.y;
+        final float reach = Math.abs(distance);
+        final float maxDistanceSq = distance * distance;
+
+        final int minColumn = grid.columnOf(x - reach);
+        final int maxColumn = grid.columnOf(x + reach);
+        final int minRow = grid.rowOf(y - reach);
+        final int maxRow = grid.rowOf(y + reach);
+
+        matches.begin();
+        for (int row = minRow; row <= maxRow; row++) {
+            // The cells of a row are adjacent, so scan them as one run
+            final int from = cellStarts[grid.cell(row, minColumn)];
+            final int to = cellStarts[grid.cell(row, maxColumn) + 1];
+            for (int i = from; i < to; i++) {
+                final float distanceSq = GridMatches.distanceSq(packedXs[i], packedYs[i], x, y);
+                if (distanceSq <= maxDistanceSq) {
+                    matches.add(distanceSq, packedIDs[i]);
+                }
+            }
+        }
+        matches.visit(op);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many times the packed copy has been rebuilt
+     */
+    int getPackCount() {
+        return packs;
+    }
+
+    // ****************************
+    // *** PRIVATE METHODS ********
+    // ****************************
+
+    /**
+     * Knock a body out of the packed copy without moving anything else.
+     * Its NaN center fails every distance check, so queries skip it.
+     */
+    private void tombstone(int cell, int id) {
+        final int to = cellStarts[cell + 1];
+        for (int i = cellStarts[cell]; i < to; i++) {
+            if (packedIDs[i] == id) {
+                packedXs[i] = Float.NaN;
+                packedYs[i] = Float.NaN;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rebuild the packed copy with a counting sort by cell.
+     */
+    private void pack() {
+        if (packedIDs.length < size) {
+            packedIDs = new int[bodyIDs.length];
+            packedXs = new float[bodyIDs.length];
+            packedYs = new float[bodyIDs.length];
+        }
+
+        // Count each cell's bodies into the slot after it...
+        Arrays.fill(cellStarts, 0);
+        for (int i = 0; i < size; i++) {
+            cellStarts[grid.cellOf(bodyXs[i], bodyYs[i]) + 1]++;
+        }
+        // ...turn the counts into offsets...
+        for (int cell = 1; cell < cellStarts.length; cell++) {
+            cellStarts[cell] += cellStarts[cell - 1];
+        }
+        // ...and drop the bodies in, moving each cell's start up as it fills.
+        for (int i = 0; i < size; i++) {
+            final int slot = cellStarts[grid.cellOf(bodyXs[i], bodyYs[i])]++;
+            packedIDs[slot] = bodyIDs[i];
+            packedXs[slot] = bodyXs[i];
+            packedYs[slot] = bodyYs[i];
+        }
+        // Every start has moved up to the next cell's start; shift them back.
+        System.arraycopy(cellStarts, 0, cellStarts, 1, cellStarts.length - 1);
+        cellStarts[0] = 0;
+
+        stale = false;
+        packs++;
+    }
+}
@@ -0,0 +1,99 @@
+package battlecode.world.index;
+
+import battlecode.common.MapLocation;
+import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.procedure.TIntProcedure;
+import net.sf.jsi.Point;
+import net.sf.jsi.Rectangle;
+import net.sf.jsi.SpatialIndex;
+import net.sf.jsi.rtree.RTree;
+
+/**
+ * A BodyIndex backed by a JSI RTree.
+ *
+ * This is the index the engine originally used; it's kept around so that
+ * the grid backend can be checked against it.
+ *
+ * JSI's nearestN breaks ties however its tree happens to be laid out, so
+ * matches are re-sorted through GridMatches, and the RTree visits bodies
+ * in the same order as the grid indexes and BulletSweep.
+ */
+public strictfp class RTreeBodyIndex implements BodyIndex {
+
+    private final SpatialIndex tree;
+
+    /**
+     * The center of each body, packed as (x bits << 32 | y bits), since
+     * nearestN only reports IDs.
+     */
+    private final TIntLongHashMap centers;
+
+    private final GridMatches matches;
+
+    /**
+     * The query being collected; nearestN's visitor has nowhere else to find it.
+     */
+    private float queryX;
+    private float queryY;
+
+    private final TIntProcedure collect = id -> {
+        final long center = centers.get(id);
+        final float x = Float.intBitsToFloat((int) (center >>> 32));
+        final float y = Float.intBitsToFloat((int) center);
+        matches.add(GridMatches.distanceSq(x, y, queryX, queryY), id);
+        return true;
+    };
+
+    public RTreeBodyIndex() {
+        this.tree = new RTree();
+        this.tree.init(null);
+        this.centers = new TIntLongHashMap();
+        this.matches = new GridMatches();
+    }
+
+    @Override
+    public void insert(int id, MapLocation loc) {
+        tree.add(fromPoint(loc), id);
+        centers.put(id, pack(loc));
+    }
+
+    @Override
+    public void remove(int id, MapLocation loc) {
+        tree.delete(fromPoint(loc), id);
+        centers.remove(id);
+    }
+
+    @Override
+    public void move(int id, MapLocation from, MapLocation to) {
+        tree.delete(fromPoint(from), id);
+        tree.add(fromPoint(to), id);
+        centers.put(id, pack(to));
+    }
+
+    @Override
+    public void nearest(MapLocation center, float distance, TIntProcedure op) {
+        matches.begin();
+        queryX = center.x;
+        queryY = center.y;
+        tree.nearestN(
+                new Point(center.x, center.y),
+                collect,
+                Integer.MAX_VALUE,
+                distance
+        );
+        matches.visit(op);
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    private static Rectangle fromPoint(MapLocation loc) {
+        return new Rectangle(loc.x, loc.y, loc.x, loc.y);
+    }
+
+    private static long pack(MapLocation loc) {
+        return ((long) Float.floatToIntBits(loc.x) << 32) | (Float.floatToIntBits(loc.y) & 0xFFFFFFFFL);
+    }
+}
@@ -1,8 +1,11 @@
 package battlecode.instrumenter;
 
+import battlecode.instrumenter.bytecode.ClassHierarchy;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static battlecode.instrumenter.InstrumentationException.Type.ILLEGAL;
 import static org.junit.Assert.*;
@@ -11,13 +14,21 @@ import java.io.File;
 import java.io.PrintStream;
 import java.lang.reflect.Method;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author james
  */
 public class LoaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private static String tempClassFolder;
     private TeamClassLoaderFactory sharedCache;
     private TeamClassLoaderFactory.Loader l1;
@@ -490,4 +501,204 @@ public class LoaderTest {
             assertTrue("Failed to error on url: "+badURL, c.getError());
         }
     }
+
+    @Test
+    public void testSharesInstrumentedClassesAcrossFactories() throws Exception {
+        final InstrumentedClassCache cache = new InstrumentedClassCache(1 << 20);
+
+        final TeamClassLoaderFactory.Loader first = setupLoader(
+                new TeamClassLoaderFactory(tempClassFolder, cache));
+        first.loadClass("instrumentertest.UsesThrowable").getMethod("run").invoke(null);
+        final int instrumented = cache.size();
+        assertTrue(instrumented > 0);
+
+        // A second game between the same bots instruments nothing new,
+        // but still gets classes of its own
+        final long missesBefore = cache.getMisses();
+        final TeamClassLoaderFactory.Loader second = setupLoader(
+                new TeamClassLoaderFactory(tempClassFolder, cache));
+        final Class<?> c = second.loadClass("instrumentertest.UsesThrowable");
+        c.getMethod("run").invoke(null);
+
+        assertEquals(instrumented, cache.size());
+        assertEquals(missesBefore, cache.getMisses());
+        assertNotSame(first.loadClass("instrumentertest.UsesThrowable"), c);
+    }
+
+    @Test
+    public void testSharedCacheSeesTeamChanges() throws Exception {
+        final InstrumentedClassCache cache = new InstrumentedClassCache(1 << 20);
+        final String folderA = URLUtils.toTempFolder(
+                new String[] {"Value.class"},
+                new URL[] {LoaderTest.class.getResource("resources/ValueA.class")}
+        );
+        final String folderB = URLUtils.toTempFolder(
+                new String[] {"Value.class"},
+                new URL[] {LoaderTest.class.getResource("resources/ValueB.class")}
+        );
+        final String folderAWithMore = URLUtils.toTempFolder(
+                new String[] {"Value.class", "instrumentertest/Nothing.class"},
+                new URL[] {
+                        LoaderTest.class.getResource("resources/ValueA.class"),
+                        LoaderTest.class.getResource("/instrumentertest/Nothing.class")
+                }
+        );
+
+        final TeamClassLoaderFactory a = new TeamClassLoaderFactory(folderA, cache);
+        final TeamClassLoaderFactory b = new TeamClassLoaderFactory(folderB, cache);
+        final TeamClassLoaderFactory aWithMore = new TeamClassLoaderFactory(folderAWithMore, cache);
+        assertEquals(a.getTeamHash(), new TeamClassLoaderFactory(folderA, cache).getTeamHash());
+        assertNotEquals(a.getTeamHash(), b.getTeamHash());
+        assertNotEquals(a.getTeamHash(), aWithMore.getTeamHash());
+
+        assertEquals('A', setupLoader(a).loadClass("Value").getMethod("getValue").invoke(null));
+        assertEquals('B', setupLoader(b).loadClass("Value").getMethod("getValue").invoke(null));
+        assertEquals('A', setupLoader(aWithMore).loadClass("Value").getMethod("getValue").invoke(null));
+    }
+
+    @Test
+    public void testSharedCacheEvictsLeastRecentlyUsed() {
+        final InstrumentedClassCache cache = new InstrumentedClassCache(250);
+        final InstrumentedClassCache.Key first = new InstrumentedClassCache.Key("A", new byte[] {1}, "team", false);
+        final InstrumentedClassCache.Key second = new InstrumentedClassCache.Key("B", new byte[] {2}, "team", false);
+        final InstrumentedClassCache.Key third = new InstrumentedClassCache.Key("C", new byte[] {3}, "team", false);
+
+        cache.put(first, new byte[100]);
+        cache.put(second, new byte[100]);
+        assertNotNull(cache.get(first));
+        cache.put(third, new byte[100]);
+
+        // second was used least recently
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(first));
+        assertNotNull(cache.get(third));
+        assertEquals(200, cache.getBytes());
+
+        // Different flags or source bytes are different classes
+        assertNull(cache.get(new InstrumentedClassCache.Key("A", new byte[] {1}, "team", true)));
+        assertNull(cache.get(new InstrumentedClassCache.Key("A", new byte[] {4}, "team", false)));
+    }
+
+    @Test
+    public void testSharedCacheReadsClassesFromDisk() throws Exception {
+        final Path directory = folder.newFolder("battlecode-class-cache").toPath();
+
+        final InstrumentedClassCache first = new InstrumentedClassCache(1 << 20, directory);
+        setupLoader(new TeamClassLoaderFactory(tempClassFolder, first))
+                .loadClass("instrumentertest.UsesThrowable").getMethod("run").invoke(null);
+        assertEquals(0, first.getDiskHits());
+        assertTrue(first.getMisses() > 0);
+
+        // As if in a new JVM: nothing in memory, but everything on disk
+        final InstrumentedClassCache second = new InstrumentedClassCache(1 << 20, directory);
+        setupLoader(new TeamClassLoaderFactory(tempClassFolder, second))
+                .loadClass("instrumentertest.UsesThrowable").getMethod("run").invoke(null);
+        assertEquals(0, second.getMisses());
+        assertEquals(first.getMisses(), second.getDiskHits());
+    }
+
+    @Test
+    public void testSharedCacheIgnoresBadClassesOnDisk() throws Exception {
+        final Path directory = folder.newFolder("battlecode-class-cache").toPath();
+        final InstrumentedClassCache first = runUsesThrowable(directory);
+        assertTrue(first.getMisses() > 0);
+
+        // Truncated: instrumented again, and written out again
+        for (File file : directory.toFile().listFiles()) {
+            Files.write(file.toPath(), Arrays.copyOf(Files.readAllBytes(file.toPath()), 10));
+        }
+        final InstrumentedClassCache truncated = runUsesThrowable(directory);
+        assertEquals(0, truncated.getDiskHits());
+        assertEquals(first.getMisses(), truncated.getMisses());
+
+        // Changed after it was written: the same
+        for (File file : directory.toFile().listFiles()) {
+            final byte[] contents = Files.readAllBytes(file.toPath());
+            contents[contents.length - 1] ^= 1;
+            Files.write(file.toPath(), contents);
+        }
+        final InstrumentedClassCache changed = runUsesThrowable(directory);
+        assertEquals(0, changed.getDiskHits());
+        assertEquals(first.getMisses(), changed.getMisses());
+
+        final InstrumentedClassCache rewritten = runUsesThrowable(directory);
+        assertEquals(0, rewritten.getMisses());
+        assertEquals(first.getMisses(), rewritten.getDiskHits());
+    }
+
+    private InstrumentedClassCache runUsesThrowable(Path directory) throws Exception {
+        final InstrumentedClassCache cache = new InstrumentedClassCache(1 << 20, directory);
+        setupLoader(new TeamClassLoaderFactory(tempClassFolder, cache))
+                .loadClass("instrumentertest.UsesThrowable").getMethod("run").invoke(null);
+        return cache;
+    }
+
+    @Test
+    public void testMonitorBridgeIsPerLoader() throws Exception {
+        final SandboxedRobotPlayer.MonitorBridge b1 = (SandboxedRobotPlayer.MonitorBridge)
+                l1.loadClass("battlecode.instrumenter.inject.RobotMonitor$Bridge").newInstance();
+        final SandboxedRobotPlayer.MonitorBridge b2 = (SandboxedRobotPlayer.MonitorBridge)
+                l2.loadClass("battlecode.instrumenter.inject.RobotMonitor$Bridge").newInstance();
+
+        b1.setBytecodeLimit(100);
+        b2.setBytecodeLimit(200);
+
+        // Nothing has run, so each monitor is at its own limit
+        assertEquals(100, b1.getBytecodeNum());
+        assertEquals(200, b2.getBytecodeNum());
+        assertEquals(100, l1.loadClass("battlecode.instrumenter.inject.RobotMonitor")
+                .getMethod("getBytecodeNum").invoke(null));
+    }
+
+    @Test
+    public void testHierarchyReadsEachClassOnce() throws Exception {
+        final ClassHierarchy hierarchy = l1.getHierarchy();
+        assertSame(hierarchy, l2.getHierarchy());
+
+        assertTrue(hierarchy.isSubtype("java/util/ArrayList", "java/util/Collection"));
+        assertTrue(hierarchy.isSubtype("java/util/ArrayList", "java/lang/Object"));
+        assertFalse(hierarchy.isSubtype("java/util/ArrayList", "java/util/Map"));
+        final int read = hierarchy.getClassesRead();
+
+        // Everything about ArrayList is known now
+        assertTrue(hierarchy.isSubtype("java/util/ArrayList", "java/lang/Iterable"));
+        assertEquals(read, hierarchy.getClassesRead());
+
+        // LinkedList shares most of ArrayList's supertypes, which aren't read again
+        assertTrue(hierarchy.isSubtype("java/util/LinkedList", "java/util/Deque"));
+        final int linkedListOnly = hierarchy.getClassesRead() - read;
+        assertTrue(linkedListOnly > 0);
+        assertTrue(linkedListOnly < read);
+    }
+
+    @Test
+    public void testPreinstrument() throws Exception {
+        final TeamClassLoaderFactory factory = new TeamClassLoaderFactory(
+                tempClassFolder, new InstrumentedClassCache(1 << 20));
+        final Map<String, InstrumentationException> failures = factory.preinstrument(new ForkJoinPool(4));
+
+        // Illegal classes are reported, but don't fail the team until they're loaded
+        assertTrue(failures.containsKey("instrumentertest.IllegalMethodReference"));
+        assertFalse(failures.containsKey("instrumentertest.Nothing"));
+        assertFalse(factory.getError());
+        assertTrue(factory.hasCached("instrumentertest.Nothing"));
+        assertTrue(factory.hasCached("instrumentertest.Outer$Inner"));
+        assertFalse(factory.hasCached("instrumentertest.IllegalMethodReference"));
+
+        // Preinstrumented classes are the same as ones instrumented as they're loaded
+        final TeamClassLoaderFactory lazy = new TeamClassLoaderFactory(
+                tempClassFolder, new InstrumentedClassCache(1 << 20));
+        setupLoader(lazy).loadClass("instrumentertest.UsesThrowable");
+        assertArrayEquals(lazy.getCached("instrumentertest.UsesThrowable"),
+                factory.getCached("instrumentertest.UsesThrowable"));
+
+        final TeamClassLoaderFactory.Loader loader = setupLoader(factory);
+        loader.loadClass("instrumentertest.UsesThrowable").getMethod("run").invoke(null);
+        try {
+            loader.loadClass("instrumentertest.IllegalMethodReference");
+            fail("No exception thrown?");
+        } catch (InstrumentationException e) {
+            assertTrue(factory.getError());
+        }
+    }
 }
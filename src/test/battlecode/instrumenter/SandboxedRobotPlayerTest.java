@@ -9,6 +9,7 @@ import battlecode.server.Config;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
@@ -42,6 +43,7 @@ public class SandboxedRobotPlayerTest {
                 "testplayerloopforever/RobotPlayer.class",
                 "testplayermultiarraybytecode/RobotPlayer.class",
                 "testplayernodebug/RobotPlayer.class",
+                "testplayerlibrarybytecode/RobotPlayer.class",
                 "testplayerstatic/RobotPlayer.class",
                 "testplayersuicide/RobotPlayer.class",
                 "testplayersystem/RobotPlayer.class",
@@ -125,6 +127,53 @@ public class SandboxedRobotPlayerTest {
         verify(rc).broadcast(0, 3);
     }
 
+    @Test
+    public void testVirtualRobotThreads() throws Exception {
+        Config.getGlobalConfig().set("bc.engine.robot-threads", "virtual");
+        try {
+            checkTurnHandoff();
+        } finally {
+            Config.getGlobalConfig().set("bc.engine.robot-threads", "platform");
+        }
+    }
+
+    @Test
+    public void testSpinParkHandoff() throws Exception {
+        Config.getGlobalConfig().set("bc.engine.robot-handoff", "spin-park");
+        try {
+            checkTurnHandoff();
+        } finally {
+            Config.getGlobalConfig().set("bc.engine.robot-handoff", "monitor");
+        }
+    }
+
+    /**
+     * Check that turns pass back and forth correctly with the configured
+     * execution backend, whether robots yield, run out of bytecodes, or die.
+     */
+    private void checkTurnHandoff() throws Exception {
+        SandboxedRobotPlayer player = new SandboxedRobotPlayer("testplayerclock", rc, 0, loader, out);
+        player.setBytecodeLimit(10000);
+
+        for (int i = 1; i <= 2; i++) {
+            player.step();
+            assertFalse(player.getTerminated());
+            verify(rc).broadcast(0, i);
+        }
+        player.step();
+        assertTrue(player.getTerminated());
+
+        // Running out of bytecodes pauses the robot the same way
+        SandboxedRobotPlayer looping = new SandboxedRobotPlayer("testplayerloopforever", rc, 0,
+                factory.createLoader(), out);
+        looping.setBytecodeLimit(100);
+        looping.step();
+        looping.step();
+        assertFalse(looping.getTerminated());
+        looping.terminate();
+        assertTrue(looping.getTerminated());
+    }
+
     @Test
     public void testBytecodeCountingWorks() throws Exception {
         SandboxedRobotPlayer player = new SandboxedRobotPlayer("testplayerloopforever", rc, 0, loader, out);
@@ -305,6 +354,40 @@ public class SandboxedRobotPlayerTest {
         assertTrue(player.getTerminated());
     }
 
+    @Test(timeout=10000)
+    public void testPooledSandboxRunsLikeANewOne() throws Exception {
+        SandboxPool pool = new SandboxPool("testplayerlibrarybytecode", factory, 2);
+        try {
+            pool.refill();
+            while (pool.getReady() < 2) {
+                Thread.sleep(1);
+            }
+
+            SandboxedRobotPlayer pooled = pool.take();
+            assertEquals(1, pool.getReady());
+            pooled.bind(rc, 0, out);
+            pooled.setBytecodeLimit(10000);
+            pooled.step();
+            assertTrue(pooled.getTerminated());
+
+            // Sandboxes that are never bound can still be stopped
+            SandboxedRobotPlayer unused = pool.take();
+            unused.terminate();
+            assertTrue(unused.getTerminated());
+        } finally {
+            pool.close();
+        }
+
+        SandboxedRobotPlayer fresh = new SandboxedRobotPlayer("testplayerlibrarybytecode", rc, 0, loader, out);
+        fresh.setBytecodeLimit(10000);
+        fresh.step();
+        assertTrue(fresh.getTerminated());
+
+        ArgumentCaptor<Integer> used = ArgumentCaptor.forClass(Integer.class);
+        verify(rc, times(2)).broadcast(eq(0), used.capture());
+        assertEquals(used.getAllValues().get(0), used.getAllValues().get(1));
+    }
+
     @Test
     public void testUseShared() throws Exception {
         SandboxedRobotPlayer player = new SandboxedRobotPlayer("testplayerusesshared", rc, 0, loader, out);
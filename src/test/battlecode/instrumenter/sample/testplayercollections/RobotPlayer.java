@@ -0,0 +1,33 @@
+package testplayercollections;
+
+import battlecode.common.Clock;
+import battlecode.common.GameActionException;
+import battlecode.common.RobotController;
+
+import java.util.*;
+
+/**
+ * Uses a spread of library classes, so that loading it instruments a
+ * realistic set of instrumented.* classes.
+ */
+public class RobotPlayer {
+    public static void run(RobotController rc) throws GameActionException {
+        final Map<Integer, String> names = new HashMap<>();
+        final List<Integer> ids = new ArrayList<>();
+        final Set<Integer> seen = new TreeSet<>();
+        final Deque<Integer> queue = new ArrayDeque<>();
+        final PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.reverseOrder());
+
+        while (true) {
+            final int round = rc.getRoundNum();
+            names.put(round, String.format("round %d", round));
+            ids.add(round);
+            seen.add(round % 7);
+            queue.addLast(round);
+            heap.add(round);
+            Collections.sort(ids);
+            rc.broadcast(0, names.size() + seen.size() + queue.size() + heap.peek());
+            Clock.yield();
+        }
+    }
+}
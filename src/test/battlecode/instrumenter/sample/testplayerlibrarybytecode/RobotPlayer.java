@@ -0,0 +1,18 @@
+package testplayerlibrarybytecode;
+
+import battlecode.common.Clock;
+import battlecode.common.GameActionException;
+import battlecode.common.RobotController;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Uses a library class, and reports what it cost.
+ */
+public class RobotPlayer {
+    public static void run(RobotController rc) throws GameActionException {
+        final int before = Clock.getBytecodeNum();
+        new NoSuchElementException("nothing here");
+        rc.broadcast(0, Clock.getBytecodeNum() - before);
+    }
+}
@@ -5,21 +5,27 @@ import battlecode.common.MapLocation;
 import battlecode.common.RobotType;
 import battlecode.common.Team;
 import battlecode.schema.Event;
+import battlecode.schema.EventWrapper;
 import battlecode.schema.GameHeader;
 import battlecode.schema.GameWrapper;
+import battlecode.schema.Round;
 import battlecode.util.TeamMapping;
 import battlecode.world.TestMapBuilder;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
@@ -30,6 +36,9 @@ import static org.mockito.Mockito.verify;
  * @author james
  */
 public class GameMakerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private final GameInfo info = new GameInfo(
                     "bananas", "org.bananas", null,
                     "yellow","org.yellow", null,
@@ -54,7 +63,165 @@ public class GameMakerTest {
     public void fullReasonableGame() throws Exception {
         NetServer mockServer = Mockito.mock(NetServer.class);
         GameMaker gm = new GameMaker(info, mockServer);
+        playGame(gm);
+
+        GameWrapper game = GameWrapper.getRootAsGameWrapper(ByteBuffer.wrap(ungzip(gm.toBytes())));
+        checkGame(game);
+
+        // make sure we sent the same events to the mock server
+        ArgumentCaptor<byte[]> sent = ArgumentCaptor.forClass(byte[].class);
+        verify(mockServer, times(9)).addEvent(sent.capture());
+        for (int i = 0; i < game.eventsLength(); i++) {
+            EventWrapper event = EventWrapper.getRootAsEventWrapper(ByteBuffer.wrap(sent.getAllValues().get(i)));
+            assertEquals(game.events(i).eType(), event.eType());
+        }
+        Round round = (Round) EventWrapper.getRootAsEventWrapper(
+                ByteBuffer.wrap(sent.getAllValues().get(2))).e(new Round());
+        assertEquals(0, round.roundID());
+        assertEquals(1, round.movedIDsLength());
+    }
+
+    @Test
+    public void roundsKeepTheirOwnData() throws Exception {
+        GameMaker gm = new GameMaker(info, null);
+        gm.makeGameHeader();
+        GameMaker.MatchMaker mm = gm.getMatchMaker();
+        mm.makeMatchHeader(new TestMapBuilder("honolulu", 2, -3, 50, 50, 1337, 50).build());
+
+        // more than the columns start with room for
+        for (int id = 0; id < 100; id++) {
+            mm.addMoved(id, new MapLocation(id, -id));
+            mm.addHealthChanged(id, id / 2f);
+            mm.addBytecodes(id, 1000 + id);
+            mm.addAction(id, (byte) (id % 7), id + 1);
+        }
+        mm.addIndicatorLine(5, new MapLocation(1, 2), new MapLocation(3, 4), 10, 20, 30);
+        mm.getOut().write("hello".getBytes());
+        mm.makeRound(0);
+        mm.addMoved(7, new MapLocation(8, 9));
+        mm.makeRound(1);
+        mm.makeMatchFooter(Team.A, 2);
+        gm.makeGameFooter(Team.A);
+
+        GameWrapper game = GameWrapper.getRootAsGameWrapper(ByteBuffer.wrap(ungzip(gm.toBytes())));
+
+        Round first = (Round) game.events(2).e(new Round());
+        assertEquals(100, first.movedIDsLength());
+        assertEquals(100, first.movedLocs().xsLength());
+        assertEquals(100, first.actionsLength());
+        for (int id = 0; id < 100; id++) {
+            assertEquals(id, first.movedIDs(id));
+            assertEquals(id, first.movedLocs().xs(id), 0);
+            assertEquals(-id, first.movedLocs().ys(id), 0);
+            assertEquals(id / 2f, first.healthChangeLevels(id), 0);
+            assertEquals(1000 + id, first.bytecodesUsed(id));
+            assertEquals(id % 7, first.actions(id));
+            assertEquals(id + 1, first.actionTargets(id));
+        }
+        assertEquals(1, first.indicatorLineIDsLength());
+        assertEquals(3, first.indicatorLineEndLocs().xs(0), 0);
+        assertEquals(30, first.indicatorLineRGBs().blue(0));
+        assertEquals("hello", first.logs());
+
+        Round second = (Round) game.events(3).e(new Round());
+        assertEquals(1, second.roundID());
+        assertEquals(1, second.movedIDsLength());
+        assertEquals(7, second.movedIDs(0));
+        assertEquals(9, second.movedLocs().ys(0), 0);
+        assertEquals(0, second.healthChangedIDsLength());
+        assertEquals(0, second.actionsLength());
+        assertEquals(0, second.indicatorLineIDsLength());
+        assertEquals("", second.logs());
+    }
+
+    @Test
+    public void streamedGame() throws Exception {
+        File streamFile = folder.newFile("game.bc17s");
+        NetServer mockServer = Mockito.mock(NetServer.class);
+        GameMaker gm = new GameMaker(info, mockServer, streamFile);
+        playGame(gm);
+        gm.writeGame(streamFile);
+
+        checkGame(GameWrapper.getRootAsGameWrapper(ByteBuffer.wrap(ReplayReader.toGameWrapper(streamFile))));
+        checkGame(GameWrapper.getRootAsGameWrapper(ByteBuffer.wrap(ungzip(gm.toBytes()))));
+
+        verify(mockServer, times(9)).addEvent(any(byte[].class));
+    }
 
+    @Test
+    public void streamedGameIsSameBytes() throws Exception {
+        File streamFile = folder.newFile("game.bc17s");
+        playGame(new GameMaker(info, null, streamFile)).writeGame(streamFile);
+
+        // Sending packets to a client doesn't change what's saved, either
+        byte[] game = ungzip(playGame(new GameMaker(info, null)).toBytes());
+        assertArrayEquals(game, ungzip(playGame(new GameMaker(info, Mockito.mock(NetServer.class))).toBytes()));
+        assertArrayEquals(game, ReplayReader.toGameWrapper(streamFile));
+    }
+
+    @Test
+    public void streamedEventsMatchGame() throws Exception {
+        File streamFile = folder.newFile("game.bc17s");
+        playGame(new GameMaker(info, null, streamFile)).writeGame(streamFile);
+        GameWrapper game = GameWrapper.getRootAsGameWrapper(ByteBuffer.wrap(ungzip(playGame(new GameMaker(info, null)).toBytes())));
+
+        try (ReplayReader reader = new ReplayReader(streamFile)) {
+            for (int i = 0; i < game.eventsLength(); i++) {
+                EventWrapper event = EventWrapper.getRootAsEventWrapper(reader.nextEvent());
+                assertEquals(game.events(i).eType(), event.eType());
+                if (event.eType() == Event.Round) {
+                    Round expected = (Round) game.events(i).e(new Round());
+                    Round actual = (Round) event.e(new Round());
+                    assertEquals(expected.roundID(), actual.roundID());
+                    assertEquals(expected.movedIDsLength(), actual.movedIDsLength());
+                    assertEquals(expected.diedIDsLength(), actual.diedIDsLength());
+                }
+            }
+            assertNull(reader.nextEvent());
+        }
+    }
+
+    @Test
+    public void gameWithEachCodec() throws Exception {
+        for (ReplayCodec codec : ReplayCodec.values()) {
+            File saveFile = folder.newFile("game." + codec.getName());
+            playGame(new GameMaker(info, null, null, codec)).writeGame(saveFile);
+
+            assertEquals(codec == ReplayCodec.GZIP_BEST ? ReplayCodec.GZIP : codec, ReplayCodec.detect(saveFile));
+            try (InputStream in = ReplayCodec.decompress(FileUtils.openInputStream(saveFile))) {
+                checkGame(GameWrapper.getRootAsGameWrapper(ByteBuffer.wrap(IOUtils.toByteArray(in))));
+            }
+        }
+    }
+
+    @Test
+    public void streamedGameWithEachCodec() throws Exception {
+        for (ReplayCodec codec : ReplayCodec.values()) {
+            File streamFile = folder.newFile("game.bc17s." + codec.getName());
+            GameMaker gm = playGame(new GameMaker(info, null, streamFile, codec));
+            gm.writeGame(streamFile);
+
+            // The stream is written with the codec, not always gzip
+            assertEquals(codec == ReplayCodec.GZIP_BEST ? ReplayCodec.GZIP : codec, ReplayCodec.detect(streamFile));
+            checkGame(GameWrapper.getRootAsGameWrapper(ByteBuffer.wrap(ReplayReader.toGameWrapper(streamFile))));
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void truncatedStream() throws Exception {
+        File streamFile = folder.newFile("game.bc17s");
+        playGame(new GameMaker(info, null, streamFile)).writeGame(streamFile);
+
+        // Cut off the end of the index
+        byte[] raw = ungzip(Files.readAllBytes(streamFile.toPath()));
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(streamFile))) {
+            out.write(raw, 0, raw.length - 6);
+        }
+
+        ReplayReader.toGameWrapper(streamFile);
+    }
+
+    private GameMaker playGame(GameMaker gm) {
         gm.makeGameHeader();
         GameMaker.MatchMaker mm = gm.getMatchMaker();
         mm.makeMatchHeader(new TestMapBuilder("honolulu", 2, -3, 50, 50,1337, 50)
@@ -71,11 +238,10 @@ public class GameMakerTest {
         mm2.makeRound(0);
         mm2.makeMatchFooter(Team.A, 1);
         gm.makeGameFooter(Team.A);
+        return gm;
+    }
 
-        byte[] gameBytes = ungzip(gm.toBytes());
-
-        GameWrapper output = GameWrapper.getRootAsGameWrapper(ByteBuffer.wrap(gameBytes));
-
+    private void checkGame(GameWrapper output) {
         assertEquals(9, output.eventsLength());
         assertEquals(2, output.matchHeadersLength());
         assertEquals(2, output.matchFootersLength());
@@ -105,8 +271,11 @@ public class GameMakerTest {
         assertEquals(Event.MatchFooter, output.events(7).eType());
         assertEquals(Event.GameFooter, output.events(8).eType());
 
-        // make sure we sent something to the mock server
-        verify(mockServer, times(9)).addEvent(any(byte[].class));
+        Round round = (Round) output.events(2).e(new Round());
+        assertEquals(0, round.roundID());
+        assertEquals(1, round.movedIDsLength());
+        assertEquals(0, round.movedIDs(0));
+        assertEquals(1f, round.movedLocs().xs(0), 0);
     }
 
     public byte[] ungzip(byte[] in) throws IOException {
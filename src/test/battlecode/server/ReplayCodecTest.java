@@ -0,0 +1,122 @@
+package battlecode.server;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ReplayCodecTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final byte[] game = makeGame();
+        for (ReplayCodec codec : ReplayCodec.values()) {
+            assertArrayEquals(codec.getName(), game,
+                    IOUtils.toByteArray(ReplayCodec.decompress(new ByteArrayInputStream(compress(codec, game)))));
+        }
+    }
+
+    @Test
+    public void testGzipHasNoHeader() throws Exception {
+        // so that the client can read them
+        final byte[] game = makeGame();
+        for (ReplayCodec codec : new ReplayCodec[] {ReplayCodec.GZIP, ReplayCodec.GZIP_BEST}) {
+            assertArrayEquals(game, IOUtils.toByteArray(
+                    new GZIPInputStream(new ByteArrayInputStream(compress(codec, game)))));
+        }
+    }
+
+    @Test
+    public void testRoundTripOnPool() throws Exception {
+        final byte[] game = makeGame();
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (ReplayCodec codec : ReplayCodec.values()) {
+                final ByteArrayOutputStream result = new ByteArrayOutputStream();
+                try (OutputStream out = codec.compress(result, pool, 2)) {
+                    out.write(game);
+                }
+                assertArrayEquals(codec.getName(), game, IOUtils.toByteArray(
+                        ReplayCodec.decompress(new ByteArrayInputStream(result.toByteArray()))));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDetect() throws Exception {
+        final byte[] game = makeGame();
+        for (ReplayCodec codec : ReplayCodec.values()) {
+            final File file = folder.newFile(codec.getName());
+            FileUtils.writeByteArrayToFile(file, compress(codec, game));
+            assertEquals(codec == ReplayCodec.GZIP_BEST ? ReplayCodec.GZIP : codec, ReplayCodec.detect(file));
+        }
+    }
+
+    @Test
+    public void testConvert() throws Exception {
+        final byte[] game = makeGame();
+        final File lz4 = folder.newFile("game.lz4");
+        final File gzip = folder.newFile("game.gz");
+        FileUtils.writeByteArrayToFile(lz4, compress(ReplayCodec.LZ4, game));
+
+        ReplayCodec.convert(lz4, gzip, ReplayCodec.GZIP);
+
+        assertArrayEquals(game, IOUtils.toByteArray(new GZIPInputStream(FileUtils.openInputStream(gzip))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownFormat() throws Exception {
+        ReplayCodec.decompress(new ByteArrayInputStream(makeGame()));
+    }
+
+    @Test
+    public void testFromConfig() {
+        final Config config = new Config(new String[0]);
+        assertEquals(ReplayCodec.GZIP, ReplayCodec.fromConfig(config));
+        config.set("bc.server.replay-codec", "lz4");
+        assertEquals(ReplayCodec.LZ4, ReplayCodec.fromConfig(config));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCodec() {
+        ReplayCodec.forName("zstd");
+    }
+
+    private static byte[] compress(ReplayCodec codec, byte[] game) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (OutputStream out = codec.compress(result)) {
+            out.write(game);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Something that looks enough like a game to compress.
+     */
+    private static byte[] makeGame() {
+        final Random random = new Random(17);
+        final byte[] game = new byte[300000];
+        for (int i = 0; i < game.length; i++) {
+            game[i] = (byte) (i % 4 == 0 ? random.nextInt(256) : i / 1000);
+        }
+        return game;
+    }
+}
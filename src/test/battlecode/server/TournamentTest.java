@@ -0,0 +1,72 @@
+package battlecode.server;
+
+import battlecode.common.Team;
+import battlecode.instrumenter.URLUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class TournamentTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParallelGamesMatchSequentialGames() throws Exception {
+        final String players = URLUtils.toTempFolder(
+                "testplayerclock/RobotPlayer.class",
+                "testplayerloopforever/RobotPlayer.class"
+        );
+        final File outputs = folder.newFolder("battlecode-tournament");
+
+        final Config options = Config.getGlobalConfig();
+
+        // The same game several times over; it should come out the same
+        // however many of its copies run at once.
+        final List<GameInfo> games = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            games.add(new GameInfo(
+                    "testplayerclock", "testplayerclock", players,
+                    "testplayerloopforever", "testplayerloopforever", players,
+                    new String[]{"Blitzkrieg"},
+                    new File(outputs, "game" + i + ".bc17"),
+                    false
+            ));
+        }
+
+        final Team[] sequential = new Tournament(options, 1).run(games.subList(0, 1));
+        final Team[] parallel = new Tournament(options, 2).run(games.subList(1, 3));
+
+        assertNotNull(sequential[0]);
+        assertArrayEquals(new Team[]{sequential[0], sequential[0]}, parallel);
+
+        final byte[] expected = FileUtils.readFileToByteArray(games.get(0).getSaveFile());
+        for (int i = 1; i < 3; i++) {
+            assertArrayEquals(expected, FileUtils.readFileToByteArray(games.get(i).getSaveFile()));
+        }
+    }
+
+    @Test
+    public void testReadGames() throws Exception {
+        final File file = folder.newFile("battlecode-tournament.txt");
+        FileUtils.writeStringToFile(file,
+                "# A comment\n" +
+                "\n" +
+                "teamA a.jar teamB b.jar map1,map2 out/game.bc17\n");
+
+        final List<GameInfo> games = Tournament.readGames(file, Config.getGlobalConfig());
+        assertEquals(1, games.size());
+        assertEquals("teamA", games.get(0).getTeamAPackage());
+        assertEquals("b.jar", games.get(0).getTeamBURL());
+        assertArrayEquals(new String[]{"map1", "map2"}, games.get(0).getMaps());
+        assertEquals(new File("out/game.bc17"), games.get(0).getSaveFile());
+    }
+}
@@ -0,0 +1,84 @@
+package battlecode.util;
+
+import battlecode.schema.Round;
+import com.google.flatbuffers.FlatBufferBuilder;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class FlatColumnTest {
+    @Test
+    public void testBuilders() {
+        FlatColumn ids = FlatColumn.ints();
+        FlatColumn xs = FlatColumn.floats();
+        FlatColumn ys = FlatColumn.floats();
+        FlatColumn actions = FlatColumn.bytes();
+
+        for (int size : new int[] {0, 3, 1000, 5}) {
+            ids.clear();
+            xs.clear();
+            ys.clear();
+            actions.clear();
+            for (int i = 0; i < size; i++) {
+                ids.addInt(i * 3);
+                xs.addFloat(i / 2f);
+                ys.addFloat(-i);
+                actions.addByte((byte) i);
+            }
+            assertEquals(size, ids.size());
+            assertEquals(size, actions.size());
+
+            checkRound(size, makeRound(new FlatBufferBuilder(), ids, xs, ys, actions));
+            checkRound(size, makeRound(new FlatColumn.Builder(), ids, xs, ys, actions));
+        }
+    }
+
+    /**
+     * FlatColumn.Builder relies on how createString works inside
+     * flatbuffers-java; check it again before changing the version.
+     */
+    @Test
+    public void testFlatbuffersVersion() throws Exception {
+        Properties pom = new Properties();
+        try (InputStream in = FlatBufferBuilder.class.getResourceAsStream(
+                "/META-INF/maven/com.github.davidmoten/flatbuffers-java/pom.properties")) {
+            assertNotNull("Can't find flatbuffers-java's version", in);
+            pom.load(in);
+        }
+        assertEquals("FlatColumn.Builder was checked against flatbuffers-java 1.4.0.1",
+                "1.4.0.1", pom.getProperty("version"));
+    }
+
+    private static Round makeRound(FlatBufferBuilder builder,
+                                   FlatColumn ids, FlatColumn xs, FlatColumn ys, FlatColumn actions) {
+        // something odd-sized first, to knock the alignment about
+        builder.createString("x");
+        int idsP = ids.createVector(builder);
+        int locsP = FlatHelpers.createVecTable(builder, xs, ys);
+        int actionsP = actions.createVector(builder);
+        Round.startRound(builder);
+        Round.addMovedIDs(builder, idsP);
+        Round.addMovedLocs(builder, locsP);
+        Round.addActions(builder, actionsP);
+        builder.finish(Round.endRound(builder));
+        return Round.getRootAsRound(ByteBuffer.wrap(builder.sizedByteArray()));
+    }
+
+    private static void checkRound(int size, Round round) {
+        assertEquals(size, round.movedIDsLength());
+        assertEquals(size, round.movedLocs().xsLength());
+        assertEquals(size, round.movedLocs().ysLength());
+        assertEquals(size, round.actionsLength());
+        for (int i = 0; i < size; i++) {
+            assertEquals(i * 3, round.movedIDs(i));
+            assertEquals(i / 2f, round.movedLocs().xs(i), 0);
+            assertEquals(-i, round.movedLocs().ys(i), 0);
+            assertEquals((byte) i, round.actions(i));
+        }
+    }
+}
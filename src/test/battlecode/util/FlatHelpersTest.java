@@ -0,0 +1,40 @@
+package battlecode.util;
+
+import battlecode.schema.MatchFooter;
+import com.google.flatbuffers.FlatBufferBuilder;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlatHelpersTest {
+    @Test
+    public void testAddFinishedBuffer() {
+        FlatBufferBuilder eventBuilder = new FlatBufferBuilder();
+        eventBuilder.finish(MatchFooter.createMatchFooter(eventBuilder, (byte) 2, 1234));
+        ByteBuffer event = eventBuilder.dataBuffer();
+        int length = event.remaining();
+
+        for (String before : new String[] {"", "x", "xyz", "xyzw"}) {
+            FlatBufferBuilder builder = new FlatBufferBuilder();
+            // something odd-sized first, to knock the alignment about
+            builder.createString(before);
+            int offset = builder.offset();
+            int footerP = FlatHelpers.addFinishedBuffer(builder, event);
+
+            // just the event, plus padding to line it up
+            assertTrue(builder.offset() - offset >= length);
+            assertTrue(builder.offset() - offset < length + 8);
+            assertEquals(0, builder.offset() % 8);
+
+            builder.finish(footerP);
+            MatchFooter footer = MatchFooter.getRootAsMatchFooter(ByteBuffer.wrap(builder.sizedByteArray()));
+            assertEquals(2, footer.winner());
+            assertEquals(1234, footer.totalRounds());
+        }
+        // the source is left alone
+        assertEquals(length, event.remaining());
+    }
+}
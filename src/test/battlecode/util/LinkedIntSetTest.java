@@ -0,0 +1,80 @@
+package battlecode.util;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LinkedIntSetTest {
+    @Test
+    public void testMatchesList() {
+        final Random random = new Random(42);
+        final LinkedIntSet set = new LinkedIntSet();
+        final TIntArrayList list = new TIntArrayList();
+
+        int nextValue = 0;
+        for (int step = 0; step < 5000; step++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    set.add(nextValue);
+                    list.add(nextValue);
+                    nextValue++;
+                    break;
+                case 1:
+                    if (!list.isEmpty()) {
+                        final int before = list.get(random.nextInt(list.size()));
+                        set.insertBefore(before, nextValue);
+                        list.insert(list.indexOf(before), nextValue);
+                        nextValue++;
+                    }
+                    break;
+                default:
+                    final int value = random.nextInt(nextValue + 1);
+                    assertEquals(list.remove(value), set.remove(value));
+            }
+            assertEquals(list.size(), set.size());
+        }
+        assertArrayEquals(list.toArray(), set.toArray());
+    }
+
+    @Test
+    public void testModifyDuringIteration() {
+        final LinkedIntSet set = new LinkedIntSet();
+        for (int i = 1; i <= 5; i++) {
+            set.add(i);
+        }
+
+        final TIntArrayList visited = new TIntArrayList();
+        set.forEach(value -> {
+            visited.add(value);
+            if (value == 2) {
+                // Removing ourselves and the next value is fine
+                set.remove(2);
+                set.remove(3);
+                // Added values wait for the next pass
+                set.insertBefore(4, 20);
+                set.add(6);
+            }
+            return true;
+        });
+        assertEquals(new TIntArrayList(new int[]{1, 2, 4, 5}), visited);
+        assertArrayEquals(new int[]{1, 20, 4, 5, 6}, set.toArray());
+
+        visited.clear();
+        set.forEach(value -> {
+            visited.add(value);
+            return value != 4;
+        });
+        assertEquals(new TIntArrayList(new int[]{1, 20, 4}), visited);
+
+        assertTrue(set.contains(20));
+        assertTrue(set.remove(20));
+        assertFalse(set.contains(20));
+        assertFalse(set.remove(20));
+    }
+}
@@ -0,0 +1,98 @@
+package battlecode.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Lz4StreamTest {
+    @Test
+    public void testRoundTrip() throws Exception {
+        final int block = Lz4OutputStream.BLOCK_SIZE;
+        for (int size : new int[] {0, 1, 12, 13, 1000, block, block + 1, 7 * block / 2}) {
+            final byte[] data = makeData(size);
+            assertArrayEquals(data, decompress(compress(data)));
+        }
+    }
+
+    @Test
+    public void testIncompressible() throws Exception {
+        final byte[] data = new byte[3 * Lz4OutputStream.BLOCK_SIZE];
+        new Random(1).nextBytes(data);
+        final byte[] compressed = compress(data);
+        // stored as they are, with only the lengths added
+        assertTrue(compressed.length <= data.length + 4 * 4);
+        assertArrayEquals(data, decompress(compressed));
+    }
+
+    @Test
+    public void testRuns() throws Exception {
+        // long runs make matches that overlap what they copy, and long lengths
+        final byte[] data = new byte[100000];
+        Arrays.fill(data, 0, 50000, (byte) 7);
+        for (int i = 50000; i < data.length; i++) {
+            data[i] = (byte) (i % 3);
+        }
+        final byte[] compressed = compress(data);
+        assertTrue(compressed.length < 1000);
+        assertArrayEquals(data, decompress(compressed));
+    }
+
+    @Test
+    public void testCompresses() throws Exception {
+        final byte[] data = makeData(10 * Lz4OutputStream.BLOCK_SIZE);
+        assertTrue(compress(data).length < data.length / 2);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws Exception {
+        final byte[] compressed = compress(makeData(1000));
+        decompress(Arrays.copyOf(compressed, compressed.length - 4));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorrupt() throws Exception {
+        final byte[] compressed = compress(new byte[1000]);
+        // make lengths that run past the end of the block
+        for (int i = 4; i < compressed.length - 4; i++) {
+            compressed[i] = (byte) 0xff;
+        }
+        decompress(compressed);
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (Lz4OutputStream out = new Lz4OutputStream(result)) {
+            // in uneven pieces, to cross blocks mid-write
+            for (int i = 0; i < data.length; i += 10000) {
+                out.write(data, i, Math.min(10000, data.length - i));
+            }
+        }
+        return result.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        return IOUtils.toByteArray(new Lz4InputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    /**
+     * Something compressible: a phrase repeated with random changes.
+     */
+    private static byte[] makeData(int size) {
+        final Random random = new Random(size);
+        final byte[] phrase = new byte[5000];
+        random.nextBytes(phrase);
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = random.nextInt(32) == 0 ? (byte) random.nextInt(16) : phrase[i % phrase.length];
+        }
+        return data;
+    }
+}
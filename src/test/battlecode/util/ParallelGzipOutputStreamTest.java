@@ -0,0 +1,105 @@
+package battlecode.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelGzipOutputStreamTest {
+    private static ExecutorService pool;
+
+    @BeforeClass
+    public static void startPool() {
+        pool = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterClass
+    public static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final int block = ParallelGzipOutputStream.BLOCK_SIZE;
+        for (int size : new int[] {0, 1, 1000, block, block + 1, 7 * block / 2, 20 * block}) {
+            final byte[] data = makeData(size);
+            final byte[] gzipped = gzip(data, 3);
+
+            assertArrayEquals(data, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped))));
+
+            // a single gzip member, for readers that stop after the first one
+            final Inflater inflater = new Inflater(true);
+            inflater.setInput(gzipped, 10, gzipped.length - 18);
+            final byte[] inflated = new byte[size + 1];
+            assertEquals(size, inflater.inflate(inflated));
+            assertTrue(inflater.finished());
+            assertEquals(0, inflater.getRemaining());
+            inflater.end();
+        }
+    }
+
+    @Test
+    public void testSmallWrites() throws Exception {
+        final byte[] data = makeData(3 * ParallelGzipOutputStream.BLOCK_SIZE);
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(result, pool, 1)) {
+            for (int i = 0; i < data.length; i += 1000) {
+                out.write(data, i, Math.min(1000, data.length - i));
+            }
+            out.write(7);
+        }
+
+        final byte[] expected = Arrays.copyOf(data, data.length + 1);
+        expected[data.length] = 7;
+        assertArrayEquals(expected,
+                IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(result.toByteArray()))));
+    }
+
+    @Test
+    public void testCompressesLikeGzip() throws Exception {
+        // priming each block with the one before should keep it close to plain gzip
+        final byte[] data = makeData(10 * ParallelGzipOutputStream.BLOCK_SIZE);
+        final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(plain)) {
+            out.write(data);
+        }
+        assertTrue(gzip(data, 3).length < plain.size() * 1.05);
+    }
+
+    private static byte[] gzip(byte[] data, int threads) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(result, pool, threads)) {
+            out.write(data);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Something compressible, with repeats that cross block boundaries.
+     */
+    private static byte[] makeData(int size) {
+        final Random random = new Random(size);
+        final byte[] phrase = new byte[5000];
+        random.nextBytes(phrase);
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = random.nextInt(4) == 0 ? (byte) random.nextInt(16) : phrase[i % phrase.length];
+        }
+        return data;
+    }
+}
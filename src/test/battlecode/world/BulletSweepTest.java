@@ -0,0 +1,142 @@
+package battlecode.world;
+
+import battlecode.common.Direction;
+import battlecode.common.GameConstants;
+import battlecode.common.MapLocation;
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import battlecode.server.Config;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks BulletSweep against the radius query updateBullet() used to make.
+ */
+public class BulletSweepTest {
+
+    private static final float WIDTH = 80;
+    private static final float HEIGHT = 60;
+
+    @Test
+    public void testMatchesLiveQuery() {
+        final Random random = new Random(2017);
+        final LiveMap map = new TestMapBuilder("test", 0, 0, WIDTH, HEIGHT, 1337, 100).build();
+        final TestGame game = new TestGame(map);
+        final GameWorld world = game.getWorld();
+        final ObjectInfo objectInfo = world.getObjectInfo();
+
+        for (int i = 0; i < 40; i++) {
+            final MapLocation loc = randomLocation(random);
+            final float radius = GameConstants.NEUTRAL_TREE_MIN_RADIUS +
+                    random.nextFloat() * (GameConstants.NEUTRAL_TREE_MAX_RADIUS - GameConstants.NEUTRAL_TREE_MIN_RADIUS);
+            game.spawnTree(loc.x, loc.y, radius, Team.NEUTRAL, 0, null);
+        }
+
+        final InternalRobot parent = game.getBot(game.spawn(1, 1, RobotType.SOLDIER, Team.A));
+        for (int i = 0; i < 400; i++) {
+            world.spawnBullet(Team.A, 0.5f + random.nextFloat() * 3.5f, 1,
+                    randomLocation(random), new Direction(random.nextFloat() * 6.3f), parent);
+        }
+
+        final BulletSweep sweep = objectInfo.getBulletSweep();
+        sweep.begin();
+
+        int hits = 0;
+        for (InternalBullet bullet : objectInfo.bulletsArray()) {
+            // Change the forest under the sweep, as a round would
+            final InternalTree[] trees = objectInfo.treesArray();
+            if (random.nextInt(4) == 0) {
+                objectInfo.destroyTree(trees[random.nextInt(trees.length)].getID());
+            }
+            if (random.nextInt(4) == 0) {
+                final MapLocation loc = randomLocation(random);
+                game.spawnTree(loc.x, loc.y, GameConstants.BULLET_TREE_RADIUS, Team.B, 0, null);
+            }
+
+            final MapLocation start = bullet.getLocation();
+            final MapLocation finish = start.add(bullet.getDirection(), bullet.getSpeed());
+            final float distToFinish = (float) start.distanceTo(finish);
+            final MapLocation checkCenter = start.add(start.directionTo(finish), distToFinish / 2);
+            final float radius = GameConstants.NEUTRAL_TREE_MAX_RADIUS + distToFinish / 2;
+
+            final InternalTree[] liveTree = {null};
+            final float[] liveDist = {Float.MAX_VALUE};
+            objectInfo.eachTreeWithinRadius(checkCenter, radius, tree -> {
+                final float hitDist = InternalBullet.calcHitDist(start, finish, tree.getLocation(), tree.getRadius());
+                if (hitDist < liveDist[0] && hitDist >= 0) {
+                    liveTree[0] = tree;
+                    liveDist[0] = hitDist;
+                }
+                return true;
+            });
+
+            assertTrue(sweep.findTreeHit(bullet, start, finish, checkCenter, radius));
+            assertSame(liveTree[0], sweep.getHitTree());
+            if (liveTree[0] != null) {
+                assertEquals(liveDist[0], sweep.getHitTreeDist(), 0);
+                hits++;
+            }
+        }
+        sweep.end();
+
+        // Make sure the test actually exercised some hits
+        assertTrue(hits > 10);
+    }
+
+    @Test
+    public void testTiesMatchLiveQueryOnEveryBackend() {
+        final String backend = Config.getGlobalConfig().get("bc.engine.spatial-index");
+        try {
+            for (String index : new String[]{"grid", "rtree"}) {
+                Config.getGlobalConfig().set("bc.engine.spatial-index", index);
+                final LiveMap map = new TestMapBuilder("ties", 0, 0, WIDTH, HEIGHT, 1337, 100).build();
+                final TestGame game = new TestGame(map);
+                final GameWorld world = game.getWorld();
+                final ObjectInfo objectInfo = world.getObjectInfo();
+
+                // Mirror images across the bullet's path: hit at the same
+                // distance, and the same distance from the middle of the path
+                final int above = game.spawnTree(12, 30.5f, 1, Team.NEUTRAL, 0, null);
+                final int below = game.spawnTree(12, 29.5f, 1, Team.NEUTRAL, 0, null);
+
+                final InternalRobot parent = game.getBot(game.spawn(1, 1, RobotType.SOLDIER, Team.A));
+                final InternalBullet bullet = objectInfo.getBulletByID(
+                        world.spawnBullet(Team.A, 4, 1, new MapLocation(10, 30), Direction.getEast(), parent));
+                final MapLocation start = bullet.getLocation();
+                final MapLocation finish = start.add(bullet.getDirection(), bullet.getSpeed());
+                final MapLocation checkCenter = start.add(start.directionTo(finish), 2);
+                final float radius = GameConstants.NEUTRAL_TREE_MAX_RADIUS + 2;
+
+                // The live query keeps the first tree it sees at the smallest hit distance
+                final InternalTree[] liveTree = {null};
+                final float[] liveDist = {Float.MAX_VALUE};
+                objectInfo.eachTreeWithinRadius(checkCenter, radius, tree -> {
+                    final float hitDist = InternalBullet.calcHitDist(start, finish, tree.getLocation(), tree.getRadius());
+                    if (hitDist < liveDist[0] && hitDist >= 0) {
+                        liveTree[0] = tree;
+                        liveDist[0] = hitDist;
+                    }
+                    return true;
+                });
+                assertSame(index, objectInfo.getTreeByID(Math.min(above, below)), liveTree[0]);
+
+                final BulletSweep sweep = objectInfo.getBulletSweep();
+                sweep.begin();
+                assertTrue(index, sweep.findTreeHit(bullet, start, finish, checkCenter, radius));
+                assertSame(index, liveTree[0], sweep.getHitTree());
+                sweep.end();
+            }
+        } finally {
+            Config.getGlobalConfig().set("bc.engine.spatial-index", backend);
+        }
+    }
+
+    private static MapLocation randomLocation(Random random) {
+        return new MapLocation(random.nextFloat() * WIDTH, random.nextFloat() * HEIGHT);
+    }
+}
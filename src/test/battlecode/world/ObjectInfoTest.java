@@ -0,0 +1,61 @@
+package battlecode.world;
+
+import battlecode.common.MapLocation;
+import battlecode.common.Team;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that ObjectInfo's queries behave the same with every index backend.
+ */
+public class ObjectInfoTest {
+
+    private static final String[] BACKENDS = {"grid", "rtree"};
+
+    @Test
+    public void testQueriesStopWhenAsked() {
+        for (String backend : BACKENDS) {
+            final ObjectInfo info = new ObjectInfo(
+                    new TestMapBuilder("stop", 0, 0, 50, 50, 1337, 50).build(), backend);
+
+            // Overlapping, so that both contain the point between them
+            final InternalTree far = new InternalTree(null, 1, Team.NEUTRAL, 2, new MapLocation(10, 10), 0, null);
+            final InternalTree near = new InternalTree(null, 2, Team.NEUTRAL, 2, new MapLocation(11, 10), 0, null);
+            info.spawnTree(far);
+            info.spawnTree(near);
+
+            final MapLocation between = new MapLocation(10.9f, 10);
+            assertEquals(backend, near, info.getTreeAtLocation(between));
+
+            final int[] visited = {0};
+            assertFalse(backend, info.eachTreeWithinRadius(between, 5, tree -> {
+                visited[0]++;
+                return false;
+            }));
+            assertEquals(backend, 1, visited[0]);
+        }
+    }
+
+    @Test
+    public void testTiesVisitedByID() {
+        for (String backend : BACKENDS) {
+            final ObjectInfo info = new ObjectInfo(
+                    new TestMapBuilder("ties", 0, 0, 50, 50, 1337, 50).build(), backend);
+
+            // Four trees the same distance from (20, 20), spawned out of ID order
+            info.spawnTree(new InternalTree(null, 8, Team.NEUTRAL, 1, new MapLocation(23, 20), 0, null));
+            info.spawnTree(new InternalTree(null, 2, Team.NEUTRAL, 1, new MapLocation(17, 20), 0, null));
+            info.spawnTree(new InternalTree(null, 6, Team.NEUTRAL, 1, new MapLocation(20, 23), 0, null));
+            info.spawnTree(new InternalTree(null, 4, Team.NEUTRAL, 1, new MapLocation(20, 17), 0, null));
+
+            final StringBuilder visited = new StringBuilder();
+            info.eachTreeWithinRadius(new MapLocation(20, 20), 2, tree -> {
+                visited.append(tree.getID()).append(' ');
+                return true;
+            });
+            assertEquals(backend, "2 4 6 8 ", visited.toString());
+        }
+    }
+}
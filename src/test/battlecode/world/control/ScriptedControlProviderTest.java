@@ -0,0 +1,109 @@
+package battlecode.world.control;
+
+import battlecode.common.*;
+import battlecode.server.GameInfo;
+import battlecode.server.GameMaker;
+import battlecode.world.GameWorld;
+import battlecode.world.InternalRobot;
+import battlecode.world.LiveMap;
+import battlecode.world.ObjectInfo;
+import battlecode.world.TestMapBuilder;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that scripted robots do what they're told, and nothing else.
+ */
+public class ScriptedControlProviderTest {
+
+    private static final int ROUNDS = 300;
+
+    @Test
+    public void testRobotsBehave() {
+        final GameWorld world = start(EnumSet.allOf(ScriptedControlProvider.Behavior.class));
+        final ObjectInfo objectInfo = world.getObjectInfo();
+
+        int soldiers = 0;
+        int bullets = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            world.runRound();
+            soldiers = Math.max(soldiers, objectInfo.getRobotTypeCount(Team.A, RobotType.SOLDIER) +
+                    objectInfo.getRobotTypeCount(Team.B, RobotType.SOLDIER));
+            bullets = Math.max(bullets, objectInfo.bullets().size());
+        }
+
+        assertTrue(objectInfo.getRobotTypeCount(Team.A, RobotType.GARDENER) > 0);
+        assertTrue(objectInfo.getRobotTypeCount(Team.B, RobotType.GARDENER) > 0);
+        assertTrue(objectInfo.getTreeCount(Team.A) > 0);
+        assertTrue(objectInfo.getTreeCount(Team.B) > 0);
+        assertTrue(soldiers > 0);
+        assertTrue(bullets > 0);
+    }
+
+    @Test
+    public void testBehaviorsAreOptional() {
+        final GameWorld world = run(EnumSet.of(ScriptedControlProvider.Behavior.WALK));
+
+        assertEquals(2, world.getObjectInfo().robots().size());
+        assertEquals(0, world.getObjectInfo().getTreeCount(Team.A));
+        assertEquals(0, world.getObjectInfo().bullets().size());
+    }
+
+    @Test
+    public void testMatchesAreReproducible() {
+        assertArrayEquals(describe(run(EnumSet.allOf(ScriptedControlProvider.Behavior.class))),
+                describe(run(EnumSet.allOf(ScriptedControlProvider.Behavior.class))));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(EnumSet.of(ScriptedControlProvider.Behavior.WALK, ScriptedControlProvider.Behavior.PLANT),
+                ScriptedControlProvider.Behavior.parse("walk, PLANT,"));
+        assertEquals(EnumSet.noneOf(ScriptedControlProvider.Behavior.class),
+                ScriptedControlProvider.Behavior.parse(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsUnknownBehaviors() {
+        ScriptedControlProvider.Behavior.parse("walk,dance");
+    }
+
+    private static GameWorld run(EnumSet<ScriptedControlProvider.Behavior> behaviors) {
+        final GameWorld world = start(behaviors);
+        for (int i = 0; i < ROUNDS; i++) {
+            world.runRound();
+        }
+        return world;
+    }
+
+    private static GameWorld start(EnumSet<ScriptedControlProvider.Behavior> behaviors) {
+        final LiveMap map = new TestMapBuilder("scripted", 0, 0, 60, 60, 1337, ROUNDS + 1)
+                .addRobot(0, Team.A, RobotType.ARCHON, new MapLocation(10, 10))
+                .addRobot(1, Team.B, RobotType.ARCHON, new MapLocation(50, 50))
+                .build();
+
+        final GameMaker gameMaker = new GameMaker(new GameInfo(
+                "teamA", "teamA", null, "teamB", "teamB", null,
+                new String[]{"scripted"}, null, false
+        ), null);
+        gameMaker.makeGameHeader();
+        return new GameWorld(map, new ScriptedControlProvider(behaviors),
+                new long[2][GameConstants.TEAM_MEMORY_LENGTH], gameMaker.getMatchMaker());
+    }
+
+    private static String[] describe(GameWorld world) {
+        final InternalRobot[] robots = world.getObjectInfo().robotsArray();
+        final String[] descriptions = new String[robots.length];
+        for (int i = 0; i < robots.length; i++) {
+            descriptions[i] = robots[i].getID() + " " + robots[i].getType() + " " + robots[i].getLocation();
+        }
+        Arrays.sort(descriptions);
+        return descriptions;
+    }
+}
@@ -0,0 +1,177 @@
+package battlecode.world.index;
+
+import battlecode.common.MapLocation;
+import gnu.trove.list.array.TIntArrayList;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cross-checks the grid indexes against the RTree index.
+ */
+public class BodyIndexTest {
+
+    private static final MapLocation ORIGIN = new MapLocation(100, 200);
+    private static final float WIDTH = 60;
+    private static final float HEIGHT = 45;
+
+    @Test
+    public void testGridMatchesRTree() {
+        final Random random = new Random(1337);
+        final BodyIndex grid = new GridBodyIndex(ORIGIN, WIDTH, HEIGHT, 4);
+        final BodyIndex rtree = new RTreeBodyIndex();
+        final BodyIndex packed = new PackedGridBodyIndex(ORIGIN, WIDTH, HEIGHT, 4);
+
+        final int count = 500;
+        final MapLocation[] locs = new MapLocation[count];
+        final boolean[] alive = new boolean[count];
+
+        for (int id = 0; id < count; id++) {
+            // Some bodies fall slightly off the map, like bullets about to die
+            locs[id] = randomLocation(random, 2);
+            alive[id] = true;
+            grid.insert(id, locs[id]);
+            rtree.insert(id, locs[id]);
+            packed.insert(id, locs[id]);
+        }
+
+        for (int step = 0; step < 2000; step++) {
+            final int id = random.nextInt(count);
+            switch (random.nextInt(3)) {
+                case 0:
+                    if (alive[id]) {
+                        final MapLocation to = randomLocation(random, 2);
+                        grid.move(id, locs[id], to);
+                        rtree.move(id, locs[id], to);
+                        packed.move(id, locs[id], to);
+                        locs[id] = to;
+                    }
+                    break;
+                case 1:
+                    if (alive[id]) {
+                        grid.remove(id, locs[id]);
+                        rtree.remove(id, locs[id]);
+                        packed.remove(id, locs[id]);
+                    } else {
+                        grid.insert(id, locs[id]);
+                        rtree.insert(id, locs[id]);
+                        packed.insert(id, locs[id]);
+                    }
+                    alive[id] = !alive[id];
+                    break;
+                default:
+                    final MapLocation center = randomLocation(random, 10);
+                    final float radius = random.nextFloat() * 12;
+                    // Every backend breaks ties the same way
+                    assertEquals(visit(rtree, center, radius), visit(grid, center, radius));
+                    assertEquals(visit(grid, center, radius), visit(packed, center, radius));
+            }
+            assertEquals(rtree.size(), grid.size());
+            assertEquals(rtree.size(), packed.size());
+        }
+    }
+
+    @Test
+    public void testPackedGridPatchesRemovalsInPlace() {
+        final Random random = new Random(4242);
+        final BodyIndex grid = new GridBodyIndex(ORIGIN, WIDTH, HEIGHT, 4);
+        final PackedGridBodyIndex packed = new PackedGridBodyIndex(ORIGIN, WIDTH, HEIGHT, 4);
+
+        final int count = 300;
+        final MapLocation[] locs = new MapLocation[count];
+        for (int id = 0; id < count; id++) {
+            locs[id] = randomLocation(random, 0);
+            grid.insert(id, locs[id]);
+            packed.insert(id, locs[id]);
+        }
+
+        // Like a round where bullets destroy trees between queries
+        visit(packed, locs[0], 1);
+        final int packs = packed.getPackCount();
+        for (int id = 0; id < count; id += 2) {
+            grid.remove(id, locs[id]);
+            packed.remove(id, locs[id]);
+            final MapLocation center = randomLocation(random, 5);
+            final float radius = random.nextFloat() * 12;
+            assertEquals(visit(grid, center, radius), visit(packed, center, radius));
+            assertEquals(grid.size(), packed.size());
+        }
+        assertEquals(packs, packed.getPackCount());
+
+        // A spawn still repacks, once, and drops the tombstones
+        grid.insert(0, locs[0]);
+        packed.insert(0, locs[0]);
+        for (int i = 0; i < 10; i++) {
+            final MapLocation center = randomLocation(random, 5);
+            assertEquals(visit(grid, center, 10), visit(packed, center, 10));
+        }
+        assertEquals(packs + 1, packed.getPackCount());
+    }
+
+    @Test
+    public void testBackendsBreakTiesByID() {
+        final BodyIndex[] indexes = {
+                new GridBodyIndex(ORIGIN, WIDTH, HEIGHT, 4),
+                new PackedGridBodyIndex(ORIGIN, WIDTH, HEIGHT, 4),
+                new RTreeBodyIndex()
+        };
+        // Four bodies the same distance from (120, 220), inserted out of ID order
+        final MapLocation center = new MapLocation(120, 220);
+        final int[] ids = {7, 3, 9, 1};
+        final MapLocation[] locs = {
+                new MapLocation(123, 220),
+                new MapLocation(117, 220),
+                new MapLocation(120, 223),
+                new MapLocation(120, 217)
+        };
+        for (BodyIndex index : indexes) {
+            for (int i = 0; i < ids.length; i++) {
+                index.insert(ids[i], locs[i]);
+            }
+            index.insert(5, new MapLocation(121, 220));
+            assertEquals(new TIntArrayList(new int[]{5, 1, 3, 7, 9}), visit(index, center, 5));
+        }
+    }
+
+    @Test
+    public void testNearestVisitsInDistanceOrder() {
+        final BodyIndex grid = new GridBodyIndex(ORIGIN, WIDTH, HEIGHT, 4);
+        grid.insert(1, new MapLocation(130, 230));
+        grid.insert(2, new MapLocation(121, 220));
+        grid.insert(3, new MapLocation(125, 225));
+        grid.insert(4, new MapLocation(108, 208));
+
+        final TIntArrayList visited = new TIntArrayList();
+        grid.nearest(new MapLocation(120, 220), 15, id -> {
+            visited.add(id);
+            return true;
+        });
+        assertEquals(new TIntArrayList(new int[]{2, 3, 1}), visited);
+
+        // Stops as soon as the visitor asks it to
+        visited.clear();
+        grid.nearest(new MapLocation(120, 220), 15, id -> {
+            visited.add(id);
+            return false;
+        });
+        assertEquals(new TIntArrayList(new int[]{2}), visited);
+    }
+
+    private static MapLocation randomLocation(Random random, float slop) {
+        return new MapLocation(
+                ORIGIN.x - slop + random.nextFloat() * (WIDTH + 2 * slop),
+                ORIGIN.y - slop + random.nextFloat() * (HEIGHT + 2 * slop)
+        );
+    }
+
+    private static TIntArrayList visit(BodyIndex index, MapLocation center, float radius) {
+        final TIntArrayList result = new TIntArrayList();
+        index.nearest(center, radius, id -> {
+            result.add(id);
+            return true;
+        });
+        return result;
+    }
+}